@@ -0,0 +1,162 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import org.openbase.bco.bcozy.util.ShapeGeometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the heatmap computation on a synthetic floorplan.
+ * <p>
+ * The floorplan is a square grid of equally sized square tiles with the spots spread randomly over it, so the
+ * results only depend on the parameters and not on a running registry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeatmapBenchmark {
+
+    private static final int SPREADING_ITERATIONS = 3;
+    private static final double RING_WIDTH = 3;
+
+    /**
+     * Number of rows and columns of the grid.
+     */
+    @Param({"250", "1000"})
+    public int gridSize;
+
+    /**
+     * Number of tiles along each side of the floorplan.
+     */
+    @Param({"4", "16"})
+    public int tilesPerSide;
+
+    @Param({"16", "256"})
+    public int spotCount;
+
+    private List<ShapeGeometry> tiles;
+    private HeatmapValues values;
+    private List<HeatmapSpot> spots;
+    private Map<HeatmapSpot, HeatmapKernel> kernels;
+    private float[] profile;
+    private float[] field;
+    private Rectangle bounds;
+    private Rectangle spotRegion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final double tileSize = (double) gridSize / tilesPerSide;
+        tiles = new ArrayList<>();
+        for (int row = 0; row < tilesPerSide; row++) {
+            for (int column = 0; column < tilesPerSide; column++) {
+                final double x = row * tileSize;
+                final double y = column * tileSize;
+                tiles.add(new ShapeGeometry(new double[]{x, y, x + tileSize, y, x + tileSize, y + tileSize, x, y + tileSize}));
+            }
+        }
+
+        final Random random = new Random(42);
+        spots = new ArrayList<>();
+        for (int i = 0; i < spotCount; i++) {
+            spots.add(new HeatmapSpot(random.nextInt(gridSize), random.nextInt(gridSize), random.nextDouble(), i));
+        }
+        values = new HeatmapValues(tiles, spots, new HeatmapDiffusion(gridSize, gridSize), 0, 0);
+        for (HeatmapSpot spot : spots) {
+            values.getGrid().setValue(spot.x, spot.y, (float) spot.value);
+        }
+
+        profile = HeatmapKernel.computeProfile(SPREADING_ITERATIONS);
+        kernels = new HashMap<>();
+        for (HeatmapSpot spot : spots) {
+            kernels.put(spot, HeatmapKernel.compute(values, spot, profile, RING_WIDTH));
+        }
+        field = new float[gridSize * gridSize];
+        bounds = new Rectangle(0, 0, gridSize, gridSize);
+        final HeatmapSpot spot = spots.get(0);
+        spotRegion = new Rectangle(spot.x - SPREADING_ITERATIONS, spot.y - SPREADING_ITERATIONS, 2 * SPREADING_ITERATIONS + 1, 2 * SPREADING_ITERATIONS + 1);
+    }
+
+    /**
+     * Rasterization of all tiles, done whenever the registry changes.
+     */
+    @Benchmark
+    public void rasterizeTiles() {
+        values.setLocations(tiles);
+    }
+
+    /**
+     * Tile lookup of every cell of the grid.
+     */
+    @Benchmark
+    public int isInsideLocation() {
+        int inside = 0;
+        for (int row = 0; row < gridSize; row++) {
+            for (int column = 0; column < gridSize; column++) {
+                if (values.isInsideLocation(row, column)) {
+                    inside++;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * One frame of diffusion over the whole grid.
+     */
+    @Benchmark
+    public void diffuseGrid() {
+        values.getGrid().diffuse(spots, SPREADING_ITERATIONS);
+    }
+
+    /**
+     * One frame of diffusion around a single updated spot.
+     */
+    @Benchmark
+    public void diffuseSpotRegion() {
+        values.getGrid().diffuse(spots, SPREADING_ITERATIONS, spotRegion);
+    }
+
+    /**
+     * Computation of the kernels of all spots, done whenever the tiles or spots change.
+     */
+    @Benchmark
+    public void computeKernels(final Blackhole blackhole) {
+        for (HeatmapSpot spot : spots) {
+            blackhole.consume(HeatmapKernel.compute(values, spot, profile, RING_WIDTH));
+        }
+    }
+
+    /**
+     * Superposition of all spot kernels into an empty field, as done for each frame of a playback.
+     */
+    @Benchmark
+    public float[] superposeKernels() {
+        Arrays.fill(field, 0f);
+        for (HeatmapSpot spot : spots) {
+            kernels.get(spot).addTo(field, gridSize, (float) spot.value, bounds);
+        }
+        return field;
+    }
+}
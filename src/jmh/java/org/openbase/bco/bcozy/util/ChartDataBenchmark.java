@@ -0,0 +1,108 @@
+package org.openbase.bco.bcozy.util;
+
+import eu.hansolo.tilesfx.chart.ChartData;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.Interval;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.SymbolUnit;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the path from a queried consumption series to the displayed chart data, on synthetic series.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChartDataBenchmark {
+
+    /**
+     * Number of entries of the series.
+     */
+    @Param({"240", "10000"})
+    public int seriesSize;
+
+    @Param({"HOURLY", "DAILY", "MONTHLY"})
+    public Interval interval;
+
+    private BucketPlan bucketPlan;
+    private ConsumptionSeries series;
+    private ConsumptionSeries shiftedSeries;
+    private List<ChartData> displayed;
+    private boolean shifted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bucketPlan = BucketPlan.forInterval(interval);
+        series = createSeries(0);
+        shiftedSeries = createSeries(1);
+        displayed = new ArrayList<>();
+        ChartDataSynchronizer.synchronizeChartData(displayed, series);
+    }
+
+    private ConsumptionSeries createSeries(final int firstBucket) {
+        final Random random = new Random(42 + firstBucket);
+        final long bucketMilliseconds = TimeUnit.SECONDS.toMillis(bucketPlan.getBucketDurationSeconds());
+        final long[] timestamps = new long[seriesSize];
+        final double[] values = new double[seriesSize];
+        for (int i = 0; i < seriesSize; i++) {
+            timestamps[i] = (firstBucket + i) * bucketMilliseconds;
+            values[i] = 500 + 400 * Math.sin(i / 24.0) + random.nextGaussian() * 50;
+        }
+        return new ConsumptionSeries(bucketPlan, timestamps, values, seriesSize);
+    }
+
+    /**
+     * Formatting of the time labels of all entries.
+     */
+    @Benchmark
+    public int createTimeLabels() {
+        int length = 0;
+        for (int i = 0; i < seriesSize; i++) {
+            length += TimeLabelFormatter.createTimeLabel(new Timestamp(series.getTimestamp(i)), bucketPlan).length();
+        }
+        return length;
+    }
+
+    /**
+     * Conversion of all entries into another unit.
+     */
+    @Benchmark
+    public double convertSymbolUnit() {
+        final ConsumptionSeries converted = EnergySymbolConverter.convert(SymbolUnit.MONEY, series);
+        double sum = 0;
+        for (int i = 0; i < converted.size(); i++) {
+            sum += converted.getValue(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Update of the displayed chart data with a series shifted by one bucket, as done on each refresh.
+     */
+    @Benchmark
+    public List<ChartData> synchronizeChartData() {
+        shifted = !shifted;
+        ChartDataSynchronizer.synchronizeChartData(displayed, shifted ? shiftedSeries : series);
+        return displayed;
+    }
+}
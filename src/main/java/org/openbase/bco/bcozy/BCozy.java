@@ -30,6 +30,7 @@ import javafx.stage.Stage;
 import org.openbase.bco.bcozy.controller.*;
 import org.openbase.bco.bcozy.controller.powerterminal.PowerTerminalSidebarPaneController;
 import org.openbase.bco.bcozy.jp.JPFullscreenMode;
+import org.openbase.bco.bcozy.model.powerterminal.PowerTerminalDBService;
 import org.openbase.bco.bcozy.util.ThemeManager;
 import org.openbase.bco.bcozy.view.BackgroundPane;
 import org.openbase.bco.bcozy.view.ForegroundPane;
@@ -276,6 +277,11 @@ public class BCozy extends Application {
             }
         }
 
+        if (locationMapPaneController != null) {
+            locationMapPaneController.shutdown();
+        }
+        PowerTerminalDBService.shutdown();
+
         try {
             Registries.getUnitRegistry().removeConnectionStateObserver(connectionObserver);
         } catch (NotAvailableException ex) {
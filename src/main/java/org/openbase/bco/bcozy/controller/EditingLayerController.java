@@ -22,6 +22,7 @@ import javafx.application.Platform;
 import javafx.geometry.Point2D;
 import org.openbase.bco.bcozy.view.Constants;
 import org.openbase.bco.bcozy.view.SimpleUnitSymbolsPane;
+import org.openbase.bco.bcozy.view.location.GeometryResolver;
 import org.openbase.bco.bcozy.view.location.LocationMapPane;
 import org.openbase.bco.dal.lib.layer.unit.UnitRemote;
 import org.openbase.bco.dal.remote.layer.unit.Units;
@@ -31,20 +32,15 @@ import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.visual.javafx.JFXConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.openbase.rct.Transform;
 import org.openbase.type.domotic.state.EnablingStateType;
 import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
 import org.openbase.type.domotic.unit.UnitTemplateType;
 import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
-import org.openbase.type.geometry.PoseType;
 
 import javax.vecmath.Point3d;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 /**
  * Controller for the editing layer of the room plan that includes buttons for all supported unit types.
@@ -61,6 +57,11 @@ public class EditingLayerController {
     private final LocationMapPane locationMapPane;
     private final SimpleUnitSymbolsPane unitSymbolsPane;
 
+    /**
+     * Counts the unit updates, only the results of the latest one are shown.
+     */
+    private long unitUpdateCount;
+
     /**
      * Constructor
      *
@@ -89,17 +90,6 @@ public class EditingLayerController {
             Registries.getUnitRegistry().addDataObserver((source, data) -> Platform.runLater(() -> {
                 try {
                     fetchLocationUnitRemotes();
-                    unitSymbolsPane.updateUnitsPane();
-                } catch (CouldNotPerformException ex) {
-                    ExceptionPrinter.printHistory(ex, LOGGER);
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                }
-            }));
-            Registries.getUnitRegistry().addDataObserver((source, data) -> Platform.runLater(() -> {
-                try {
-                    fetchLocationUnitRemotes();
-                    unitSymbolsPane.updateUnitsPane();
                 } catch (CouldNotPerformException ex) {
                     ExceptionPrinter.printHistory(ex, LOGGER);
                 } catch (InterruptedException ex) {
@@ -113,16 +103,18 @@ public class EditingLayerController {
     }
 
     /**
-     * Fetches all units for every location and saves them in the UnitSymbolsPane.
+     * Fetches all units for every location and resolves their positions in one batch.
+     * As soon as all positions are available, the UnitSymbolsPane is refilled and updated at once.
+     * Has to be called on the application thread.
      *
      * @throws CouldNotPerformException
      * @throws InterruptedException
      */
     public void fetchLocationUnitRemotes() throws CouldNotPerformException, InterruptedException {
+        final long unitUpdate = ++unitUpdateCount;
 
-        unitSymbolsPane.clearUnits();
-
-        final double halfButtonSize = (JFXConstants.ICON_SIZE_SMALL + (2 * Constants.INSETS)) / 2;
+        final Map<String, UnitConfig> unitConfigMap = new LinkedHashMap<>();
+        final Map<String, UnitRemote<?>> unitRemoteMap = new LinkedHashMap<>();
 
         final List<UnitConfig> locationUnitConfigList = Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.LOCATION);
 
@@ -147,27 +139,46 @@ public class EditingLayerController {
                     if (!config.getPlacementConfig().hasPose()) {
                         continue;
                     }
+                    unitConfigMap.put(config.getId(), config);
+                    unitRemoteMap.put(config.getId(), u);
+                }
+            }
+        }
 
-                    PoseType.Pose pose = config.getPlacementConfig().getPose();
-                    try {
-                        final Future<Transform> transform = Registries.getUnitRegistry().getUnitTransformation(config,
-                            Registries.getUnitRegistry().getRootLocationConfig());
-
-                        // transformation already in unit's coordinate space, therefore the zeros
-                        final Point3d unitVertex = new Point3d(0.0, 0.0, 1.0);
-                        transform.get(Constants.TRANSFORMATION_TIMEOUT / 10, TimeUnit.MILLISECONDS).
-                            getTransform().transform(unitVertex);
-                        Point2D coord = new Point2D(unitVertex.x * Constants.METER_TO_PIXEL, unitVertex.y * Constants.METER_TO_PIXEL);
-                        // correction of position necessary because:
-                        // "pose" is left bottom of unit bounding box (y correction) and the unit button's center 
-                        // should be at the unit position (x correction) Attention: X and Y swapped in UnitButton 
-                        unitSymbolsPane.addUnit(u, coord.add(-0.5 * halfButtonSize, -halfButtonSize), config.getId());
-                    } catch (CouldNotPerformException | ExecutionException | TimeoutException ex) {
-                        // No exception throwing, because loop must continue it's work
-                    }
+        // transformation already in unit's coordinate space, therefore the zeros
+        GeometryResolver.resolvePositions(unitConfigMap, unitConfig -> new Point3d(0.0, 0.0, 1.0), Constants.TRANSFORMATION_TIMEOUT / 10).thenAccept(unitPositionMap -> Platform.runLater(() -> {
+            // skip outdated results, a newer update is already resolving
+            if (unitUpdate == unitUpdateCount) {
+                showUnits(unitRemoteMap, unitPositionMap);
+            }
+        }));
+    }
+
+    private void showUnits(final Map<String, UnitRemote<?>> unitRemoteMap, final Map<String, Point2D> unitPositionMap) {
+
+        unitSymbolsPane.clearUnits();
+
+        final double halfButtonSize = (JFXConstants.ICON_SIZE_SMALL + (2 * Constants.INSETS)) / 2;
+
+        try {
+            for (final Map.Entry<String, UnitRemote<?>> unitEntry : unitRemoteMap.entrySet()) {
+                final Point2D unitPosition = unitPositionMap.get(unitEntry.getKey());
+                if (unitPosition == null) {
+                    continue;
+                }
+                try {
+                    // correction of position necessary because:
+                    // "pose" is left bottom of unit bounding box (y correction) and the unit button's center 
+                    // should be at the unit position (x correction) Attention: X and Y swapped in UnitButton 
+                    unitSymbolsPane.addUnit(unitEntry.getValue(), unitPosition.add(-0.5 * halfButtonSize, -halfButtonSize), unitEntry.getKey());
+                } catch (CouldNotPerformException ex) {
+                    // No exception throwing, because loop must continue it's work
                 }
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
+        unitSymbolsPane.updateUnitsPane();
     }
 
     /**
@@ -178,7 +189,6 @@ public class EditingLayerController {
         Platform.runLater((() -> {
             try {
                 fetchLocationUnitRemotes();
-                unitSymbolsPane.updateUnitsPane();
             } catch (CouldNotPerformException ex) {
                 ExceptionPrinter.printHistory(ex, LOGGER);
             } catch (InterruptedException ex) {
@@ -21,6 +21,7 @@ package org.openbase.bco.bcozy.controller;
 
 import javafx.application.Platform;
 import org.openbase.bco.bcozy.view.location.LocationMapPane;
+import org.openbase.bco.bcozy.view.location.TransformationCache;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
@@ -29,8 +30,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
 import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
+import org.openbase.type.spatial.PlacementConfigType.PlacementConfig;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 import org.openbase.bco.registry.remote.Registries;
 
@@ -47,6 +54,17 @@ public class LocationMapPaneController {
 
     private final LocationMapPane locationMapPane;
 
+    /**
+     * Configs of the locations and connections currently shown on the map, by unit id.
+     */
+    private final Map<String, UnitConfig> locationConfigMap;
+    private final Map<String, UnitConfig> connectionConfigMap;
+
+    /**
+     * Placements of all locations including the ones without shape, by unit id.
+     */
+    private final Map<String, PlacementConfig> locationPlacementMap;
+
     /**
      * The constructor.
      *
@@ -54,6 +72,9 @@ public class LocationMapPaneController {
      */
     public LocationMapPaneController(final LocationMapPane locationMapPane) {
         this.locationMapPane = locationMapPane;
+        this.locationConfigMap = new HashMap<>();
+        this.connectionConfigMap = new HashMap<>();
+        this.locationPlacementMap = new HashMap<>();
     }
 
     /**
@@ -64,9 +85,10 @@ public class LocationMapPaneController {
             Registries.waitForData();
             Registries.getUnitRegistry().addDataObserver((source, data) -> Platform.runLater(() -> {
                 try {
-                    fetchLocations();
-                    fetchConnections();
-                    locationMapPane.updateLocationPane();
+                    // the registry changes for many unrelated reasons, so only changed polygons are touched.
+                    syncConnections(syncLocations());
+                    // transformations of units removed from the registry are never requested again.
+                    TransformationCache.retainUnits(getUnitIds());
                 } catch (CouldNotPerformException | InterruptedException ex) {
                     ExceptionPrinter.printHistory(ex, LOGGER);
                 }
@@ -78,46 +100,197 @@ public class LocationMapPaneController {
         }
     }
 
-    private void fetchLocations() throws CouldNotPerformException, InterruptedException {
-        final List<UnitConfig> locationUnitConfigList = Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.LOCATION);
+    /**
+     * Diffs the locations of the registry against the shown ones by id and config.
+     * New locations are added, removed ones are shut down and changed ones are updated in place.
+     * Only a changed location type requires to replace the polygon.
+     * Locations placed within a moved location are updated as well, since their shape is resolved relative to it.
+     *
+     * @return the ids of all locations whose placement changed.
+     */
+    private Set<String> syncLocations() throws CouldNotPerformException, InterruptedException {
+        final Map<String, UnitConfig> currentConfigMap = getShapedUnitConfigs(UnitType.LOCATION);
+        final Map<String, UnitConfig> allLocationConfigMap = getUnitConfigs(UnitType.LOCATION);
+        final Set<String> movedLocationIds = syncLocationPlacements(allLocationConfigMap);
 
-        locationMapPane.clearLocations();
+        for (final Iterator<String> iterator = locationConfigMap.keySet().iterator(); iterator.hasNext(); ) {
+            final String locationId = iterator.next();
+            if (!currentConfigMap.containsKey(locationId)) {
+                locationMapPane.removeLocation(locationId);
+                iterator.remove();
+            }
+        }
 
-        for (final UnitConfig locationUnitConfig : locationUnitConfigList) {
+        for (final UnitConfig locationUnitConfig : currentConfigMap.values()) {
+            final UnitConfig previousConfig = locationConfigMap.get(locationUnitConfig.getId());
+            if (locationUnitConfig.equals(previousConfig)
+                    && !isWithinLocations(locationUnitConfig.getPlacementConfig().getLocationId(), movedLocationIds, allLocationConfigMap)) {
+                continue;
+            }
             try {
-                //skip locations without a shape    
-                if (locationUnitConfig.getPlacementConfig().getShape().getFloorCount() == 0) {
-                    continue;
+                if (previousConfig == null) {
+                    locationMapPane.addLocation(locationUnitConfig);
+                } else if (previousConfig.getLocationConfig().getLocationType() != locationUnitConfig.getLocationConfig().getLocationType()) {
+                    locationMapPane.removeLocation(locationUnitConfig.getId());
+                    locationMapPane.addLocation(locationUnitConfig);
+                } else {
+                    locationMapPane.updateLocation(locationUnitConfig);
                 }
-                locationMapPane.addLocation(locationUnitConfig);
+                locationConfigMap.put(locationUnitConfig.getId(), locationUnitConfig);
             } catch (CouldNotPerformException ex) {
+                // dropped completely, so the next registry update adds it again.
+                locationMapPane.removeLocation(locationUnitConfig.getId());
+                locationConfigMap.remove(locationUnitConfig.getId());
                 ExceptionPrinter.printHistory("Error while fetching transformation for location \"" + LabelProcessor.getBestMatch(locationUnitConfig.getLabel(),"?") + "\", locationID: " + locationUnitConfig.getId(),
                         ex, LOGGER, LogLevel.ERROR);
             }
-          
         }
+        return movedLocationIds;
     }
 
-    private void fetchConnections() throws CouldNotPerformException, InterruptedException {
-        final List<UnitConfig> connectionUnitConfigList = Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.CONNECTION);
+    /**
+     * Diffs the connections of the registry against the shown ones by id and config.
+     * Only a changed connection type requires to replace the polygon.
+     * Connections placed within or attached to a tile within a moved location are updated as well.
+     *
+     * @param movedLocationIds the ids of all locations whose placement changed.
+     */
+    private void syncConnections(final Set<String> movedLocationIds) throws CouldNotPerformException, InterruptedException {
+        final Map<String, UnitConfig> currentConfigMap = getShapedUnitConfigs(UnitType.CONNECTION);
+        final Map<String, UnitConfig> allLocationConfigMap = movedLocationIds.isEmpty() ? new HashMap<>() : getUnitConfigs(UnitType.LOCATION);
 
-        locationMapPane.clearConnections();
+        for (final Iterator<String> iterator = connectionConfigMap.keySet().iterator(); iterator.hasNext(); ) {
+            final String connectionId = iterator.next();
+            if (!currentConfigMap.containsKey(connectionId)) {
+                locationMapPane.removeConnection(connectionId);
+                iterator.remove();
+            }
+        }
 
-        //check which connection has a shape
-        for (final UnitConfig connectionUnitConfig : connectionUnitConfigList) {
+        for (final UnitConfig connectionUnitConfig : currentConfigMap.values()) {
+            final UnitConfig previousConfig = connectionConfigMap.get(connectionUnitConfig.getId());
+            if (connectionUnitConfig.equals(previousConfig) && !isAttachedToLocations(connectionUnitConfig, movedLocationIds, allLocationConfigMap)) {
+                continue;
+            }
             try {
-                //skip connections without a shape
-                if (connectionUnitConfig.getPlacementConfig().getShape().getFloorCount() == 0) {
-                    continue;
+                if (previousConfig == null) {
+                    locationMapPane.addConnection(connectionUnitConfig);
+                } else if (previousConfig.getConnectionConfig().getConnectionType() != connectionUnitConfig.getConnectionConfig().getConnectionType()) {
+                    locationMapPane.removeConnection(connectionUnitConfig.getId());
+                    locationMapPane.addConnection(connectionUnitConfig);
+                } else {
+                    locationMapPane.updateConnection(connectionUnitConfig);
                 }
-                locationMapPane.addConnection(connectionUnitConfig);
+                connectionConfigMap.put(connectionUnitConfig.getId(), connectionUnitConfig);
             } catch (CouldNotPerformException ex) {
+                // dropped completely, so the next registry update adds it again.
+                locationMapPane.removeConnection(connectionUnitConfig.getId());
+                connectionConfigMap.remove(connectionUnitConfig.getId());
                 ExceptionPrinter.printHistory("Error while fetching transformation for connection \"" + LabelProcessor.getBestMatch(connectionUnitConfig.getLabel(),"?") + "\", connectionID: " + connectionUnitConfig.getId(),
                         ex, LOGGER, LogLevel.ERROR);
             }
         }
     }
 
+    /**
+     * Remembers the placements of all locations and returns the ids of the ones whose placement changed since the
+     * last call. New locations are not reported as moved.
+     */
+    private Set<String> syncLocationPlacements(final Map<String, UnitConfig> allLocationConfigMap) {
+        final Set<String> movedLocationIds = new HashSet<>();
+        for (final UnitConfig locationUnitConfig : allLocationConfigMap.values()) {
+            final PlacementConfig previousPlacement = locationPlacementMap.get(locationUnitConfig.getId());
+            if (previousPlacement != null && !previousPlacement.equals(locationUnitConfig.getPlacementConfig())) {
+                movedLocationIds.add(locationUnitConfig.getId());
+            }
+        }
+        locationPlacementMap.clear();
+        allLocationConfigMap.forEach((locationId, locationUnitConfig) -> locationPlacementMap.put(locationId, locationUnitConfig.getPlacementConfig()));
+        return movedLocationIds;
+    }
+
+    /**
+     * Checks if the connection is placed within one of the given locations or connects a tile within one of them.
+     */
+    private static boolean isAttachedToLocations(final UnitConfig connectionUnitConfig, final Set<String> locationIds, final Map<String, UnitConfig> allLocationConfigMap) {
+        if (locationIds.isEmpty()) {
+            return false;
+        }
+        if (isWithinLocations(connectionUnitConfig.getPlacementConfig().getLocationId(), locationIds, allLocationConfigMap)) {
+            return true;
+        }
+        for (final String tileId : connectionUnitConfig.getConnectionConfig().getTileIdList()) {
+            if (isWithinLocations(tileId, locationIds, allLocationConfigMap)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the location or one of its parent locations is one of the given locations.
+     *
+     * @param locationId the id of the location to start at.
+     * @param locationIds the ids of the locations to look for.
+     * @param allLocationConfigMap the configs of all locations by id, used to follow the parent locations.
+     */
+    private static boolean isWithinLocations(final String locationId, final Set<String> locationIds, final Map<String, UnitConfig> allLocationConfigMap) {
+        String currentLocationId = locationId;
+        // bounded by the number of locations so a cyclic placement can not stall the update.
+        for (int depth = 0; depth <= allLocationConfigMap.size() && !currentLocationId.isEmpty(); depth++) {
+            if (locationIds.contains(currentLocationId)) {
+                return true;
+            }
+            final UnitConfig currentConfig = allLocationConfigMap.get(currentLocationId);
+            if (currentConfig == null || currentConfig.getLocationConfig().getRoot()) {
+                return false;
+            }
+            currentLocationId = currentConfig.getPlacementConfig().getLocationId();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the ids of all units of the registry.
+     */
+    private static Set<String> getUnitIds() throws CouldNotPerformException {
+        final Set<String> unitIds = new HashSet<>();
+        for (final UnitConfig unitConfig : Registries.getUnitRegistry().getUnitConfigs()) {
+            unitIds.add(unitConfig.getId());
+        }
+        return unitIds;
+    }
+
+    /**
+     * Returns the configs of all units of the given type by id.
+    private static Map<String, UnitConfig> getUnitConfigs(final UnitType unitType) throws CouldNotPerformException {
+        final Map<String, UnitConfig> unitConfigMap = new HashMap<>();
+        for (final UnitConfig unitConfig : Registries.getUnitRegistry().getUnitConfigsByUnitType(unitType)) {
+            unitConfigMap.put(unitConfig.getId(), unitConfig);
+        }
+        return unitConfigMap;
+    }
+
+    /**
+     * Returns the configs of all units of the given type having a shape, units without a shape are not shown.
+     */
+    private static Map<String, UnitConfig> getShapedUnitConfigs(final UnitType unitType) throws CouldNotPerformException {
+        final Map<String, UnitConfig> unitConfigMap = new LinkedHashMap<>();
+        for (final UnitConfig unitConfig : Registries.getUnitRegistry().getUnitConfigsByUnitType(unitType)) {
+            if (unitConfig.getPlacementConfig().getShape().getFloorCount() != 0) {
+                unitConfigMap.put(unitConfig.getId(), unitConfig);
+            }
+        }
+        return unitConfigMap;
+    }
+
+    /**
+     * Shuts down the location pane.
+     */
+    public void shutdown() {
+        locationMapPane.shutdown();
+    }
+
     /**
      * Method to trigger a complete update of the locationPane. Will furthermore
      * apply a zoomFit after everything is finished.
@@ -125,8 +298,7 @@ public class LocationMapPaneController {
     public void updateAndZoomFit() {
         Platform.runLater(() -> {
             try {
-                fetchLocations();
-                fetchConnections();
+                syncConnections(syncLocations());
                 locationMapPane.updateLocationPane();
                 locationMapPane.zoomFit();
             } catch (CouldNotPerformException | InterruptedException ex) {
@@ -19,17 +19,15 @@
 package org.openbase.bco.bcozy.controller;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import javafx.application.Platform;
 import javafx.geometry.Point2D;
 import javax.vecmath.Point3d;
 import org.openbase.bco.bcozy.view.Constants;
 import org.openbase.bco.bcozy.view.SimpleUnitSymbolsPane;
+import org.openbase.bco.bcozy.view.location.GeometryResolver;
 import org.openbase.bco.bcozy.view.location.LocationMapPane;
 import org.openbase.bco.bcozy.view.pane.unit.TitledUnitPaneContainer;
 import org.openbase.bco.dal.lib.layer.unit.UnitRemote;
@@ -42,12 +40,10 @@ import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.visual.javafx.JFXConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.openbase.rct.Transform;
 import org.openbase.type.domotic.state.EnablingStateType;
 import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
 import org.openbase.type.domotic.unit.UnitTemplateType;
 import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
-import org.openbase.type.geometry.PoseType;
 
 /**
  * Controller for the pane for the maintenance layer of the room plan that includes buttons for the following units:
@@ -65,6 +61,11 @@ public class MaintenanceLayerController {
     private final SimpleUnitSymbolsPane simpleUnitSymbolsPane;
     private final Map<String, TitledUnitPaneContainer> titledPaneMap;
 
+    /**
+     * Counts the unit updates, only the results of the latest one are shown.
+     */
+    private long unitUpdateCount;
+
     /**
      * Constructor
      *
@@ -107,7 +108,6 @@ public class MaintenanceLayerController {
         Platform.runLater((() -> {
             try {
                 fetchLocationUnitRemotes();
-                simpleUnitSymbolsPane.updateUnitsPane();
             } catch (CouldNotPerformException ex) {
                 ExceptionPrinter.printHistory("Could not update all units!", ex, LOGGER);
             } catch (InterruptedException ex) {
@@ -117,15 +117,18 @@ public class MaintenanceLayerController {
     }
 
     /**
-     * Fetches all units for every location and saves them in the SimpleUnitSymbolsPane.
+     * Fetches all units for every location and resolves their positions in one batch.
+     * As soon as all positions are available, the SimpleUnitSymbolsPane is refilled and updated at once.
+     * Has to be called on the application thread.
      *
      * @throws CouldNotPerformException
      * @throws InterruptedException
      */
     public void fetchLocationUnitRemotes() throws CouldNotPerformException, InterruptedException {
-        
-        simpleUnitSymbolsPane.clearUnits();
-        final double halfButtonSize = (JFXConstants.ICON_SIZE_SMALL + (2 * Constants.INSETS)) / 2;
+        final long unitUpdate = ++unitUpdateCount;
+
+        final Map<String, UnitConfig> unitConfigMap = new LinkedHashMap<>();
+        final Map<String, Map<String, UnitRemote<?>>> locationUnitRemoteMap = new LinkedHashMap<>();
 
         final List<UnitConfig> locationUnitConfigList = Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.LOCATION);
 
@@ -136,6 +139,7 @@ public class MaintenanceLayerController {
                 continue;
             }
 
+            final Map<String, UnitRemote<?>> unitRemoteMap = new LinkedHashMap<>();
             for (final Map.Entry<UnitTemplateType.UnitTemplate.UnitType, List<UnitRemote>> nextEntry : Units.getUnit(locationConfig.getId(), false, Units.LOCATION).getUnitMap().entrySet()) {
                 if (nextEntry.getValue().isEmpty()) {
                     continue;
@@ -152,31 +156,54 @@ public class MaintenanceLayerController {
                         if (!config.getPlacementConfig().hasPose()) {
                             continue;
                         }
+                        unitConfigMap.put(config.getId(), config);
+                        unitRemoteMap.put(config.getId(), unit);
+                    }
+                }
+            }
+            locationUnitRemoteMap.put(locationConfig.getId(), unitRemoteMap);
+        }
 
-                        PoseType.Pose pose = config.getPlacementConfig().getPose();
-                        try {
-                            final Future<Transform> transform = Registries.getUnitRegistry().getUnitTransformation(config,
-                                Registries.getUnitRegistry().getRootLocationConfig());
-                            // transformation already in unit's coordinate space, therefore the zeros
-                            final Point3d unitVertex = new Point3d(0.0, 0.0, 1.0);
-                            transform.get(Constants.TRANSFORMATION_TIMEOUT / 10, TimeUnit.MILLISECONDS).
-                                getTransform().transform(unitVertex);
-                            Point2D coord = new Point2D(unitVertex.x * Constants.METER_TO_PIXEL, unitVertex.y * Constants.METER_TO_PIXEL);
-                            // correction of position necessary because:
-                            // "pose" is left bottom of unit bounding box (y correction) and the unit button's center
-                            // should be at the unit position (x correction) Attention: X and Y swapped in UnitButton 
-                            simpleUnitSymbolsPane.addUnit(unit, coord.add(- 0.5 * halfButtonSize, - halfButtonSize), locationConfig.getId());
-                        } catch (CouldNotPerformException | ExecutionException | TimeoutException ex) {
-                            // No exception throwing, because loop must continue it's work
-                            if(JPService.verboseMode()) {
-                                ExceptionPrinter.printHistory("Could not fetch " + unit + "!", ex, LOGGER, LogLevel.WARN);
-                            } else {
-                                ExceptionPrinter.printHistory("Could not fetch " + unit + "!", ex, LOGGER, LogLevel.DEBUG);
-                            }
+        // transformation already in unit's coordinate space, therefore the zeros
+        GeometryResolver.resolvePositions(unitConfigMap, unitConfig -> new Point3d(0.0, 0.0, 1.0), Constants.TRANSFORMATION_TIMEOUT / 10).thenAccept(unitPositionMap -> Platform.runLater(() -> {
+            // skip outdated results, a newer update is already resolving
+            if (unitUpdate == unitUpdateCount) {
+                showUnits(locationUnitRemoteMap, unitPositionMap);
+            }
+        }));
+    }
+
+    private void showUnits(final Map<String, Map<String, UnitRemote<?>>> locationUnitRemoteMap, final Map<String, Point2D> unitPositionMap) {
+
+        simpleUnitSymbolsPane.clearUnits();
+
+        final double halfButtonSize = (JFXConstants.ICON_SIZE_SMALL + (2 * Constants.INSETS)) / 2;
+
+        try {
+            for (final Map.Entry<String, Map<String, UnitRemote<?>>> locationEntry : locationUnitRemoteMap.entrySet()) {
+                for (final Map.Entry<String, UnitRemote<?>> unitEntry : locationEntry.getValue().entrySet()) {
+                    final Point2D unitPosition = unitPositionMap.get(unitEntry.getKey());
+                    if (unitPosition == null) {
+                        continue;
+                    }
+                    try {
+                        // correction of position necessary because:
+                        // "pose" is left bottom of unit bounding box (y correction) and the unit button's center
+                        // should be at the unit position (x correction) Attention: X and Y swapped in UnitButton 
+                        simpleUnitSymbolsPane.addUnit(unitEntry.getValue(), unitPosition.add(- 0.5 * halfButtonSize, - halfButtonSize), locationEntry.getKey());
+                    } catch (CouldNotPerformException ex) {
+                        // No exception throwing, because loop must continue it's work
+                        if(JPService.verboseMode()) {
+                            ExceptionPrinter.printHistory("Could not fetch " + unitEntry.getValue() + "!", ex, LOGGER, LogLevel.WARN);
+                        } else {
+                            ExceptionPrinter.printHistory("Could not fetch " + unitEntry.getValue() + "!", ex, LOGGER, LogLevel.DEBUG);
                         }
                     }
                 }
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
+        simpleUnitSymbolsPane.updateUnitsPane();
     }
 }
@@ -18,17 +18,16 @@
  */
 package org.openbase.bco.bcozy.controller;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CompletableFuture;
 import javafx.application.Platform;
 import javafx.geometry.Point2D;
 import javax.vecmath.Point3d;
 import org.openbase.bco.bcozy.view.Constants;
 import org.openbase.bco.bcozy.view.UnitSymbolsPane;
+import org.openbase.bco.bcozy.view.location.GeometryResolver;
 import org.openbase.bco.bcozy.view.location.LocationMapPane;
 import org.openbase.bco.dal.lib.layer.unit.UnitRemote;
 import org.openbase.bco.dal.remote.layer.unit.Units;
@@ -38,14 +37,12 @@ import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.visual.javafx.JFXConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.openbase.rct.Transform;
 import org.openbase.type.domotic.state.EnablingStateType;
 import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
 import org.openbase.type.domotic.unit.UnitTemplateType;
 import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
 import org.openbase.type.domotic.unit.location.LocationConfigType;
 import org.openbase.type.geometry.AxisAlignedBoundingBox3DFloatType;
-import org.openbase.type.geometry.PoseType;
 
 /**
  * Controller for the top layer of the room plan that includes buttons for the light units.
@@ -62,6 +59,11 @@ public class UnitsPaneController {
     private final LocationMapPane locationMapPane;
     private final UnitSymbolsPane unitSymbolsPane;
 
+    /**
+     * Counts the unit updates, only the results of the latest one are shown.
+     */
+    private long unitUpdateCount;
+
     /**
      * Constructor
      *
@@ -90,17 +92,6 @@ public class UnitsPaneController {
             Registries.getUnitRegistry().addDataObserver((source, data) -> Platform.runLater(() -> {
                 try {
                     fetchLocationUnitRemotes();
-                    unitSymbolsPane.updateUnitsPane();
-                } catch (CouldNotPerformException ex) {
-                    ExceptionPrinter.printHistory(ex, LOGGER);
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                }
-            }));
-            Registries.getUnitRegistry().addDataObserver((source, data) -> Platform.runLater(() -> {
-                try {
-                    fetchLocationUnitRemotes();
-                    unitSymbolsPane.updateUnitsPane();
                 } catch (CouldNotPerformException ex) {
                     ExceptionPrinter.printHistory(ex, LOGGER);
                 } catch (InterruptedException ex) {
@@ -114,19 +105,20 @@ public class UnitsPaneController {
     }
 
     /**
-     * Fetches all location units, saves them in the UnitSymbolsPane and then
-     * fetches all units for every location and saves them also in the UnitSymbolsPane.
+     * Fetches all location units and all units of every location and resolves their positions in one batch.
+     * As soon as all positions are available, the UnitSymbolsPane is refilled and updated at once.
+     * Has to be called on the application thread.
      *
      * @throws CouldNotPerformException
      * @throws InterruptedException
      */
     public void fetchLocationUnitRemotes() throws CouldNotPerformException, InterruptedException {
+        final long unitUpdate = ++unitUpdateCount;
 
-        unitSymbolsPane.clearUnits();
-
-        unitSymbolsPane.clearUnits();
-
-        final double halfButtonSize = (JFXConstants.ICON_SIZE_SMALL + (2 * Constants.INSETS)) / 2;
+        final Map<String, UnitConfig> locationConfigMap = new LinkedHashMap<>();
+        final Map<String, UnitRemote<?>> locationRemoteMap = new LinkedHashMap<>();
+        final Map<String, UnitConfig> unitConfigMap = new LinkedHashMap<>();
+        final Map<String, Map<String, UnitRemote<?>>> locationUnitRemoteMap = new LinkedHashMap<>();
 
         final List<UnitConfig> locationUnitConfigList = Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.LOCATION);
 
@@ -141,20 +133,16 @@ public class UnitsPaneController {
                 continue;
             }
 
-            Point3d vertex = calculateCoordinates(locationConfig);
-
             try {
-                final Future<Transform> transform = Registries.getUnitRegistry().getUnitTransformation(locationConfig, Registries.getUnitRegistry().getRootLocationConfig());
-                transform.get(Constants.TRANSFORMATION_TIMEOUT / 10, TimeUnit.MILLISECONDS).getTransform().transform(vertex);
-                Point2D coord = new Point2D(vertex.x * Constants.METER_TO_PIXEL, vertex.y * Constants.METER_TO_PIXEL);
                 // Abstract Pane not working with a config object, only with a remote one!
-                UnitRemote<?> u = Units.getUnit(locationConfig.getId(), false);
-                unitSymbolsPane.addLocationUnit(u, coord.add(-halfButtonSize, -halfButtonSize));
-            } catch (CouldNotPerformException | ExecutionException | TimeoutException ex) {
+                locationRemoteMap.put(locationConfig.getId(), Units.getUnit(locationConfig.getId(), false));
+                locationConfigMap.put(locationConfig.getId(), locationConfig);
+            } catch (CouldNotPerformException ex) {
                 // No exception throwing, because loop must continue it's work
                 ExceptionPrinter.printHistory(ex, LOGGER);
             }
 
+            final Map<String, UnitRemote<?>> unitRemoteMap = new LinkedHashMap<>();
             for (final Map.Entry<UnitTemplateType.UnitTemplate.UnitType, List<UnitRemote>> nextEntry : Units.getUnit(locationConfig.getId(), false, Units.LOCATION).getUnitMap().entrySet()) {
                 if (nextEntry.getValue().isEmpty()) {
                     continue;
@@ -175,29 +163,66 @@ public class UnitsPaneController {
                     if (!config.getPlacementConfig().hasPose()) {
                         continue;
                     }
+                    unitConfigMap.put(config.getId(), config);
+                    unitRemoteMap.put(config.getId(), unitRemote);
+                }
+            }
+            locationUnitRemoteMap.put(locationConfig.getId(), unitRemoteMap);
+        }
 
-                    PoseType.Pose pose = config.getPlacementConfig().getPose();
+        final CompletableFuture<Map<String, Point2D>> locationPositions = GeometryResolver.resolvePositions(locationConfigMap, this::calculateCoordinates, Constants.TRANSFORMATION_TIMEOUT / 10);
+        // transformation already in unit's coordinate space, therefore the zeros
+        final CompletableFuture<Map<String, Point2D>> unitPositions = GeometryResolver.resolvePositions(unitConfigMap, unitConfig -> new Point3d(0.0, 0.0, 1.0), Constants.TRANSFORMATION_TIMEOUT / 10);
+
+        locationPositions.thenAcceptBoth(unitPositions, (locationPositionMap, unitPositionMap) -> Platform.runLater(() -> {
+            // skip outdated results, a newer update is already resolving
+            if (unitUpdate == unitUpdateCount) {
+                showUnits(locationRemoteMap, locationPositionMap, locationUnitRemoteMap, unitPositionMap);
+            }
+        }));
+    }
+
+    private void showUnits(final Map<String, UnitRemote<?>> locationRemoteMap,
+                           final Map<String, Point2D> locationPositionMap,
+                           final Map<String, Map<String, UnitRemote<?>>> locationUnitRemoteMap,
+                           final Map<String, Point2D> unitPositionMap) {
+
+        unitSymbolsPane.clearUnits();
+
+        final double halfButtonSize = (JFXConstants.ICON_SIZE_SMALL + (2 * Constants.INSETS)) / 2;
+
+        try {
+            for (final Map.Entry<String, Map<String, UnitRemote<?>>> locationEntry : locationUnitRemoteMap.entrySet()) {
+                final Point2D locationPosition = locationPositionMap.get(locationEntry.getKey());
+                if (locationPosition != null) {
+                    try {
+                        unitSymbolsPane.addLocationUnit(locationRemoteMap.get(locationEntry.getKey()), locationPosition.add(-halfButtonSize, -halfButtonSize));
+                    } catch (CouldNotPerformException ex) {
+                        // No exception throwing, because loop must continue it's work
+                        ExceptionPrinter.printHistory(ex, LOGGER);
+                    }
+                }
+
+                for (final Map.Entry<String, UnitRemote<?>> unitEntry : locationEntry.getValue().entrySet()) {
+                    final Point2D unitPosition = unitPositionMap.get(unitEntry.getKey());
+                    if (unitPosition == null) {
+                        continue;
+                    }
                     try {
-                        final Future<Transform> transform = Registries.getUnitRegistry().getUnitTransformation(config,
-                                Registries.getUnitRegistry().getRootLocationConfig());
-                        // transformation already in unit's coordinate space, therefore the zeros
-                        final Point3d unitVertex = new Point3d(0.0, 0.0, 1.0);
-                        transform.get(Constants.TRANSFORMATION_TIMEOUT / 10, TimeUnit.MILLISECONDS).
-                                getTransform().transform(unitVertex);
-                        Point2D coord = new Point2D(unitVertex.x * Constants.METER_TO_PIXEL, unitVertex.y * Constants.METER_TO_PIXEL);
                         // correction of position necessary because:
                         // "pose" is left bottom of unit bounding box (y correction) and the unit button's center 
                         // should be at the unit position (x correction) Attention: X and Y swapped in UnitButton 
-                        unitSymbolsPane.addUnit(unitRemote, coord.add(-0.5 * halfButtonSize, -halfButtonSize), locationConfig.getId());
-
-                    } catch (CouldNotPerformException | ExecutionException | TimeoutException ex) {
+                        unitSymbolsPane.addUnit(unitEntry.getValue(), unitPosition.add(-0.5 * halfButtonSize, -halfButtonSize), locationEntry.getKey());
+                    } catch (CouldNotPerformException ex) {
                         // No exception throwing, because loop must continue it's work
                         ExceptionPrinter.printHistory(ex, LOGGER);
-
                     }
                 }
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
+        unitSymbolsPane.updateUnitsPane();
     }
 
     private Point3d calculateCoordinates(final UnitConfig locationConfig) {
@@ -223,7 +248,6 @@ public class UnitsPaneController {
         Platform.runLater((() -> {
             try {
                 fetchLocationUnitRemotes();
-                unitSymbolsPane.updateUnitsPane();
             } catch (CouldNotPerformException ex) {
                 ExceptionPrinter.printHistory(ex, LOGGER);
             } catch (InterruptedException ex) {
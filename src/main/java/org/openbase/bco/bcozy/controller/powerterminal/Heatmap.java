@@ -1,366 +1,282 @@
 package org.openbase.bco.bcozy.controller.powerterminal;
 
-import com.google.protobuf.Message;
-import eu.hansolo.fx.charts.heatmap.HeatMap;
-import javafx.animation.Interpolator;
 import javafx.application.Platform;
-import javafx.geometry.Point2D;
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
-import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.DateRange;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapKernel;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapMode;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapPlayback;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapRenderer;
 import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapValues;
 import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapSpot;
+import org.openbase.bco.bcozy.model.powerterminal.ChartStateModel;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
+import org.openbase.bco.bcozy.model.powerterminal.LiveConsumptionStream;
+import org.openbase.bco.bcozy.model.powerterminal.PowerTerminalDBService;
 import org.openbase.bco.bcozy.view.BackgroundPane;
-import org.openbase.bco.bcozy.view.Constants;
-import org.openbase.bco.bcozy.view.location.DynamicUnitPolygon;
+import org.openbase.bco.bcozy.view.location.ScalarFieldOverlay;
 import org.openbase.bco.dal.lib.layer.unit.PowerConsumptionSensor;
-import org.openbase.bco.dal.lib.layer.unit.UnitRemote;
-import org.openbase.bco.dal.remote.layer.unit.CustomUnitPool;
-import org.openbase.bco.dal.remote.layer.unit.PowerConsumptionSensorRemote;
-import org.openbase.bco.registry.remote.Registries;
-import org.openbase.bco.registry.unit.lib.UnitRegistry;
-import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.NotAvailableException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
-import org.openbase.jul.exception.printer.LogLevel;
-import org.openbase.jul.schedule.GlobalCachedExecutorService;
-import org.openbase.jul.schedule.GlobalScheduledExecutorService;
-import org.openbase.rct.Transform;
-import org.openbase.type.domotic.unit.UnitConfigType;
-import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
-import org.openbase.type.domotic.unit.location.LocationConfigType;
-import org.openbase.type.geometry.AxisAlignedBoundingBox3DFloatType.AxisAlignedBoundingBox3DFloat;
-import org.openbase.type.geometry.TranslationType;
 import org.slf4j.LoggerFactory;
 
-import javax.vecmath.Point3d;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.LongConsumer;
+
+/**
+ * Heatmap of the power consumption shown over the location map.
+ * <p>
+ * The heat of each power consumption sensor is based on its current, see {@link ScalarFieldOverlay} for how the
+ * field is computed and updated. The heat is either spread by diffusion or summed from precomputed spot kernels,
+ * see {@link HeatmapMode}. Besides the live view the consumption of a past DateRange can be played back as a
+ * time-lapse, controlled by the playback properties of the {@link ChartStateModel} of the power terminal.
+ */
+public class Heatmap extends ScalarFieldOverlay {
 
-public class Heatmap extends Pane {
-
-    private CustomUnitPool<? extends Message, ? extends UnitRemote<? extends Message>> unitPool;
-
-    private ScheduledFuture<?> refreshSchedule;
-
-    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(HeatMap.class);
+    /**
+     * Default number of frames a playback is split into, e.g. one frame per five minutes of a day.
+     */
+    public static final int DEFAULT_PLAYBACK_FRAMES = 288;
 
-    public Heatmap(BackgroundPane backgroundPane) {
-        try {
-            unitPool = new CustomUnitPool<>();
+    /**
+     * Voltage used to convert recorded consumption into the current the spot values are based on.
+     */
+    private static final double MAINS_VOLTAGE = 230;
 
-            unitPool.init(unitConfig ->
-                    unitConfig.getUnitType() == UnitType.POWER_CONSUMPTION_SENSOR);
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(Heatmap.class);
 
-            unitPool.activate();
+    private HeatmapPlayback playback;
 
-            GlobalCachedExecutorService.submit(() -> {
-                try {
-                    UnitConfigType.UnitConfig rootLocationConfig = Registries.getUnitRegistry(true).getRootLocationConfig();
-                    HeatmapValues heatmapValues = initHeatmap(rootLocationConfig);
-                    backgroundPane.getheatmapActiveProperty().addListener((observable, oldValue, newValue) -> {
-                        if (newValue.booleanValue()) {
-                            try {
-                                if (refreshSchedule != null && !refreshSchedule.isDone()) {
-                                    return;
-                                }
+    /**
+     * Incremented whenever a playback is requested, stopped or completed, so results of superseded requests are ignored.
+     */
+    private long playbackGeneration;
 
-                                refreshSchedule = GlobalScheduledExecutorService.scheduleAtFixedRate(() -> Platform.runLater(() -> updateHeatmap(heatmapValues)),
-                                        0, 10, TimeUnit.SECONDS);
-                            } catch (NotAvailableException ex) {
-                                ExceptionPrinter.printHistory("Could not update Heatmap", ex, logger);
-                            }
-                        } else {
-                            if (refreshSchedule != null && !refreshSchedule.isDone()) {
-                                refreshSchedule.cancel(false);
-                            }
-                        }
-                    });
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                } catch (CouldNotPerformException ex) {
-                    ExceptionPrinter.printHistory("Could not instantiate CustomUnitPool", ex, logger);
-                }
-            });
+    private ChartStateModel chartStateModel;
 
-        } catch (CouldNotPerformException ex) {
-            ExceptionPrinter.printHistory("Could not instantiate CustomUnitPool", ex, logger);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            ExceptionPrinter.printHistory("Could not instantiate CustomUnitPool", ex, logger);
-        }
+    public Heatmap(BackgroundPane backgroundPane) {
+        this(backgroundPane, DEFAULT_FRAME_BUDGET_MILLISECONDS, HeatmapMode.SUPERPOSITION, DEFAULT_CELL_SIZE_METERS);
     }
 
-
     /**
-     * Initializes the heatmap
+     * Constructor
      *
-     * @param rootLocationConfig rootLocation to get the position and energy consumption of the consumer
-     *
-     * @return HeatmapValues
+     * @param backgroundPane          Pane activating and deactivating the heatmap
+     * @param frameBudgetMilliseconds Minimal time between two frames of the heatmap
+     * @param mode                    Method computing the heat of the spots
+     * @param cellSizeMeters          Edge length of a heatmap cell in meters, the heat is computed per cell and
+     *                                upscaled to the map by bilinear filtering
      */
-    private HeatmapValues initHeatmap(UnitConfigType.UnitConfig rootLocationConfig) {
-        List<List<Point2D>> rooms = null;
-        try {
-            rooms = loadTiles();
-        } catch (CouldNotPerformException ex) {
-            ExceptionPrinter.printHistory("Could not get location units", ex, logger);
-        }
-        double xTranslation = 0;
-        double yTranslation = 0;
-
-        AxisAlignedBoundingBox3DFloat rootBoundingBox = rootLocationConfig.getPlacementConfig().getShape().getBoundingBox();
-
-        double[][] u = new double[(int) Math.ceil(rootBoundingBox.getDepth() * Constants.METER_TO_PIXEL)][(int) Math.ceil(rootBoundingBox.getWidth() * Constants.METER_TO_PIXEL)];
-        List<HeatmapSpot> spots = new ArrayList<>();
+    public Heatmap(BackgroundPane backgroundPane, long frameBudgetMilliseconds, HeatmapMode mode, double cellSizeMeters) {
+        super(LiveConsumptionStream::getUnitPool,
+                unit -> toSpotValue(((PowerConsumptionSensor) unit).getPowerConsumptionState().getCurrent()),
+                frameBudgetMilliseconds, mode, cellSizeMeters, HeatmapRenderer.DEFAULT_GRADIENT);
+        activeProperty().bind(backgroundPane.getheatmapActiveProperty());
+    }
 
-        try {
-            List<Point2D> point2DS = DynamicUnitPolygon.loadShapeVertices(rootLocationConfig);
-            xTranslation = Math.abs(point2DS.get(0).getX());
-            yTranslation = Math.abs(point2DS.get(0).getY());
-            this.setTranslateY(-xTranslation);
-            this.setTranslateX(-yTranslation);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            ExceptionPrinter.printHistory("Could not get Vertices of the locations", e, logger);
-        } catch (CouldNotPerformException e) {
-            ExceptionPrinter.printHistory("Could not get Vertices of the locations", e, logger);
+    @Override
+    protected void onDeactivation() {
+        stopPlayback();
+        if (chartStateModel != null) {
+            chartStateModel.playbackActiveProperty().set(false);
         }
+    }
 
-        HeatmapValues heatmapValues = new HeatmapValues(rooms, spots, u, xTranslation, yTranslation);
-
-        int unitListPosition = -1;
-        for (UnitRemote<? extends Message> unit : unitPool.getInternalUnitList()) {
-            unitListPosition++;
-            try {
-                unit.waitForData(Constants.TRANSFORMATION_TIMEOUT, TimeUnit.MILLISECONDS);
-                Future<Transform> transform = Registries.getUnitRegistry().getUnitTransformation(unit.getConfig(), rootLocationConfig);
-                TranslationType.Translation unitPosition = unit.getUnitPosition();
-                Point3d unitPoint = new Point3d(unitPosition.getX(), unitPosition.getY(), unitPosition.getZ());
-
-                //Wait for transformation of unitPoint but use getUnitPositionGlobalPoint3D because I need the Global unit point
-                transform.get(Constants.TRANSFORMATION_TIMEOUT, TimeUnit.MILLISECONDS).getTransform().transform(unitPoint);
-
-                final Point3d globalUnitPosition = unit.getUnitPositionGlobalPoint3d().get(UnitRegistry.RCT_TIMEOUT, TimeUnit.MILLISECONDS);
-
-                int unitPointGlobalX = (int) Math.floor(globalUnitPosition.x * Constants.METER_TO_PIXEL + xTranslation);
-                int unitPointGlobalY = (int) Math.floor(globalUnitPosition.y * Constants.METER_TO_PIXEL + yTranslation);
-
-                if (heatmapValues.isInsideLocation(unitPointGlobalY, unitPointGlobalX))
-                    spots.add(new HeatmapSpot(unitPointGlobalY, unitPointGlobalX, 0, unitListPosition));
-            } catch (CouldNotPerformException | TimeoutException | ExecutionException | CancellationException ex) {
-                ExceptionPrinter.printHistory("Could not get location units", ex, logger, LogLevel.DEBUG);
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
-            }
-        }
-        heatmapValues.setSpots(spots);
-        return heatmapValues;
+    @Override
+    public void shutdown() {
+        stopPlayback();
+        super.shutdown();
     }
 
     /**
-     * Loads the tiles and their shape out of the UnitRegistry
+     * Connects the playback to the controls of the power terminal. A playback of the DateRange of the model is started
+     * whenever the playback gets activated or its DateRange or speed changes, and the model is reset after it finished.
+     * Has to be called on the FX thread.
      *
-     * @return List<List < Point2D>> List of tiles with the vertices of the tile
+     * @param chartStateModel Model of the power terminal
      */
-    private List<List<Point2D>> loadTiles() throws CouldNotPerformException {
-        List<UnitConfigType.UnitConfig> roomConfigs = null;
-        List<List<Point2D>> rooms = new ArrayList<>();
-
-        try {
-            roomConfigs = Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.LOCATION);
-        } catch (CouldNotPerformException ex) {
-            throw new CouldNotPerformException("Could not get location units", ex);
-        }
-        for (UnitConfigType.UnitConfig roomConfig : roomConfigs) {
-            LocationConfigType.LocationConfig.LocationType locationType = roomConfig.getLocationConfig().getLocationType();
-
-            // filter non tiles
-            if (!locationType.equals(LocationConfigType.LocationConfig.LocationType.TILE)) {
-                continue;
+    public void initPlayback(final ChartStateModel chartStateModel) {
+        this.chartStateModel = chartStateModel;
+        chartStateModel.playbackActiveProperty().addListener((source, old, playbackActive) -> {
+            if (playbackActive) {
+                requestPlayback();
+            } else {
+                stopPlayback();
             }
-
-            try {
-                rooms.add(DynamicUnitPolygon.loadShapeVertices(roomConfig));
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
-                ExceptionPrinter.printHistory("Could not get location units", ex, logger);
-            } catch (CouldNotPerformException ex) {
-                ExceptionPrinter.printHistory("Could not get location units", ex, logger);
+        });
+        chartStateModel.dateRangeProperty().addListener((source, old, newDateRange) -> {
+            if (chartStateModel.isPlaybackActive()) {
+                requestPlayback();
             }
-        }
-        return rooms;
+        });
+        chartStateModel.playbackSpeedProperty().addListener((source, old, newSpeed) -> {
+            if (chartStateModel.isPlaybackActive()) {
+                requestPlayback();
+            }
+        });
     }
 
+    private void requestPlayback() {
+        final ChartStateModel model = chartStateModel;
+        model.playbackTimeProperty().set(0);
+        startPlayback(model.getDateRange(), model.getPlaybackSpeed(),
+                time -> Platform.runLater(() -> model.playbackTimeProperty().set(time)),
+                () -> Platform.runLater(() -> model.playbackActiveProperty().set(false)));
+    }
+
+    private static double toSpotValue(final double current) {
+        return Math.min(1, Math.pow(current / 10, 0.5));
+    }
 
     /**
-     * Updates the energy consumption of the heatmap values
+     * Plays the consumption of the given DateRange as a time-lapse instead of the live consumption.
+     * The history of all units is loaded in one batch and the frames are computed in the background ahead of the
+     * playback. The live view is restored after the last frame, by {@link #stopPlayback()} or by deactivating the
+     * heatmap.
      *
-     * @param heatmapValues Class with relevant data (position, energy consumption) of the consumers
+     * @param dateRange     DateRange to play
+     * @param speed         Factor the playback is faster than real time
+     * @param frameListener Listener called with the time of each played frame, may be null
+     * @param completionListener Listener called if the playback finished or could not be started, but not if it was
+     *                           stopped or superseded, may be null
      */
-    private void updateHeatmap(final HeatmapValues heatmapValues) {
-        final int runnings = 3;
-        final List<HeatmapSpot> spots = heatmapValues.getSpots();
-        final double[][] u = heatmapValues.getGrid();
-
-        for (HeatmapSpot spot : spots) {
-            PowerConsumptionSensor powerConsumptionUnit = (PowerConsumptionSensor) unitPool.getInternalUnitList().get(spot.unitListPosition);
-            try {
-                double current = powerConsumptionUnit.getPowerConsumptionState().getCurrent() / 10;
-                current = Math.pow(current, 0.5);
-                current = Math.min(1, current);
-                u[spot.x][spot.y] = current;
-                spot.value = current;
-            } catch (NotAvailableException ex) {
-                ExceptionPrinter.printHistory("Could not get power consumption", ex, logger);
-            }
+    public void startPlayback(final DateRange dateRange, final double speed, final LongConsumer frameListener, final Runnable completionListener) {
+        final HeatmapValues values = getFieldValues();
+        if (values == null) {
+            logger.warn("Heatmap playback requested before the heatmap is initialized.");
+            notifyCompletion(completionListener);
+            return;
+        }
+        if (!activeProperty().get()) {
+            logger.warn("Heatmap playback requested while the heatmap is not shown.");
+            notifyCompletion(completionListener);
+            return;
+        }
+        if (speed <= 0) {
+            logger.warn("Heatmap playback speed has to be positive but is " + speed + ".");
+            notifyCompletion(completionListener);
+            return;
         }
-        heatmapValues.setSpots(spots);
-        heatmapValues.setGrid(u);
-        this.getChildren().clear();
-        this.getChildren().add(generateHeatmapWithLibrary(heatmapValues, runnings));
+        final long generation;
+        synchronized (this) {
+            stopPlayback();
+            generation = playbackGeneration;
+        }
+        final Map<HeatmapSpot, HeatmapKernel> spotKernels = getKernels();
+        PowerTerminalDBService.getAverageConsumptions(dateRange, getSpotsByUnitId().keySet(), DEFAULT_PLAYBACK_FRAMES * BucketPlan.PIXELS_PER_BUCKET)
+                .thenAccept(history -> {
+                    final HeatmapPlayback newPlayback = createPlayback(values, spotKernels, history, speed, frameListener, () -> {
+                        if (completePlayback(generation)) {
+                            notifyCompletion(completionListener);
+                        }
+                    });
+                    synchronized (this) {
+                        // skip the history if the playback was stopped or requested again in the meantime.
+                        if (generation != playbackGeneration) {
+                            return;
+                        }
+                        if (newPlayback != null) {
+                            playback = newPlayback;
+                            setLiveUpdatesSuspended(true);
+                            try {
+                                newPlayback.start(0);
+                                return;
+                            } catch (NotAvailableException ex) {
+                                ExceptionPrinter.printHistory("Could not start heatmap playback", ex, logger);
+                                playback = null;
+                                setLiveUpdatesSuspended(false);
+                            }
+                        }
+                    }
+                    notifyCompletion(completionListener);
+                });
     }
 
     /**
-     * Generates the heatmap with the hansolo library
-     *
-     * @param heatmapValues      Class with relevant data (position, energy consumption) of the consumers
-     * @param spreadingIteration parameter how often the heat spreads
-     *
-     * @return HeatMap from the library generated heatmap
+     * Stops a running or requested playback and shows the live consumption again.
      */
-    private HeatMap generateHeatmapWithLibrary(final HeatmapValues heatmapValues, final int spreadingIteration) {
-        calculateHeatMap(heatmapValues, spreadingIteration);
-
-        final HeatMap heatmap = new eu.hansolo.fx.charts.heatmap.HeatMap(heatmapValues.getGrid().length, heatmapValues.getGrid()[0].length);
-        heatmap.setOpacity(0.8);
-
-        for (HeatmapSpot spot : heatmapValues.getSpots()) {
-            heatmap.addSpot(spot.x, spot.y, createEventImage(heatmapValues, spot, spreadingIteration), Constants.RADIUS_SPOTS * spreadingIteration, Constants.RADIUS_SPOTS * spreadingIteration);
+    public synchronized void stopPlayback() {
+        playbackGeneration++;
+        if (playback == null) {
+            return;
         }
-        return heatmap;
+        playback.stop();
+        playback = null;
+        // the frame of the playback covers the whole grid, so everything is painted again.
+        setLiveUpdatesSuspended(false);
     }
 
     /**
-     * Image of a single spot needed for generating the heatmap
-     *
-     * @param heatmapValues      Class with relevant data (position, energy consumption) of the consumers
-     * @param spot               Position and value of a single heatmap spot
-     * @param spreadingIteration parameter how often the heat spreads
+     * Shows the live consumption again after the playback of the given generation played its last frame.
      *
-     * @return Image of a single spot
+     * @return false if the playback was stopped or superseded before
      */
-    public Image createEventImage(final HeatmapValues heatmapValues, final HeatmapSpot spot, final int spreadingIteration) {
-        final Double radius = (double) spreadingIteration * Constants.RADIUS_SPOTS;
-        final double[][] u = heatmapValues.getGrid();
-        final double[] stops_opacity = new double[spreadingIteration + 1];
-
-        for (int i = 0; i < spreadingIteration + 1; i++) {
-            final double[] opacity = new double[4];
-            if (i != spreadingIteration) {
-                if (spot.x + i < u.length)
-                    opacity[0] = u[spot.x + i][spot.y];
-                else
-                    opacity[0] = 1;
-
-                if (spot.y + i < u[spot.y].length)
-                    opacity[1] = u[spot.x][spot.y + i];
-                else
-                    opacity[1] = 1;
-
-                if (spot.x - i > 0)
-                    opacity[2] = u[spot.x - i][spot.y];
-                else
-                    opacity[2] = 1;
-
-                if (spot.y - i > 0)
-                    opacity[3] = u[spot.x][spot.y - i];
-                else
-                    opacity[3] = 1;
-            }
-
-            Arrays.sort(opacity);
-            stops_opacity[i] = opacity[0];
+    private synchronized boolean completePlayback(final long generation) {
+        if (generation != playbackGeneration || playback == null) {
+            return false;
         }
+        playbackGeneration++;
+        playback = null;
+        setLiveUpdatesSuspended(false);
+        return true;
+    }
 
-        int size = (int) (radius * 2);
-        WritableImage raster = new WritableImage(size, size);
-        PixelWriter pixelWriter = raster.getPixelWriter();
-        double maxDistFactor = 1 / radius;
-        Color pixelColor;
-
-        //Goes through the squared Image of the heatmap spot
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                final double deltaX = radius - x;
-                final double deltaY = radius - y;
-                final double distance = Math.sqrt((deltaX * deltaX) + (deltaY * deltaY));
-                final double fraction = maxDistFactor * distance;
-
-                //if the point in the image lies on a circle the correct color (depends on where the point lies in the circle - defined in stops) is set
-                for (int i = 0; i < stops_opacity.length - 1; i++) {
-                    if (Double.compare(fraction, i * 0.1) >= 0 && Double.compare(fraction, (i + 1) * 0.1) <= 0) {
-                        final int xGlobal = spot.x + (size / 2 - x);
-                        final int yGlobal = spot.y + (size / 2 - y);
-                        final int xRotated = size - x;
-                        final int yRotated = size - y;
-
-                        if (!heatmapValues.isInsideLocation(xGlobal, yGlobal, spot.x, spot.y)) {
-                            continue;
-                        }
-
-                        pixelColor = (Color) Interpolator.LINEAR.interpolate(Color.rgb(Constants.HEATMAP_COLOR, Constants.HEATMAP_COLOR, Constants.HEATMAP_COLOR, stops_opacity[i]),
-                                Color.rgb(Constants.HEATMAP_COLOR, Constants.HEATMAP_COLOR, Constants.HEATMAP_COLOR, stops_opacity[i + 1]), (fraction - i * 0.1) / 0.1);
-                        pixelWriter.setColor(xRotated, yRotated, pixelColor);
-                        break;
-                    }
-                }
-            }
+    private static void notifyCompletion(final Runnable completionListener) {
+        if (completionListener != null) {
+            completionListener.run();
         }
-        return raster;
     }
 
     /**
-     * Calculate the heatmap values given a formula
-     * <p>
-     * Formula:
-     * Du[i,j,t] = u[i+1,j,t] + u[i-1,j,t] + u[i,j+1,t] + u[i,j-1,t] - 4*u[i,j,t]/h^2
-     * u[i,j,t+1] = u[i,j,t] + dt * Du[i,j,t]
-     * dt = timestep
+     * Arranges the recorded consumption of all spots into frames.
      *
-     * @param heatmapValues      Class with relevant data (position, energy consumption) of the consumers
-     * @param spreadingIteration parameter how often the heat spreads
+     * @return The playback or null if no data was recorded
      */
-    private void calculateHeatMap(HeatmapValues heatmapValues, int spreadingIteration) {
-        double[][] grid = heatmapValues.getGrid();
-        List<HeatmapSpot> spots = heatmapValues.getSpots();
-        double grid_wide = 1;
-        double delta_t = 0.1;
-        double[][] grid_temp = new double[grid.length][grid[0].length];
-        for (int runs = 0; runs < spreadingIteration; runs++) {
-
-            // Calculate speed of grid_temp
-            for (int col = 1; col < grid.length - 1; col++) {
-                for (int row = 1; row < grid[col].length - 1; row++) {
-                    grid_temp[col][row] = (grid[col - 1][row] + grid[col + 1][row] + grid[col][row - 1] + grid[col][row + 1]
-                            - 4 * grid[col][row]) / (grid_wide * grid_wide);
-                }
+    private HeatmapPlayback createPlayback(final HeatmapValues values, final Map<HeatmapSpot, HeatmapKernel> spotKernels,
+                                          final Map<String, ConsumptionSeries> history, final double speed, final LongConsumer frameListener,
+                                          final Runnable completionListener) {
+        long firstFrameTime = Long.MAX_VALUE;
+        long lastFrameTime = Long.MIN_VALUE;
+        long frameDuration = 0;
+        for (ConsumptionSeries series : history.values()) {
+            if (series.isEmpty()) {
+                continue;
             }
+            frameDuration = TimeUnit.SECONDS.toMillis(series.getBucketPlan().getBucketDurationSeconds());
+            firstFrameTime = Math.min(firstFrameTime, series.getTimestamp(0));
+            lastFrameTime = Math.max(lastFrameTime, series.getTimestamp(series.size() - 1));
+        }
+        if (frameDuration == 0) {
+            logger.info("No recorded consumption to play back.");
+            return null;
+        }
 
-            // Calculate new values of the grid
-            for (int col = 0; col < grid.length; col++) {
-                for (int row = 0; row < grid[col].length; row++) {
-                    grid[col][row] = grid[col][row] + delta_t * grid_temp[col][row];
-                }
+        final List<HeatmapSpot> spots = values.getSpots();
+        final int frameCount = (int) ((lastFrameTime - firstFrameTime) / frameDuration) + 1;
+        final long[] frameTimes = new long[frameCount];
+        final float[][] spotValues = new float[frameCount][spots.size()];
+        for (int frame = 0; frame < frameCount; frame++) {
+            frameTimes[frame] = firstFrameTime + frame * frameDuration;
+        }
+        final Map<HeatmapSpot, Integer> spotIndices = new HashMap<>();
+        for (int spot = 0; spot < spots.size(); spot++) {
+            spotIndices.put(spots.get(spot), spot);
+        }
+        for (Map.Entry<String, List<HeatmapSpot>> entry : getSpotsByUnitId().entrySet()) {
+            final ConsumptionSeries series = history.get(entry.getKey());
+            if (series == null) {
+                continue;
             }
-
-            //Head should not flatten in the middle so I set the middle to the starting value.
-            for (HeatmapSpot spot : spots) {
-                grid[spot.x][spot.y] = spot.value;
+            for (HeatmapSpot spot : entry.getValue()) {
+                final int spotIndex = spotIndices.get(spot);
+                for (int i = 0; i < series.size(); i++) {
+                    final int frame = (int) ((series.getTimestamp(i) - firstFrameTime) / frameDuration);
+                    spotValues[frame][spotIndex] = (float) toSpotValue(series.getValue(i) / MAINS_VOLTAGE);
+                }
             }
         }
-        heatmapValues.setGrid(grid);
+        final long frameInterval = Math.max(getFrameBudgetMilliseconds(), (long) (frameDuration / speed));
+        return new HeatmapPlayback(getRenderer(), spots, spotKernels, frameTimes, spotValues, frameInterval, HeatmapPlayback.DEFAULT_FRAME_CACHE_SIZE, frameListener, completionListener);
     }
 }
@@ -12,6 +12,8 @@ import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.Visualiza
 import org.openbase.bco.bcozy.controller.powerterminal.chartcontroller.ChartController;
 import org.openbase.bco.bcozy.controller.powerterminal.chartcontroller.ChartControllerFactory;
 import org.openbase.bco.bcozy.model.powerterminal.ChartStateModel;
+import org.openbase.bco.bcozy.model.powerterminal.LiveConsumptionStream;
+import org.openbase.bco.bcozy.model.powerterminal.PowerTerminalDBService;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.InitializationException;
 import org.openbase.jul.visual.javafx.control.AbstractFXController;
@@ -32,7 +34,7 @@ public class PowerChartVisualizationController extends AbstractFXController {
     FlowGridPane pane;
 
     private ChartStateModel chartStateModel;
-    private ChartController chartController;
+    private volatile ChartController chartController;
 
     @Override
     public void updateDynamicContent() {
@@ -59,6 +61,10 @@ public class PowerChartVisualizationController extends AbstractFXController {
     @Override
     public void initContent() throws InitializationException {
         pane.setMinSize(Screen.getPrimary().getVisualBounds().getWidth(), Screen.getPrimary().getVisualBounds().getHeight() - 600);
+
+        // connect to the database early so the first chart query does not have to wait for it.
+        PowerTerminalDBService.init();
+        LiveConsumptionStream.init();
     }
 
     /**
@@ -92,6 +98,16 @@ public class PowerChartVisualizationController extends AbstractFXController {
             initRefreshTask();
         });
 
+        // redraw when the displayed consumer reports a new value, the chart controllers merge frequent updates.
+        LiveConsumptionStream.addUpdateListener(updatedUnitIds -> {
+            final ChartController currentChartController = chartController;
+            if (currentChartController != null
+                    && BCozy.appModeProperty.get() == CenterPaneController.State.ENERGY
+                    && updatedUnitIds.contains(chartStateModel.getSelectedConsumer())) {
+                currentChartController.updateLiveData(chartStateModel);
+            }
+        });
+
     }
 
     public FlowGridPane getPane() {
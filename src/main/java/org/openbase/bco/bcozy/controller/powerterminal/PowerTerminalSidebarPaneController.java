@@ -37,8 +37,11 @@ import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
 import org.openbase.type.language.LabelType;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -55,6 +58,12 @@ public class PowerTerminalSidebarPaneController extends AbstractFXController {
     public static final String DATE_ERROR_MESSAGE_IDENTIFIER = "powerterminal.dateErrorMessage";
     public static final String DATE_NOW_CHECKBOX_DESCRIPTION_IDENTIFIER = "powerterminal.dateNowCheckboxDescription";
     public static final String GLOBAL_CONSUMPTION_CHECKBOX_DESCRIPTION_IDENTIFIER = "powerterminal.overallConsumptionCheckboxDescription";
+    public static final String PLAYBACK_CHECKBOX_DESCRIPTION_IDENTIFIER = "powerterminal.playbackCheckboxDescription";
+
+    /**
+     * Selectable factors the heatmap playback is faster than real time, a day takes 24, 4 or 1 minutes or 10 seconds.
+     */
+    public static final List<Integer> PLAYBACK_SPEEDS = List.of(60, 360, 1440, 8640);
 
     @FXML
     private JFXComboBox<VisualizationType> selectVisualizationTypeBox;
@@ -86,6 +95,18 @@ public class PowerTerminalSidebarPaneController extends AbstractFXController {
     private Text dateErrorMessage;
     @FXML
     private Text dateNowCheckboxDescription;
+    @FXML
+    public HBox playbackGroupHbox;
+    @FXML
+    private JFXCheckBox playbackCheckBox;
+    @FXML
+    private Text playbackCheckboxDescription;
+    @FXML
+    public VBox playbackSelectionGroupVbox;
+    @FXML
+    private JFXComboBox<Integer> selectPlaybackSpeedBox;
+    @FXML
+    private Text playbackTimeText;
 
     private ObjectProperty<DateRange> dateRange = new SimpleObjectProperty<>(new DateRange());
     private ReadOnlyStringWrapper selectedUnitId = new ReadOnlyStringWrapper();
@@ -119,6 +140,7 @@ public class PowerTerminalSidebarPaneController extends AbstractFXController {
                 Registries.waitForData();
                 setupGranularitySelection();
                 setupDateSelection();
+                setupPlaybackSelection();
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
             } catch (CouldNotPerformException ex) {
@@ -235,8 +257,62 @@ public class PowerTerminalSidebarPaneController extends AbstractFXController {
         hideNodeIf(dateNowCheckBox.selectedProperty(), selectStartDatePicker);
         hideNodeIf(dateNowCheckBox.selectedProperty(), selectEndDatePicker);
         hideNodeIf(dateValid.not(), dateErrorMessage);
-        hideNodeIf(multipleDataOk, selectStartDatePicker);
-        hideNodeIf(multipleDataOk, selectEndDatePicker);
+        hideNodeIf(multipleDataOk.or(playbackCheckBox.selectedProperty()), selectStartDatePicker);
+        hideNodeIf(multipleDataOk.or(playbackCheckBox.selectedProperty()), selectEndDatePicker);
+    }
+
+    /**
+     * Sets up the controls of the heatmap playback, which plays back the selected dates instead of the current
+     * consumption.
+     */
+    private void setupPlaybackSelection() {
+        BooleanBinding heatmapSelected = Bindings.createBooleanBinding(
+                () -> selectVisualizationTypeBox.getSelectionModel().getSelectedItem() == VisualizationType.HEATMAP,
+                selectVisualizationTypeBox.valueProperty());
+
+        playbackCheckboxDescription.textProperty().bind(LanguageSelection.getProperty(PLAYBACK_CHECKBOX_DESCRIPTION_IDENTIFIER));
+        hideNodeIf(heatmapSelected, playbackGroupHbox);
+        hideNodeIf(playbackCheckBox.selectedProperty(), playbackSelectionGroupVbox);
+
+        selectPlaybackSpeedBox.valueProperty().addListener((source, old, newSpeed) -> {
+            if (newSpeed != null) {
+                chartStateModel.playbackSpeedProperty().set(newSpeed);
+            }
+        });
+        setupComboBox(new LocalizedCellFactory<>(speed -> new ReadOnlyStringWrapper(speed + "x").getReadOnlyProperty()),
+                selectPlaybackSpeedBox, PLAYBACK_SPEEDS, PLAYBACK_SPEEDS.indexOf((int) ChartStateModel.DEFAULT_PLAYBACK_SPEED));
+
+        // the played dates are selected while the playback is inactive, so a running playback is not restarted.
+        playbackCheckBox.selectedProperty().addListener((source, old, playbackSelected) -> {
+            if (playbackSelected) {
+                DateRange dateRange = new DateRange(selectStartDatePicker.getValue(), selectEndDatePicker.getValue());
+                if (dateRange.isValid()) {
+                    this.dateRange.set(dateRange);
+                }
+                chartStateModel.playbackActiveProperty().set(true);
+            } else {
+                chartStateModel.playbackActiveProperty().set(false);
+                if (dateNowCheckBox.isSelected()) {
+                    dateRange.set(new DateRange());
+                }
+            }
+        });
+        chartStateModel.playbackActiveProperty().addListener((source, old, playbackActive) -> {
+            if (!playbackActive) {
+                playbackCheckBox.setSelected(false);
+            }
+        });
+        heatmapSelected.addListener((source, old, selected) -> {
+            if (!selected) {
+                playbackCheckBox.setSelected(false);
+            }
+        });
+
+        playbackTimeText.textProperty().bind(Bindings.createStringBinding(
+                () -> chartStateModel.playbackTimeProperty().get() == 0 ? "" : DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT)
+                        .withLocale(LanguageSelection.getSelectedLocale())
+                        .format(Instant.ofEpochMilli(chartStateModel.playbackTimeProperty().get()).atZone(ZoneId.systemDefault())),
+                chartStateModel.playbackTimeProperty()));
     }
 
     private void hideNodeIf(ObservableValue<Boolean> booleanObservableValue, Node node) {
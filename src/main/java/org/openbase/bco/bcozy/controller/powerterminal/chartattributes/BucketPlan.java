@@ -0,0 +1,175 @@
+package org.openbase.bco.bcozy.controller.powerterminal.chartattributes;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * Describes the aggregation windows used to query a DateRange.
+ * <p>
+ * Instead of a fixed window per range length the window duration is planned from the length of the range and the
+ * width of the chart, so each query returns about as many points as the chart can show.
+ */
+public class BucketPlan {
+
+    /**
+     * Horizontal space in pixels a single aggregation window should get in a chart.
+     */
+    public static final int PIXELS_PER_BUCKET = 8;
+
+    /**
+     * Chart width assumed if the caller does not know the size of its chart.
+     */
+    public static final int DEFAULT_CHART_WIDTH = 1920;
+
+    /**
+     * Window durations the planner chooses from, ascending. Keeping to these values aligns windows to familiar
+     * boundaries and lets similar ranges share cached windows.
+     */
+    private static final long[] BUCKET_DURATIONS_SECONDS = {
+            TimeUnit.MINUTES.toSeconds(1),
+            TimeUnit.MINUTES.toSeconds(5),
+            TimeUnit.MINUTES.toSeconds(10),
+            TimeUnit.MINUTES.toSeconds(15),
+            TimeUnit.MINUTES.toSeconds(30),
+            TimeUnit.HOURS.toSeconds(1),
+            TimeUnit.HOURS.toSeconds(2),
+            TimeUnit.HOURS.toSeconds(3),
+            TimeUnit.HOURS.toSeconds(6),
+            TimeUnit.HOURS.toSeconds(12),
+            TimeUnit.DAYS.toSeconds(1),
+            TimeUnit.DAYS.toSeconds(2),
+            TimeUnit.DAYS.toSeconds(7),
+            TimeUnit.DAYS.toSeconds(14),
+            TimeUnit.DAYS.toSeconds(30),
+            TimeUnit.DAYS.toSeconds(90),
+            TimeUnit.DAYS.toSeconds(365)
+    };
+
+    private final long bucketDurationSeconds;
+    private final Interval labelInterval;
+    private final boolean spanningMultipleDays;
+
+    /**
+     * Constructor
+     * @param bucketDurationSeconds Length of a single aggregation window in seconds
+     * @param labelInterval Interval defining the granularity of the time labels
+     * @param spanningMultipleDays Describes if the planned range covers more than a single day
+     */
+    public BucketPlan(final long bucketDurationSeconds, final Interval labelInterval, final boolean spanningMultipleDays) {
+        this.bucketDurationSeconds = bucketDurationSeconds;
+        this.labelInterval = labelInterval;
+        this.spanningMultipleDays = spanningMultipleDays;
+    }
+
+    /**
+     * Plans the aggregation windows of the given DateRange.
+     * @param dateRange DateRange that will be queried
+     * @param chartWidth Width of the chart in pixels
+     * @return The planned windows
+     */
+    public static BucketPlan forDateRange(final DateRange dateRange, final int chartWidth) {
+        if (dateRange.isEmpty()) {
+            return forInterval(Interval.NOW);
+        }
+        final long days = DAYS.between(dateRange.getStartDate(), dateRange.getEndDate());
+        return forTimeSpan(TimeUnit.DAYS.toSeconds(days), chartWidth);
+    }
+
+    /**
+     * Plans the aggregation windows of the given DateRange by its default Interval, independent of the chart width.
+     * Charts showing each window as a category, like slices or cells, stay readable this way.
+     * @param dateRange DateRange that will be queried
+     * @return The planned windows
+     */
+    public static BucketPlan forDefaultInterval(final DateRange dateRange) {
+        final Interval interval = dateRange.getDefaultIntervalSize();
+        final long days = DAYS.between(dateRange.getStartDate(), dateRange.getEndDate());
+        return new BucketPlan(interval.getBucketDurationSeconds(), interval, days > 1);
+    }
+
+    /**
+     * Plans the aggregation windows of a time span.
+     * The shortest window duration is chosen that does not exceed the number of points the chart can show.
+     * @param timeSpanSeconds Length of the queried time span in seconds
+     * @param chartWidth Width of the chart in pixels
+     * @return The planned windows
+     */
+    public static BucketPlan forTimeSpan(final long timeSpanSeconds, final int chartWidth) {
+        final long targetBucketCount = Math.max(1, chartWidth / PIXELS_PER_BUCKET);
+        long bucketDuration = BUCKET_DURATIONS_SECONDS[BUCKET_DURATIONS_SECONDS.length - 1];
+        for (long candidate : BUCKET_DURATIONS_SECONDS) {
+            if (timeSpanSeconds / candidate <= targetBucketCount) {
+                bucketDuration = candidate;
+                break;
+            }
+        }
+        return new BucketPlan(bucketDuration, getLabelInterval(bucketDuration), timeSpanSeconds > TimeUnit.DAYS.toSeconds(1));
+    }
+
+    /**
+     * Creates the plan of a fixed Interval.
+     * @param interval Interval providing the window duration
+     * @return The plan
+     */
+    public static BucketPlan forInterval(final Interval interval) {
+        return new BucketPlan(interval.getBucketDurationSeconds(), interval, false);
+    }
+
+    private static Interval getLabelInterval(final long bucketDurationSeconds) {
+        if (bucketDurationSeconds < TimeUnit.DAYS.toSeconds(1)) return Interval.HOURLY;
+        if (bucketDurationSeconds < TimeUnit.DAYS.toSeconds(7)) return Interval.DAILY;
+        if (bucketDurationSeconds < TimeUnit.DAYS.toSeconds(30)) return Interval.WEEKLY;
+        if (bucketDurationSeconds < TimeUnit.DAYS.toSeconds(365)) return Interval.MONTHLY;
+        return Interval.YEARLY;
+    }
+
+    /**
+     * Generates the influx duration literal of the given window length, e.g. 90 minutes result in {@code 90m}.
+     * The largest unit dividing the duration without remainder is used.
+     * @param durationSeconds Window length in seconds
+     * @return The influx duration literal
+     */
+    public static String toInfluxIntervalString(final long durationSeconds) {
+        if (durationSeconds % TimeUnit.DAYS.toSeconds(1) == 0) {
+            return TimeUnit.SECONDS.toDays(durationSeconds) + "d";
+        }
+        if (durationSeconds % TimeUnit.HOURS.toSeconds(1) == 0) {
+            return TimeUnit.SECONDS.toHours(durationSeconds) + "h";
+        }
+        if (durationSeconds % TimeUnit.MINUTES.toSeconds(1) == 0) {
+            return TimeUnit.SECONDS.toMinutes(durationSeconds) + "m";
+        }
+        return durationSeconds + "s";
+    }
+
+    public long getBucketDurationSeconds() {
+        return bucketDurationSeconds;
+    }
+
+    public Interval getLabelInterval() {
+        return labelInterval;
+    }
+
+    /**
+     * Describes if the planned range covers more than one day, so time labels need to name the day as well.
+     * @return true if the range spans multiple days
+     */
+    public boolean isSpanningMultipleDays() {
+        return spanningMultipleDays;
+    }
+
+    public String getInfluxIntervalString() {
+        return toInfluxIntervalString(bucketDurationSeconds);
+    }
+
+    /**
+     * Aligns the given point in time to the start of the aggregation window containing it.
+     * Influx aligns fixed duration windows to the unix epoch, so the same is done here.
+     * @param epochSeconds Point in time in seconds since the unix epoch
+     * @return Start of the window in seconds since the unix epoch
+     */
+    public long alignToBucketStart(final long epochSeconds) {
+        return Math.floorDiv(epochSeconds, bucketDurationSeconds) * bucketDurationSeconds;
+    }
+}
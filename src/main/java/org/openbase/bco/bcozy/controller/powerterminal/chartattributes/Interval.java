@@ -1,19 +1,31 @@
 package org.openbase.bco.bcozy.controller.powerterminal.chartattributes;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Different intervals for in charts displayed average values.
+ * The windows actually queried from the database are planned by {@link BucketPlan}.
  */
 public enum Interval {
-    NOW("1h"), HOURLY("1h"), DAILY("1d"), WEEKLY("1w"), MONTHLY("30d"), YEARLY("365d");
+    NOW(TimeUnit.HOURS.toSeconds(1)),
+    HOURLY(TimeUnit.HOURS.toSeconds(1)),
+    DAILY(TimeUnit.DAYS.toSeconds(1)),
+    WEEKLY(TimeUnit.DAYS.toSeconds(7)),
+    MONTHLY(TimeUnit.DAYS.toSeconds(30)),
+    YEARLY(TimeUnit.DAYS.toSeconds(365));
 
-    private String influxIntervalString;
+    private long bucketDurationSeconds;
 
-    Interval(String s) {
-        this.influxIntervalString = s;
+    Interval(long bucketDurationSeconds) {
+        this.bucketDurationSeconds = bucketDurationSeconds;
     }
 
-    public String getInfluxIntervalString() {
-        return influxIntervalString;
+    /**
+     * Returns the nominal length of a single window of this interval.
+     * @return Window length in seconds
+     */
+    public long getBucketDurationSeconds() {
+        return bucketDurationSeconds;
     }
 
     /**
@@ -4,10 +4,10 @@ package org.openbase.bco.bcozy.controller.powerterminal.chartattributes;
  * Different types to visualize the power draw.
  */
 public enum VisualizationType {
-    BAR_CHART, PIE_CHART, WEBVIEW, LINE_CHART, TREE_CHART, HEATMAP;
+    BAR_CHART, PIE_CHART, WEBVIEW, LINE_CHART, TREE_CHART, HEATMAP, HIGH_RESOLUTION_CHART;
 
     public static VisualizationType[] getSelectableTypes() {
-        return new VisualizationType[]{BAR_CHART, PIE_CHART, LINE_CHART, TREE_CHART, HEATMAP};
+        return new VisualizationType[]{BAR_CHART, PIE_CHART, LINE_CHART, TREE_CHART, HIGH_RESOLUTION_CHART, HEATMAP};
     }
 
     /**
@@ -31,7 +31,7 @@ public enum VisualizationType {
      */
     public static boolean canDisplayMultipleData(VisualizationType visualizationType) {
         switch (visualizationType) {
-            case BAR_CHART: case LINE_CHART:
+            case BAR_CHART: case LINE_CHART: case HIGH_RESOLUTION_CHART:
                 return true;
             default:
                 return false;
@@ -60,7 +60,7 @@ public enum VisualizationType {
      */
     public static boolean canDisplayDifferentUnits(VisualizationType visualizationType) {
         switch (visualizationType) {
-            case LINE_CHART: case BAR_CHART: case PIE_CHART:
+            case LINE_CHART: case BAR_CHART: case PIE_CHART: case HIGH_RESOLUTION_CHART:
                 return true;
             default:
                 return false;
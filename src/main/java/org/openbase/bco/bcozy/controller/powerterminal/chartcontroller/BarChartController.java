@@ -11,12 +11,16 @@ import org.openbase.bco.bcozy.model.powerterminal.ChartStateModel;
  */
 public class BarChartController extends TilesFxChartController {
 
+    public BarChartController() {
+        super(true);
+    }
+
     @Override
     public void init(ChartStateModel chartStateModel, PowerChartVisualizationController powerChartVisualizationController) {
         DateRange dateRange = chartStateModel.getDateRange();
 
         setupView(LanguageSelection.getLocalized(POWERTERMINAL_CHART_HEADER_IDENTIFIER),
-                Tile.SkinType.MATRIX, LanguageSelection.getProperty(dateRange.getDefaultIntervalSize().name()));
+                Tile.SkinType.MATRIX, getIntervalText(dateRange));
         getView().setAnimated(true);
 
 //        updateChart(chartStateModel);
@@ -0,0 +1,144 @@
+package org.openbase.bco.bcozy.controller.powerterminal.chartcontroller;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import org.openbase.bco.bcozy.controller.powerterminal.PowerChartVisualizationController;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.model.LanguageSelection;
+import org.openbase.bco.bcozy.model.powerterminal.ChartQueryScheduler;
+import org.openbase.bco.bcozy.model.powerterminal.ChartStateModel;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
+import org.openbase.bco.bcozy.util.EnergySymbolConverter;
+import org.openbase.bco.bcozy.view.powerterminal.SeriesCanvas;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.schedule.GlobalScheduledExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.openbase.bco.bcozy.controller.powerterminal.chartcontroller.TilesFxChartController.POWERTERMINAL_CHART_HEADER_IDENTIFIER;
+import static org.openbase.bco.bcozy.controller.powerterminal.chartcontroller.TilesFxChartController.TILE_HEIGHT;
+import static org.openbase.bco.bcozy.controller.powerterminal.chartcontroller.TilesFxChartController.TILE_WIDTH;
+
+/**
+ * Controller for displaying long, high resolution series on a canvas which can be panned and zoomed.
+ * <p>
+ * The whole DateRange is loaded in a bounded number of windows as overview. After zooming in, only the visible period
+ * plus one visible span on each side is loaded in finer windows, so neither query grows with the DateRange.
+ */
+public class CanvasChartController implements ChartController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CanvasChartController.class);
+
+    /**
+     * Maximal number of windows loaded as overview of the whole DateRange.
+     */
+    public static final int MAX_OVERVIEW_WINDOWS = 2048;
+
+    /**
+     * Maximal number of windows loaded per visible span after zooming in.
+     */
+    public static final int MAX_VISIBLE_WINDOWS = 1024;
+
+    private final ChartQueryScheduler queryScheduler = new ChartQueryScheduler(MAX_OVERVIEW_WINDOWS * BucketPlan.PIXELS_PER_BUCKET);
+    private final ChartQueryScheduler detailQueryScheduler = new ChartQueryScheduler();
+    private SeriesCanvas view;
+    private ChartStateModel chartStateModel;
+    private BucketPlan overviewPlan;
+
+    /**
+     * Period and plan of the last requested details, accessed on the application thread only.
+     */
+    private long detailStart;
+    private long detailEnd;
+    private BucketPlan detailPlan;
+
+    @Override
+    public void init(ChartStateModel chartStateModel, PowerChartVisualizationController powerChartVisualizationController) {
+        view = new SeriesCanvas();
+        view.setPrefSize(TILE_WIDTH, TILE_HEIGHT);
+        view.titleProperty().bind(LanguageSelection.getProperty(POWERTERMINAL_CHART_HEADER_IDENTIFIER));
+        view.setOnVisiblePeriodChanged((visibleStart, visibleEnd) -> requestDetails(visibleStart, visibleEnd, false));
+        this.chartStateModel = chartStateModel;
+    }
+
+    @Override
+    public ScheduledFuture enableDataRefresh(long interval, ChartStateModel chartStateModel) {
+        ScheduledFuture refreshSchedule = null;
+        try {
+            refreshSchedule = GlobalScheduledExecutorService.scheduleAtFixedRate(() -> updateChart(chartStateModel), 50, interval, TimeUnit.MILLISECONDS);
+        } catch (NotAvailableException ex) {
+            ExceptionPrinter.printHistory("Could not refresh power chart data", ex, LOGGER);
+        }
+        return refreshSchedule;
+    }
+
+    @Override
+    public void updateChart(ChartStateModel chartStateModel) {
+        this.chartStateModel = chartStateModel;
+        Platform.runLater(this::dropDetails);
+        queryScheduler.schedule(chartStateModel, data -> Platform.runLater(() -> setSeries(data, false)));
+    }
+
+    @Override
+    public void updateLiveData(ChartStateModel chartStateModel) {
+        queryScheduler.scheduleLiveUpdate(chartStateModel, data -> Platform.runLater(() -> setSeries(data, true)));
+    }
+
+    private void setSeries(final ConsumptionSeries data, final boolean live) {
+        overviewPlan = data.getBucketPlan();
+        view.setSeries(EnergySymbolConverter.convert(chartStateModel.getUnit(), data));
+
+        // details reaching the present are reloaded as well, their closed windows come from the caches.
+        if (live && detailPlan != null && detailEnd >= System.currentTimeMillis()) {
+            requestDetails(view.getVisibleStart(), view.getVisibleEnd(), true);
+        }
+    }
+
+    /**
+     * Loads finer windows of the visible period if the overview is too coarse and the loaded details do not cover it.
+     */
+    private void requestDetails(final long visibleStart, final long visibleEnd, final boolean reload) {
+        if (!view.isZoomed() || overviewPlan == null) {
+            dropDetails();
+            return;
+        }
+        final long span = visibleEnd - visibleStart;
+        final BucketPlan plan = BucketPlan.forTimeSpan(TimeUnit.MILLISECONDS.toSeconds(span), MAX_VISIBLE_WINDOWS * BucketPlan.PIXELS_PER_BUCKET);
+        if (plan.getBucketDurationSeconds() >= overviewPlan.getBucketDurationSeconds()) {
+            dropDetails();
+            return;
+        }
+        if (!reload && detailPlan != null && detailPlan.getBucketDurationSeconds() == plan.getBucketDurationSeconds()
+                && detailStart <= visibleStart && detailEnd >= visibleEnd) {
+            return;
+        }
+
+        // aligned periods let small pans share a query and the cached windows.
+        final long bucketDuration = TimeUnit.SECONDS.toMillis(plan.getBucketDurationSeconds());
+        detailStart = Math.floorDiv(visibleStart - span, bucketDuration) * bucketDuration;
+        detailEnd = Math.floorDiv(visibleEnd + span, bucketDuration) * bucketDuration + bucketDuration;
+        detailPlan = plan;
+        final String unitId = chartStateModel.getSelectedConsumer();
+        detailQueryScheduler.schedule(new Timestamp(detailStart), new Timestamp(detailEnd), unitId, plan, data -> Platform.runLater(() -> {
+            if (plan == detailPlan) {
+                view.setDetailSeries(EnergySymbolConverter.convert(chartStateModel.getUnit(), data));
+            }
+        }));
+    }
+
+    private void dropDetails() {
+        detailQueryScheduler.cancel();
+        detailPlan = null;
+        view.setDetailSeries(null);
+    }
+
+    @Override
+    public Node getView() {
+        return view;
+    }
+}
@@ -31,5 +31,14 @@ public interface ChartController {
      */
     void updateChart(ChartStateModel chartStateModel);
 
+    /**
+     * Update of the displayed data after the live consumption of the displayed consumer changed.
+     * Implementations should merge frequent calls, by default the chart is simply updated.
+     * @param chartStateModel ChartStateModel from which to reload the data
+     */
+    default void updateLiveData(ChartStateModel chartStateModel) {
+        updateChart(chartStateModel);
+    }
+
     Node getView();
 }
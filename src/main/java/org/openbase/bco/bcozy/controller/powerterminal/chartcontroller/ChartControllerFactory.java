@@ -17,7 +17,8 @@ public class ChartControllerFactory {
             VisualizationType.BAR_CHART, BarChartController::new,
             VisualizationType.LINE_CHART, LineChartController::new,
             VisualizationType.PIE_CHART, PieChartController::new,
-            VisualizationType.TREE_CHART, TreeChartController::new);
+            VisualizationType.TREE_CHART, TreeChartController::new,
+            VisualizationType.HIGH_RESOLUTION_CHART, CanvasChartController::new);
 
     /**
      * Provides a new ChartController.
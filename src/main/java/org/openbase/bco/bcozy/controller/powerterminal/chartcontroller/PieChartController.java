@@ -11,11 +11,15 @@ import org.openbase.bco.bcozy.model.powerterminal.ChartStateModel;
  */
 public class PieChartController extends TilesFxChartController {
 
+    public PieChartController() {
+        super(true);
+    }
+
     @Override
     public void init(ChartStateModel chartStateModel, PowerChartVisualizationController powerChartVisualizationController) {
         DateRange dateRange = chartStateModel.getDateRange();
         setupView(LanguageSelection.getLocalized(POWERTERMINAL_CHART_HEADER_IDENTIFIER),
-                Tile.SkinType.DONUT_CHART, LanguageSelection.getProperty(dateRange.getDefaultIntervalSize().name()));
+                Tile.SkinType.DONUT_CHART, getIntervalText(dateRange));
 
     }
 }
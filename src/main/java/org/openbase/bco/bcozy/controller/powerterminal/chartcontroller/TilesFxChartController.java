@@ -1,23 +1,24 @@
 package org.openbase.bco.bcozy.controller.powerterminal.chartcontroller;
 
 import eu.hansolo.tilesfx.Tile;
-import eu.hansolo.tilesfx.chart.ChartData;
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.scene.text.TextAlignment;
 import javafx.stage.Screen;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.DateRange;
 import org.openbase.bco.bcozy.model.LanguageSelection;
 import org.openbase.bco.bcozy.model.powerterminal.ChartStateModel;
-import org.openbase.bco.bcozy.model.powerterminal.PowerTerminalDBService;
+import org.openbase.bco.bcozy.model.powerterminal.ChartQueryScheduler;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
+import org.openbase.bco.bcozy.util.ChartDataSynchronizer;
 import org.openbase.bco.bcozy.util.EnergySymbolConverter;
 import org.openbase.jul.exception.NotAvailableException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
-import org.openbase.jul.schedule.GlobalCachedExecutorService;
 import org.openbase.jul.schedule.GlobalScheduledExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -30,17 +31,32 @@ public abstract class TilesFxChartController implements ChartController{
     public static final int TILE_WIDTH = (int) Screen.getPrimary().getVisualBounds().getWidth();
     public static final int TILE_HEIGHT = (int) Screen.getPrimary().getVisualBounds().getHeight();
     public static final String POWERTERMINAL_CHART_HEADER_IDENTIFIER = "powerterminal.chartHeader";
+    private final boolean categoryChart;
+    private final ChartQueryScheduler queryScheduler = new ChartQueryScheduler(this::createBucketPlan);
     private Tile view;
 
+    /**
+     * Constructor of charts plotting the windows over time.
+     */
+    protected TilesFxChartController() {
+        this(false);
+    }
+
+    /**
+     * Constructor
+     * @param categoryChart true if each window is shown as a separate category, the windows are then planned by the
+     *                      default Interval of the DateRange instead of the width of the Tile
+     */
+    protected TilesFxChartController(final boolean categoryChart) {
+        this.categoryChart = categoryChart;
+    }
+
 
     @Override
     public ScheduledFuture enableDataRefresh(long interval, ChartStateModel chartStateModel) {
         ScheduledFuture refreshSchedule = null;
         try {
-            refreshSchedule = GlobalScheduledExecutorService.scheduleAtFixedRate(() -> {
-                List<ChartData> data = PowerTerminalDBService.getAverageConsumption(chartStateModel.getDateRange(), chartStateModel.getSelectedConsumer());
-                Platform.runLater(() -> updateChart(EnergySymbolConverter.convert(chartStateModel.getUnit(), data)));
-                    }, 50, interval, TimeUnit.MILLISECONDS);
+            refreshSchedule = GlobalScheduledExecutorService.scheduleAtFixedRate(() -> updateChart(chartStateModel), 50, interval, TimeUnit.MILLISECONDS);
         } catch (NotAvailableException ex) {
             ExceptionPrinter.printHistory("Could not refresh power chart data", ex, LOGGER);
         }
@@ -49,19 +65,44 @@ public abstract class TilesFxChartController implements ChartController{
 
     @Override
     public void updateChart(ChartStateModel chartStateModel) {
-        GlobalCachedExecutorService.submit(() -> {
-            List<ChartData> data = PowerTerminalDBService.getAverageConsumption(chartStateModel.getDateRange(), chartStateModel.getSelectedConsumer());
-            Platform.runLater(() -> updateChart(EnergySymbolConverter.convert(chartStateModel.getUnit(), data)));
-        });
+        queryScheduler.schedule(chartStateModel, data -> display(chartStateModel, data));
+    }
+
+    @Override
+    public void updateLiveData(ChartStateModel chartStateModel) {
+        queryScheduler.scheduleLiveUpdate(chartStateModel, data -> display(chartStateModel, data));
+    }
+
+    private void display(ChartStateModel chartStateModel, ConsumptionSeries data) {
+        final ConsumptionSeries displayedData = EnergySymbolConverter.convert(chartStateModel.getUnit(), data);
+        Platform.runLater(() -> updateChart(displayedData));
+    }
+
+    /**
+     * Plans the aggregation windows of the displayed DateRange, matching the width of the Tile unless this is a
+     * category chart.
+     * @param dateRange DateRange that will be queried
+     * @return The planned windows
+     */
+    private BucketPlan createBucketPlan(DateRange dateRange) {
+        return categoryChart ? BucketPlan.forDefaultInterval(dateRange) : BucketPlan.forDateRange(dateRange, TILE_WIDTH);
+    }
+
+    /**
+     * Describes the granularity of the displayed windows, matching the plan actually queried.
+     * @param dateRange DateRange that will be displayed
+     * @return Localized text describing the windows
+     */
+    protected ReadOnlyStringProperty getIntervalText(DateRange dateRange) {
+        return LanguageSelection.getProperty(createBucketPlan(dateRange).getLabelInterval().name());
     }
 
     /**
-     * Updates the visualization
+     * Updates the visualization in place, only changed entries of the Tile are touched.
      * @param data New Data to be displayed
      */
-    public void updateChart(List<ChartData> data) {
-                this.view.getChartData().clear();
-                this.view.getChartData().setAll(data);
+    public void updateChart(ConsumptionSeries data) {
+        ChartDataSynchronizer.synchronizeChartData(this.view.getChartData(), data);
     }
 
     @Override
@@ -1,6 +1,5 @@
 package org.openbase.bco.bcozy.controller.powerterminal.chartcontroller;
 
-import eu.hansolo.tilesfx.chart.ChartData;
 import javafx.application.Platform;
 import javafx.scene.Node;
 import javafx.scene.image.Image;
@@ -8,15 +7,14 @@ import javafx.scene.image.ImageView;
 import javafx.stage.Screen;
 import org.openbase.bco.bcozy.controller.powerterminal.PowerChartVisualizationController;
 import org.openbase.bco.bcozy.model.powerterminal.ChartStateModel;
-import org.openbase.bco.bcozy.model.powerterminal.PowerTerminalDBService;
+import org.openbase.bco.bcozy.model.powerterminal.ChartQueryScheduler;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
 import org.openbase.jul.exception.NotAvailableException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
-import org.openbase.jul.schedule.GlobalCachedExecutorService;
 import org.openbase.jul.schedule.GlobalScheduledExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -28,6 +26,7 @@ public class TreeChartController implements ChartController {
     private static final Logger LOGGER = LoggerFactory.getLogger(TilesFxChartController.class);
     private static final int DISPLAYED_CONSUMPTION_RANGE = 2000;
 
+    private final ChartQueryScheduler queryScheduler = new ChartQueryScheduler();
     private ImageView view;
 
     public TreeChartController() {
@@ -45,10 +44,7 @@ public class TreeChartController implements ChartController {
     public ScheduledFuture enableDataRefresh(long interval, ChartStateModel chartStateModel) {
         ScheduledFuture refreshSchedule = null;
         try {
-            refreshSchedule = GlobalScheduledExecutorService.scheduleAtFixedRate(() -> {
-                        List<ChartData> data = PowerTerminalDBService.getAverageConsumption(chartStateModel.getDateRange(), chartStateModel.getSelectedConsumer());
-                        Platform.runLater(() -> updateChart(data));
-                    },
+            refreshSchedule = GlobalScheduledExecutorService.scheduleAtFixedRate(() -> updateChart(chartStateModel),
                     10, interval, TimeUnit.MILLISECONDS);
         } catch (NotAvailableException ex) {
             ExceptionPrinter.printHistory("Could not refresh power chart data", ex, LOGGER);
@@ -58,14 +54,19 @@ public class TreeChartController implements ChartController {
 
     @Override
     public void updateChart(ChartStateModel chartStateModel) {
-        GlobalCachedExecutorService.submit(() -> {
-                List<ChartData> data = PowerTerminalDBService.getAverageConsumption(chartStateModel.getDateRange(), chartStateModel.getSelectedConsumer());
-                Platform.runLater(() -> updateChart(data));
-        });
+        queryScheduler.schedule(chartStateModel, data -> Platform.runLater(() -> updateChart(data)));
     }
 
-    private void updateChart(List<ChartData> data) {
-        view.setImage(getImageByPowerDraw(data.get(0)));
+    @Override
+    public void updateLiveData(ChartStateModel chartStateModel) {
+        queryScheduler.scheduleLiveUpdate(chartStateModel, data -> Platform.runLater(() -> updateChart(data)));
+    }
+
+    private void updateChart(ConsumptionSeries data) {
+        if (data.isEmpty()) {
+            return;
+        }
+        view.setImage(getImageByPowerDraw(data.getValue(0)));
     }
 
     @Override
@@ -73,20 +74,20 @@ public class TreeChartController implements ChartController {
         return view;
     }
 
-    private Image getImageByPowerDraw(ChartData datum) {
-        if (datum.getValue() > DISPLAYED_CONSUMPTION_RANGE) {
+    private Image getImageByPowerDraw(double powerDraw) {
+        if (powerDraw > DISPLAYED_CONSUMPTION_RANGE) {
             return new Image("/images/tree0.png");
-        } else if (datum.getValue() > DISPLAYED_CONSUMPTION_RANGE * .8) {
+        } else if (powerDraw > DISPLAYED_CONSUMPTION_RANGE * .8) {
             return new Image("/images/tree1.png");
-        } else if (datum.getValue() > DISPLAYED_CONSUMPTION_RANGE * .6) {
+        } else if (powerDraw > DISPLAYED_CONSUMPTION_RANGE * .6) {
             return new Image("/images/tree2.png");
-        } else if (datum.getValue() > DISPLAYED_CONSUMPTION_RANGE * .4) {
+        } else if (powerDraw > DISPLAYED_CONSUMPTION_RANGE * .4) {
             return new Image("/images/tree3.png");
-        } else if (datum.getValue() > DISPLAYED_CONSUMPTION_RANGE * .2) {
+        } else if (powerDraw > DISPLAYED_CONSUMPTION_RANGE * .2) {
             return new Image("/images/tree4.png");
-        } else if (datum.getValue() > DISPLAYED_CONSUMPTION_RANGE * .1) {
+        } else if (powerDraw > DISPLAYED_CONSUMPTION_RANGE * .1) {
             return new Image("/images/tree5.png");
-        } else if (datum.getValue() > 0) {
+        } else if (powerDraw > 0) {
             return new Image("/images/tree6.png");
         } else {
             return new Image("/images/tree7.png");
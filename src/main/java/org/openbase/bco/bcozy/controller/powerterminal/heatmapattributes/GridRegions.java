@@ -0,0 +1,37 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Helper for rectangular regions of grid cells.
+ */
+public class GridRegions {
+
+    /**
+     * Merges overlapping regions into their bounding rectangle until no two regions overlap.
+     * @param regions Regions to merge, not modified
+     * @return Pairwise disjoint regions covering all given regions
+     */
+    public static List<Rectangle> merge(final Collection<Rectangle> regions) {
+        final List<Rectangle> merged = new ArrayList<>(regions.size());
+        for (Rectangle region : regions) {
+            Rectangle candidate = new Rectangle(region);
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = 0; i < merged.size(); i++) {
+                    if (merged.get(i).intersects(candidate)) {
+                        candidate = candidate.union(merged.remove(i));
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+            merged.add(candidate);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,179 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Heat diffusion grid of the heatmap stored in flat float buffers.
+ * <p>
+ * Each iteration applies the explicit Laplacian stencil
+ * u[i,j,t+1] = u[i,j,t] + dt * (u[i+1,j,t] + u[i-1,j,t] + u[i,j+1,t] + u[i,j-1,t] - 4*u[i,j,t]) / h^2
+ * from the current buffer into the next one and swaps both afterwards, so no memory is allocated per refresh.
+ * The rows are split over a fork-join pool and the inner loop is kept free of branches, so the JIT can vectorize it.
+ * The border cells are not changed by the diffusion.
+ */
+public class HeatmapDiffusion {
+
+    /**
+     * Timestep of a single iteration.
+     */
+    private static final float DELTA_T = 0.1f;
+
+    /**
+     * Distance between two cells.
+     */
+    private static final float GRID_WIDTH = 1;
+
+    /**
+     * Rows processed by a single task, smaller row ranges are not split any further.
+     */
+    private static final int ROWS_PER_TASK = 64;
+
+    private final int rows;
+    private final int columns;
+    private final ForkJoinPool pool;
+    private float[] current;
+    private float[] next;
+
+    /**
+     * Constructor
+     * @param rows Number of rows of the grid
+     * @param columns Number of columns of the grid
+     */
+    public HeatmapDiffusion(final int rows, final int columns) {
+        this(rows, columns, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor
+     * @param rows Number of rows of the grid
+     * @param columns Number of columns of the grid
+     * @param pool Pool computing the rows in parallel
+     */
+    public HeatmapDiffusion(final int rows, final int columns, final ForkJoinPool pool) {
+        this.rows = rows;
+        this.columns = columns;
+        this.pool = pool;
+        this.current = new float[rows * columns];
+        this.next = new float[rows * columns];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public float getValue(final int row, final int column) {
+        return current[row * columns + column];
+    }
+
+    public void setValue(final int row, final int column, final float value) {
+        current[row * columns + column] = value;
+    }
+
+    /**
+     * Spreads the heat of the grid.
+     * After each iteration the cells of the spots are reset to the value of their spot, so the heat does not flatten
+     * at its source.
+     * @param spots Spots defining the heat sources
+     * @param iterations Number of diffusion steps
+     */
+    public void diffuse(final List<HeatmapSpot> spots, final int iterations) {
+        if (rows < 3 || columns < 3) {
+            return;
+        }
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            pool.invoke(new RowRangeTask(1, rows - 1));
+
+            // the border rows are not part of the stencil, so they are copied unchanged.
+            System.arraycopy(current, 0, next, 0, columns);
+            System.arraycopy(current, (rows - 1) * columns, next, (rows - 1) * columns, columns);
+
+            final float[] swap = current;
+            current = next;
+            next = swap;
+
+            for (HeatmapSpot spot : spots) {
+                setValue(spot.x, spot.y, (float) spot.value);
+            }
+        }
+    }
+
+    /**
+     * Spreads the heat inside of a region of the grid, cells outside of the region keep their values.
+     * Used to update the surroundings of changed spots without touching the rest of the grid.
+     * @param spots Spots defining the heat sources
+     * @param iterations Number of diffusion steps
+     * @param region Region of cells to update, x and width refer to rows, y and height to columns
+     */
+    public void diffuse(final List<HeatmapSpot> spots, final int iterations, final Rectangle region) {
+        final int firstRow = Math.max(1, region.x);
+        final int endRow = Math.min(rows - 1, region.x + region.width);
+        final int firstColumn = Math.max(1, region.y);
+        final int endColumn = Math.min(columns - 1, region.y + region.height);
+        if (firstRow >= endRow || firstColumn >= endColumn) {
+            return;
+        }
+        final float factor = DELTA_T / (GRID_WIDTH * GRID_WIDTH);
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int row = firstRow; row < endRow; row++) {
+                final int rowStart = row * columns;
+                for (int index = rowStart + firstColumn; index < rowStart + endColumn; index++) {
+                    next[index] = current[index] + factor * (current[index - columns] + current[index + columns]
+                            + current[index - 1] + current[index + 1] - 4 * current[index]);
+                }
+            }
+
+            // the buffers are not swapped, because next is only valid inside of the region.
+            for (int row = firstRow; row < endRow; row++) {
+                final int regionStart = row * columns + firstColumn;
+                System.arraycopy(next, regionStart, current, regionStart, endColumn - firstColumn);
+            }
+
+            for (HeatmapSpot spot : spots) {
+                setValue(spot.x, spot.y, (float) spot.value);
+            }
+        }
+    }
+
+    private void diffuseRows(final int firstRow, final int endRow) {
+        final float[] source = current;
+        final float[] target = next;
+        final float factor = DELTA_T / (GRID_WIDTH * GRID_WIDTH);
+        for (int row = firstRow; row < endRow; row++) {
+            final int rowStart = row * columns;
+            target[rowStart] = source[rowStart];
+            for (int index = rowStart + 1; index < rowStart + columns - 1; index++) {
+                target[index] = source[index] + factor * (source[index - columns] + source[index + columns]
+                        + source[index - 1] + source[index + 1] - 4 * source[index]);
+            }
+            target[rowStart + columns - 1] = source[rowStart + columns - 1];
+        }
+    }
+
+    private class RowRangeTask extends RecursiveAction {
+
+        private final int firstRow;
+        private final int endRow;
+
+        private RowRangeTask(final int firstRow, final int endRow) {
+            this.firstRow = firstRow;
+            this.endRow = endRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRow - firstRow <= ROWS_PER_TASK) {
+                diffuseRows(firstRow, endRow);
+                return;
+            }
+            final int middleRow = (firstRow + endRow) >>> 1;
+            invokeAll(new RowRangeTask(firstRow, middleRow), new RowRangeTask(middleRow, endRow));
+        }
+    }
+}
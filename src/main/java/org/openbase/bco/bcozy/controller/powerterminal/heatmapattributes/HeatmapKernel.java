@@ -0,0 +1,156 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Normalized influence field of a single spot.
+ * <p>
+ * The kernel holds the heat a spot of value 1 causes at each cell. It is clipped to the tile of the spot and stored
+ * sparsely as runs of consecutive cells within a row, so cells of other tiles or outside of the reach of the spot
+ * take no memory. Because the heat is linear in the value of the spot, the field of all spots is the sum of their
+ * kernels scaled by their current values.
+ */
+public class HeatmapKernel {
+
+    private final Rectangle region;
+    private final int[] runRows;
+    private final int[] runFirstColumns;
+    private final int[] runStarts;
+    private final float[] weights;
+
+    private HeatmapKernel(final Rectangle region, final int[] runRows, final int[] runFirstColumns, final int[] runStarts, final float[] weights) {
+        this.region = region;
+        this.runRows = runRows;
+        this.runFirstColumns = runFirstColumns;
+        this.runStarts = runStarts;
+        this.weights = weights;
+    }
+
+    /**
+     * Computes the radial heat profile of a spot of value 1 by spreading its heat on a small grid.
+     * @param iterations Number of diffusion steps
+     * @return Heat at distance 0 to iterations of the spot, the last entry is always 0
+     */
+    public static float[] computeProfile(final int iterations) {
+        final int center = iterations + 1;
+        final HeatmapDiffusion diffusion = new HeatmapDiffusion(2 * center + 1, 2 * center + 1);
+        final List<HeatmapSpot> source = Collections.singletonList(new HeatmapSpot(center, center, 1, -1));
+        diffusion.setValue(center, center, 1);
+        diffusion.diffuse(source, iterations);
+
+        final float[] profile = new float[iterations + 1];
+        for (int i = 0; i < iterations; i++) {
+            profile[i] = diffusion.getValue(center + i, center);
+        }
+        return profile;
+    }
+
+    /**
+     * Computes the kernel of a spot.
+     * The heat falls off in rings around the spot, the ring i interpolates between profile[i] and profile[i + 1].
+     * @param heatmapValues Values providing the grid size and the tiles
+     * @param spot Position of the spot
+     * @param profile Radial heat profile, see {@link #computeProfile(int)}
+     * @param ringWidth Width of a ring in cells
+     * @return Kernel of the spot, empty if the spot is outside of all tiles
+     */
+    public static HeatmapKernel compute(final HeatmapValues heatmapValues, final HeatmapSpot spot, final float[] profile, final double ringWidth) {
+        final int rings = profile.length - 1;
+        final int reach = (int) Math.ceil(ringWidth * rings);
+        final Rectangle region = new Rectangle(spot.x - reach, spot.y - reach, 2 * reach + 1, 2 * reach + 1)
+                .intersection(new Rectangle(0, 0, heatmapValues.getGrid().getRows(), heatmapValues.getGrid().getColumns()));
+        final int spotTileId = heatmapValues.getTileId(spot.x, spot.y);
+        if (spotTileId == HeatmapValues.NO_TILE || region.isEmpty()) {
+            return new HeatmapKernel(new Rectangle(), new int[0], new int[0], new int[]{0}, new float[0]);
+        }
+
+        // each row holds at most one run per tile crossing, so the row count is a good first guess.
+        int[] runRows = new int[region.width];
+        int[] runFirstColumns = new int[region.width];
+        int[] runStarts = new int[region.width + 1];
+        float[] weights = new float[region.width * region.height];
+        int runCount = 0;
+        int weightCount = 0;
+
+        for (int row = region.x; row < region.x + region.width; row++) {
+            boolean inRun = false;
+            for (int column = region.y; column < region.y + region.height; column++) {
+                final double deltaX = row - spot.x;
+                final double deltaY = column - spot.y;
+                final double ring = Math.sqrt((deltaX * deltaX) + (deltaY * deltaY)) / ringWidth;
+                final int stop = (int) ring;
+                float weight = 0;
+                if (stop < rings && heatmapValues.getTileId(row, column) == spotTileId) {
+                    weight = profile[stop] + (profile[stop + 1] - profile[stop]) * (float) (ring - stop);
+                }
+                if (weight <= 0) {
+                    inRun = false;
+                    continue;
+                }
+                if (!inRun) {
+                    if (runCount == runRows.length) {
+                        runRows = Arrays.copyOf(runRows, runCount * 2);
+                        runFirstColumns = Arrays.copyOf(runFirstColumns, runCount * 2);
+                        runStarts = Arrays.copyOf(runStarts, runCount * 2 + 1);
+                    }
+                    runRows[runCount] = row;
+                    runFirstColumns[runCount] = column;
+                    runStarts[runCount] = weightCount;
+                    runCount++;
+                    inRun = true;
+                }
+                weights[weightCount++] = weight;
+            }
+        }
+        runStarts[runCount] = weightCount;
+
+        return new HeatmapKernel(region,
+                Arrays.copyOf(runRows, runCount),
+                Arrays.copyOf(runFirstColumns, runCount),
+                Arrays.copyOf(runStarts, runCount + 1),
+                Arrays.copyOf(weights, weightCount));
+    }
+
+    /**
+     * @return Region containing all cells of the kernel
+     */
+    public Rectangle getRegion() {
+        return region;
+    }
+
+    /**
+     * @return Number of cells stored by the kernel
+     */
+    public int size() {
+        return weights.length;
+    }
+
+    /**
+     * Adds the scaled kernel to a field.
+     * @param field Field storing the cell of row r and column c at r * columns + c
+     * @param columns Number of columns of the field
+     * @param scale Value of the spot
+     * @param clip Region of cells which may be changed
+     */
+    public void addTo(final float[] field, final int columns, final float scale, final Rectangle clip) {
+        final int endRow = clip.x + clip.width;
+        final int endColumn = clip.y + clip.height;
+        for (int run = 0; run < runRows.length; run++) {
+            final int row = runRows[run];
+            if (row < clip.x || row >= endRow) {
+                continue;
+            }
+            final int firstColumn = runFirstColumns[run];
+            final int start = Math.max(firstColumn, clip.y);
+            final int end = Math.min(firstColumn + runStarts[run + 1] - runStarts[run], endColumn);
+            final int fieldOffset = row * columns;
+            final int weightOffset = runStarts[run] - firstColumn;
+            for (int column = start; column < end; column++) {
+                field[fieldOffset + column] += scale * weights[weightOffset + column];
+            }
+        }
+    }
+}
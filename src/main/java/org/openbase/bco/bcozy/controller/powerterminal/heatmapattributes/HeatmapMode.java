@@ -0,0 +1,16 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+/**
+ * Different methods to compute the heat of the heatmap.
+ */
+public enum HeatmapMode {
+    /**
+     * The heat is spread by diffusion steps around each changed spot and painted from the spread values.
+     */
+    DIFFUSION,
+    /**
+     * The heat is the sum of precomputed influence kernels of all spots scaled by their current value.
+     * The cost of an update only depends on the size of the kernels of the changed spots.
+     */
+    SUPERPOSITION;
+}
@@ -0,0 +1,202 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
+import org.openbase.jul.schedule.GlobalScheduledExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Plays a recorded series of spot values as a time-lapse on a {@link HeatmapRenderer}.
+ * <p>
+ * A background task computes the fields of the frames from the spot kernels ahead of time into a bounded frame
+ * cache, so the player only copies finished fields into the renderer. The buffers of played frames are handed back
+ * to the background task, so the playback does not allocate per frame.
+ */
+public class HeatmapPlayback {
+
+    /**
+     * Default number of frames computed ahead of the played frame.
+     */
+    public static final int DEFAULT_FRAME_CACHE_SIZE = 16;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HeatmapPlayback.class);
+
+    private final HeatmapRenderer renderer;
+    private final List<HeatmapSpot> spots;
+    private final Map<HeatmapSpot, HeatmapKernel> kernels;
+    private final long[] frameTimes;
+    private final float[][] spotValues;
+    private final long frameIntervalMilliseconds;
+    private final int frameCacheSize;
+    private final LongConsumer frameListener;
+    private final Runnable completionListener;
+
+    private Future<?> producer;
+    private ScheduledFuture<?> player;
+    private BlockingQueue<Frame> playedFrames;
+
+    /**
+     * Constructor
+     * @param renderer Renderer displaying the frames
+     * @param spots Spots of the heatmap
+     * @param kernels Kernel of each spot
+     * @param frameTimes Point in time of each frame in milliseconds since the unix epoch
+     * @param spotValues Value of each spot per frame, indexed by frame and position of the spot in the given list
+     * @param frameIntervalMilliseconds Time each frame is shown
+     * @param frameCacheSize Number of frames computed ahead of the played frame
+     * @param frameListener Listener called with the time of each played frame, may be null
+     * @param completionListener Listener called after the last frame was played, may be null
+     */
+    public HeatmapPlayback(final HeatmapRenderer renderer, final List<HeatmapSpot> spots, final Map<HeatmapSpot, HeatmapKernel> kernels,
+                           final long[] frameTimes, final float[][] spotValues, final long frameIntervalMilliseconds,
+                           final int frameCacheSize, final LongConsumer frameListener, final Runnable completionListener) {
+        this.renderer = renderer;
+        this.spots = spots;
+        this.kernels = kernels;
+        this.frameTimes = frameTimes;
+        this.spotValues = spotValues;
+        this.frameIntervalMilliseconds = Math.max(1, frameIntervalMilliseconds);
+        this.frameCacheSize = Math.max(1, frameCacheSize);
+        this.frameListener = frameListener;
+        this.completionListener = completionListener;
+    }
+
+    public int getFrameCount() {
+        return frameTimes.length;
+    }
+
+    /**
+     * Starts the playback at the given frame, a running playback is stopped before.
+     * @param firstFrame Index of the first played frame
+     * @throws NotAvailableException if the executors are not available
+     */
+    public synchronized void start(final int firstFrame) throws NotAvailableException {
+        stop();
+        if (firstFrame < 0 || firstFrame >= frameTimes.length) {
+            return;
+        }
+
+        // each start gets its own queues, so frames of a cancelled producer can never show up.
+        final BlockingQueue<float[]> freeFields = new ArrayBlockingQueue<>(frameCacheSize);
+        final BlockingQueue<Frame> readyFrames = new ArrayBlockingQueue<>(frameCacheSize);
+        for (int i = 0; i < frameCacheSize; i++) {
+            freeFields.add(new float[renderer.getRows() * renderer.getColumns()]);
+        }
+
+        producer = GlobalCachedExecutorService.submit(() -> {
+            try {
+                produceFrames(firstFrame, freeFields, readyFrames);
+            } catch (InterruptedException ex) {
+                // playback stopped
+                Thread.currentThread().interrupt();
+            }
+        });
+        playedFrames = readyFrames;
+        player = GlobalScheduledExecutorService.scheduleAtFixedRate(() -> playFrame(freeFields, readyFrames),
+                0, frameIntervalMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Continues the playback at the given frame.
+     * @param frame Index of the frame
+     * @throws NotAvailableException if the executors are not available
+     */
+    public void seek(final int frame) throws NotAvailableException {
+        start(Math.max(0, Math.min(frameTimes.length - 1, frame)));
+    }
+
+    /**
+     * Stops the playback, the last played frame stays visible.
+     */
+    public synchronized void stop() {
+        if (producer != null) {
+            producer.cancel(true);
+            producer = null;
+        }
+        if (player != null) {
+            player.cancel(false);
+            player = null;
+        }
+        playedFrames = null;
+    }
+
+    /**
+     * Stops the playback after its last frame and notifies the completion listener.
+     * Nothing happens if the playback was stopped or restarted while the frame was played.
+     */
+    private void complete(final BlockingQueue<Frame> readyFrames) {
+        synchronized (this) {
+            if (readyFrames != playedFrames) {
+                return;
+            }
+            stop();
+        }
+        if (completionListener != null) {
+            completionListener.run();
+        }
+    }
+
+    private void produceFrames(final int firstFrame, final BlockingQueue<float[]> freeFields, final BlockingQueue<Frame> readyFrames) throws InterruptedException {
+        final int columns = renderer.getColumns();
+        final Rectangle bounds = new Rectangle(0, 0, renderer.getRows(), columns);
+        for (int frame = firstFrame; frame < frameTimes.length; frame++) {
+            final float[] field = freeFields.take();
+            Arrays.fill(field, 0f);
+            final float[] values = spotValues[frame];
+            for (int spot = 0; spot < spots.size(); spot++) {
+                if (values[spot] > 0) {
+                    kernels.get(spots.get(spot)).addTo(field, columns, values[spot], bounds);
+                }
+            }
+            readyFrames.put(new Frame(frame, field));
+        }
+    }
+
+    private void playFrame(final BlockingQueue<float[]> freeFields, final BlockingQueue<Frame> readyFrames) {
+        final Frame frame = readyFrames.poll();
+        if (frame == null) {
+            // the producer is behind, the current frame stays visible a bit longer.
+            return;
+        }
+        try {
+            renderer.paint((field, rows, columns) -> {
+                System.arraycopy(frame.field, 0, field, 0, field.length);
+                return Collections.singletonList(new Rectangle(0, 0, rows, columns));
+            });
+            if (frameListener != null) {
+                frameListener.accept(frameTimes[frame.index]);
+            }
+        } catch (RuntimeException ex) {
+            ExceptionPrinter.printHistory("Could not play heatmap frame", ex, LOGGER);
+        } finally {
+            freeFields.offer(frame.field);
+        }
+        if (frame.index == frameTimes.length - 1) {
+            complete(readyFrames);
+        }
+    }
+
+    private static final class Frame {
+        private final int index;
+        private final float[] field;
+
+        private Frame(final int index, final float[] field) {
+            this.index = index;
+            this.field = field;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+
+import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Renders the intensity field of the heatmap into a single reusable image.
+ * <p>
+ * The field holds one intensity between 0 and 1 per grid cell, stored row by row like the {@link HeatmapDiffusion}.
+ * Row indices map to the x axis and column indices to the y axis of the image.
+ * Intensities are converted into colours through a precomputed lookup table and only the dirty regions of the
+ * {@link PixelBuffer} are converted and uploaded again.
+ * The field may be painted from any thread, the pixels are always written on the FX thread.
+ * <p>
+ * Painters write into a separate paint field without holding the lock of the renderer, so a long running painter
+ * never stalls the FX thread. Afterwards only the dirty regions are copied into the field read by the FX thread
+ * while holding the lock.
+ */
+public class HeatmapRenderer {
+
+    /**
+     * Number of entries of the colour lookup table.
+     */
+    private static final int LUT_SIZE = 256;
+
+    /**
+     * Gradient of the power heatmap from lime over yellow to red.
+     */
+    public static final List<Stop> DEFAULT_GRADIENT = Collections.unmodifiableList(Arrays.asList(
+            new Stop(0, Color.LIME), new Stop(0.8, Color.YELLOW), new Stop(1, Color.RED)));
+
+    private final int rows;
+    private final int columns;
+    private final float[] field;
+    private final float[] paintField;
+    private final Object paintLock = new Object();
+    private final int[] lut;
+    private final IntBuffer buffer;
+    private final PixelBuffer<IntBuffer> pixelBuffer;
+    private final WritableImage image;
+    private final List<Rectangle> dirtyRegions = new ArrayList<>();
+    private boolean renderScheduled;
+
+    /**
+     * Constructor
+     * @param rows Number of rows of the field and width of the image
+     * @param columns Number of columns of the field and height of the image
+     */
+    public HeatmapRenderer(final int rows, final int columns) {
+        this(rows, columns, DEFAULT_GRADIENT);
+    }
+
+    /**
+     * Constructor
+     * @param rows Number of rows of the field and width of the image
+     * @param columns Number of columns of the field and height of the image
+     * @param gradient Colours of the intensities, ascending by offset
+     */
+    public HeatmapRenderer(final int rows, final int columns, final List<Stop> gradient) {
+        this.rows = rows;
+        this.columns = columns;
+        this.field = new float[rows * columns];
+        this.paintField = new float[rows * columns];
+        this.lut = createLookupTable(gradient);
+        this.buffer = ByteBuffer.allocateDirect(rows * columns * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.pixelBuffer = new PixelBuffer<>(rows, columns, buffer, PixelFormat.getIntArgbPreInstance());
+        this.image = new WritableImage(pixelBuffer);
+    }
+
+    /**
+     * Maps the intensities to the colours of the gradient, the alpha channel follows the intensity.
+     * The colours are premultiplied as required by the pixel format of the buffer.
+     */
+    private static int[] createLookupTable(final List<Stop> gradient) {
+        final int[] lut = new int[LUT_SIZE];
+        for (int i = 0; i < LUT_SIZE; i++) {
+            final double intensity = (double) i / (LUT_SIZE - 1);
+            final Color color = getGradientColor(gradient, intensity);
+            final int alpha = (int) Math.round(intensity * 255);
+            lut[i] = alpha << 24
+                    | (int) Math.round(color.getRed() * alpha) << 16
+                    | (int) Math.round(color.getGreen() * alpha) << 8
+                    | (int) Math.round(color.getBlue() * alpha);
+        }
+        return lut;
+    }
+
+    private static Color getGradientColor(final List<Stop> gradient, final double offset) {
+        Stop lower = gradient.get(0);
+        for (Stop upper : gradient) {
+            if (upper.getOffset() >= offset) {
+                if (upper.getOffset() <= lower.getOffset()) {
+                    return upper.getColor();
+                }
+                return lower.getColor().interpolate(upper.getColor(), (offset - lower.getOffset()) / (upper.getOffset() - lower.getOffset()));
+            }
+            lower = upper;
+        }
+        return lower.getColor();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return Image displaying the field, updated in place by each render
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * Lets the painter modify the field and schedules the returned regions to be rendered on the FX thread.
+     * Concurrent painters are executed one after another, the painted field keeps its content between them.
+     * @param painter Painter writing the intensities of the cells into the field
+     */
+    public void paint(final FieldPainter painter) {
+        synchronized (paintLock) {
+            final Rectangle bounds = new Rectangle(0, 0, rows, columns);
+            final List<Rectangle> paintedRegions = new ArrayList<>();
+            for (Rectangle painted : painter.paint(paintField, rows, columns)) {
+                final Rectangle region = painted.intersection(bounds);
+                if (!region.isEmpty()) {
+                    paintedRegions.add(region);
+                }
+            }
+            if (!paintedRegions.isEmpty()) {
+                publish(paintedRegions);
+            }
+        }
+    }
+
+    /**
+     * Copies the painted regions into the rendered field and schedules the rendering.
+     */
+    private synchronized void publish(final List<Rectangle> paintedRegions) {
+        for (Rectangle region : GridRegions.merge(paintedRegions)) {
+            final int endRow = region.x + region.width;
+            for (int row = region.x; row < endRow; row++) {
+                final int offset = row * columns + region.y;
+                System.arraycopy(paintField, offset, field, offset, region.height);
+            }
+            dirtyRegions.add(region);
+        }
+        if (!renderScheduled) {
+            renderScheduled = true;
+            Platform.runLater(this::render);
+        }
+    }
+
+    private synchronized void render() {
+        renderScheduled = false;
+        if (dirtyRegions.isEmpty()) {
+            return;
+        }
+        pixelBuffer.updateBuffer(updatedBuffer -> {
+            Rectangle uploadRegion = null;
+            for (Rectangle region : GridRegions.merge(dirtyRegions)) {
+                convert(region);
+                uploadRegion = uploadRegion == null ? region : uploadRegion.union(region);
+            }
+            dirtyRegions.clear();
+            return new Rectangle2D(uploadRegion.x, uploadRegion.y, uploadRegion.width, uploadRegion.height);
+        });
+    }
+
+    private void convert(final Rectangle region) {
+        final int endRow = region.x + region.width;
+        final int endColumn = region.y + region.height;
+        for (int column = region.y; column < endColumn; column++) {
+            final int lineStart = column * rows;
+            for (int row = region.x; row < endRow; row++) {
+                final int index = (int) (field[row * columns + column] * (LUT_SIZE - 1));
+                buffer.put(lineStart + row, lut[Math.max(0, Math.min(LUT_SIZE - 1, index))]);
+            }
+        }
+    }
+
+    /**
+     * Writes intensities into the field of a renderer.
+     */
+    public interface FieldPainter {
+
+        /**
+         * @param field Intensities of the cells, the cell of row r and column c is stored at r * columns + c
+         * @param rows Number of rows of the field
+         * @param columns Number of columns of the field
+         * @return Regions of cells which changed, x and width refer to rows, y and height to columns
+         */
+        List<Rectangle> paint(float[] field, int rows, int columns);
+    }
+}
@@ -1,6 +1,6 @@
 package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
 
-import javafx.geometry.Point2D;
+import org.openbase.bco.bcozy.util.ShapeGeometry;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -9,31 +9,99 @@ import java.util.List;
 
 /**
  * Datatype containing the relevant heatmap values like a list of the locations, a list with the spots,
- * the matrix for calulating the heatmap and the x and y Translation of the locations
+ * the matrix for calulating the heatmap and the x and y Translation of the locations.
+ * <p>
+ * The locations are rasterized into a mask of tile ids at the resolution of the grid, so testing whether a point
+ * belongs to the same tile as a spot is a single array lookup.
+ * The locations are given in pixels while the grid may be coarser, a cell covers pixelsPerCell pixels in each
+ * direction.
  */
 public class HeatmapValues {
-    private List<Polygon> locations;
+
+    /**
+     * Tile id of grid cells not covered by any tile.
+     */
+    public static final int NO_TILE = 0;
+
+    private final double xTranslation;
+    private final double yTranslation;
+    private final double pixelsPerCell;
+    private volatile List<Polygon> locations;
+    private volatile short[] tileMask;
     private List<HeatmapSpot> spots;
-    private double[][] grid;
+    private HeatmapDiffusion grid;
 
-    public HeatmapValues(List<List<Point2D>> locationPoints, List<HeatmapSpot> spots, double[][] grid, double xTranslation, double yTranslation) {
-        this.locations = generatePolygons(locationPoints, xTranslation, yTranslation);
+    public HeatmapValues(List<ShapeGeometry> locationGeometries, List<HeatmapSpot> spots, HeatmapDiffusion grid, double xTranslation, double yTranslation) {
+        this(locationGeometries, spots, grid, xTranslation, yTranslation, 1);
+    }
+
+    public HeatmapValues(List<ShapeGeometry> locationGeometries, List<HeatmapSpot> spots, HeatmapDiffusion grid, double xTranslation, double yTranslation, double pixelsPerCell) {
+        this.pixelsPerCell = pixelsPerCell;
+        this.xTranslation = xTranslation;
+        this.yTranslation = yTranslation;
         this.spots = spots;
         this.grid = grid;
+        setLocations(locationGeometries);
     }
 
-    private List<Polygon> generatePolygons(List<List<Point2D>> locationPoints, double xTranslation, double yTranslation) {
+    /**
+     * Replaces the locations and rasterizes them into the tile mask.
+     *
+     * @param locationGeometries Shape of each location
+     */
+    public void setLocations(List<ShapeGeometry> locationGeometries) {
+        final List<Polygon> polygons = generatePolygons(locationGeometries, xTranslation, yTranslation);
+        this.tileMask = rasterize(polygons);
+        this.locations = polygons;
+    }
+
+    private List<Polygon> generatePolygons(List<ShapeGeometry> locationGeometries, double xTranslation, double yTranslation) {
         List<Polygon> locationTemp = new ArrayList<>();
+        if (locationGeometries == null) {
+            return locationTemp;
+        }
 
-        for (List<Point2D> locationPoint : locationPoints) {
-            Polygon temp = new Polygon();
-            for (Point2D point2D : locationPoint)
-                temp.addPoint((int) (point2D.getY() + yTranslation), (int) (point2D.getX() + xTranslation));
-            locationTemp.add(temp);
+        for (ShapeGeometry locationGeometry : locationGeometries) {
+            final int vertexCount = locationGeometry.getVertexCount();
+            final int[] xPoints = new int[vertexCount];
+            final int[] yPoints = new int[vertexCount];
+            for (int i = 0; i < vertexCount; i++) {
+                xPoints[i] = (int) (locationGeometry.getY(i) + yTranslation);
+                yPoints[i] = (int) (locationGeometry.getX(i) + xTranslation);
+            }
+            locationTemp.add(new Polygon(xPoints, yPoints, vertexCount));
         }
         return locationTemp;
     }
 
+    /**
+     * Marks every grid cell with the id of the first polygon containing the pixel at the origin of the cell.
+     * Ids start at one in the order of the polygons, {@link #NO_TILE} marks cells outside of all polygons.
+     */
+    private short[] rasterize(List<Polygon> polygons) {
+        final int rows = grid.getRows();
+        final int columns = grid.getColumns();
+        final short[] mask = new short[rows * columns];
+        final int tileCount = Math.min(polygons.size(), Short.MAX_VALUE);
+        for (int tile = 0; tile < tileCount; tile++) {
+            final Polygon polygon = polygons.get(tile);
+            final Rectangle bounds = polygon.getBounds();
+            final int firstRow = Math.max(0, (int) Math.floor(bounds.x / pixelsPerCell));
+            final int endRow = Math.min(rows, (int) Math.ceil((bounds.x + bounds.width) / pixelsPerCell) + 1);
+            final int firstColumn = Math.max(0, (int) Math.floor(bounds.y / pixelsPerCell));
+            final int endColumn = Math.min(columns, (int) Math.ceil((bounds.y + bounds.height) / pixelsPerCell) + 1);
+            for (int row = firstRow; row < endRow; row++) {
+                for (int column = firstColumn; column < endColumn; column++) {
+                    final int index = row * columns + column;
+                    if (mask[index] == NO_TILE && polygon.contains(row * pixelsPerCell, column * pixelsPerCell)) {
+                        mask[index] = (short) (tile + 1);
+                    }
+                }
+            }
+        }
+        return mask;
+    }
+
     public List<Polygon> getLocations() {
         return locations;
     }
@@ -42,32 +110,44 @@ public class HeatmapValues {
         return spots;
     }
 
-    public double[][] getGrid() {
-        return grid;
+    /**
+     * @return Size of a grid cell in pixels
+     */
+    public double getPixelsPerCell() {
+        return pixelsPerCell;
     }
 
-    public void setGrid(double[][] uNew) {
-        this.grid = uNew;
+    public HeatmapDiffusion getGrid() {
+        return grid;
     }
 
     public void setSpots(List<HeatmapSpot> spotsNew) {
         this.spots = spotsNew;
     }
 
-    public boolean isInsideLocation(double x, double y, double centerx, double centery) {
-        for (Polygon location : locations) {
-            if (location.contains(centerx, centery) && location.contains(x, y))
-                return true;
+    /**
+     * Returns the id of the tile containing the given grid cell.
+     *
+     * @param x Row of the cell
+     * @param y Column of the cell
+     *
+     * @return The tile id or {@link #NO_TILE} if the cell is outside of all tiles or the grid
+     */
+    public int getTileId(int x, int y) {
+        final short[] mask = tileMask;
+        final int columns = grid.getColumns();
+        if (x < 0 || y < 0 || x >= grid.getRows() || y >= columns) {
+            return NO_TILE;
         }
-        return false;
+        return mask[x * columns + y];
     }
 
-    public boolean isInsideLocation(double centerX, double centerY) {
-        for (Polygon location : locations) {
-            if (location.contains(centerX, centerY)) {
-                return true;
-            }
-        }
-        return false;
+    public boolean isInsideLocation(int x, int y, int centerx, int centery) {
+        final int centerTileId = getTileId(centerx, centery);
+        return centerTileId != NO_TILE && centerTileId == getTileId(x, y);
+    }
+
+    public boolean isInsideLocation(int centerX, int centerY) {
+        return getTileId(centerX, centerY) != NO_TILE;
     }
 }
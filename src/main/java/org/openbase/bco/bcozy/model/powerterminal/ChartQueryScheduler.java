@@ -0,0 +1,343 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.DateRange;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Schedules the database queries of a single chart, so only the result of the latest chart state is displayed.
+ * <p>
+ * Bursts of state changes are debounced into one query, a request matching the query in flight is attached to it
+ * instead of starting a new one and a query that is superseded by a different request is cancelled.
+ * <p>
+ * Live consumption updates are merged into at most one update per {@link #DEFAULT_LIVE_UPDATE_INTERVAL_MILLISECONDS}.
+ * As long as the still open last window of the displayed series is covered by the {@link LiveConsumptionStream}, only
+ * this window is recalculated from memory, otherwise the data is queried again.
+ */
+public class ChartQueryScheduler {
+
+    public static final long DEFAULT_DEBOUNCE_MILLISECONDS = 250;
+
+    public static final long DEFAULT_LIVE_UPDATE_INTERVAL_MILLISECONDS = 5000;
+
+    private static final Executor LIVE_UPDATE_EXECUTOR = CompletableFuture.delayedExecutor(DEFAULT_LIVE_UPDATE_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+    /**
+     * Queries the {@link PowerTerminalDBService} using its default deadline.
+     */
+    private static final ConsumptionQuery DATABASE_QUERY = new ConsumptionQuery() {
+        @Override
+        public CompletableFuture<ConsumptionSeries> getAverageConsumption(final DateRange dateRange, final String unitId, final BucketPlan bucketPlan) {
+            return PowerTerminalDBService.getAverageConsumption(dateRange, unitId, bucketPlan,
+                    PowerTerminalDBService.DEFAULT_QUERY_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public CompletableFuture<ConsumptionSeries> getAverageConsumption(final Timestamp startTime, final Timestamp endTime, final String unitId, final BucketPlan bucketPlan) {
+            return PowerTerminalDBService.getAverageConsumption(startTime, endTime, unitId, bucketPlan,
+                    PowerTerminalDBService.DEFAULT_QUERY_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    private final Executor debounceExecutor;
+    private final Function<DateRange, BucketPlan> bucketPlanner;
+    private final ConsumptionQuery consumptionQuery;
+
+    private long requestGeneration;
+    private QueryKey inFlightKey;
+    private CompletableFuture<ConsumptionSeries> inFlightQuery;
+    private Consumer<ConsumptionSeries> inFlightResultHandler;
+    private long dispatchedGeneration;
+
+    private QueryKey deliveredKey;
+    private ConsumptionSeries deliveredSeries;
+
+    private boolean liveUpdatePending;
+    private ChartStateModel liveUpdateStateModel;
+    private Consumer<ConsumptionSeries> liveUpdateResultHandler;
+
+    public ChartQueryScheduler() {
+        this(BucketPlan.DEFAULT_CHART_WIDTH);
+    }
+
+    /**
+     * Constructor
+     * @param chartWidth Width of the chart in pixels, used to plan the aggregation windows of the queries
+     */
+    public ChartQueryScheduler(final int chartWidth) {
+        this(chartWidth, DEFAULT_DEBOUNCE_MILLISECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param chartWidth Width of the chart in pixels, used to plan the aggregation windows of the queries
+     * @param debounceMilliseconds Time a request is delayed to be merged with following requests
+     */
+    public ChartQueryScheduler(final int chartWidth, final long debounceMilliseconds) {
+        this(dateRange -> BucketPlan.forDateRange(dateRange, chartWidth), debounceMilliseconds);
+    }
+
+    /**
+     * Constructor
+     * @param bucketPlanner Plans the aggregation windows of the queried DateRange
+     */
+    public ChartQueryScheduler(final Function<DateRange, BucketPlan> bucketPlanner) {
+        this(bucketPlanner, DEFAULT_DEBOUNCE_MILLISECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param bucketPlanner Plans the aggregation windows of the queried DateRange
+     * @param debounceMilliseconds Time a request is delayed to be merged with following requests
+     */
+    public ChartQueryScheduler(final Function<DateRange, BucketPlan> bucketPlanner, final long debounceMilliseconds) {
+        this(bucketPlanner, debounceMilliseconds, DATABASE_QUERY);
+    }
+
+    /**
+     * Constructor
+     * @param bucketPlanner Plans the aggregation windows of the queried DateRange
+     * @param debounceMilliseconds Time a request is delayed to be merged with following requests
+     * @param consumptionQuery Performs the queries
+     */
+    public ChartQueryScheduler(final Function<DateRange, BucketPlan> bucketPlanner, final long debounceMilliseconds, final ConsumptionQuery consumptionQuery) {
+        this.bucketPlanner = bucketPlanner;
+        this.consumptionQuery = consumptionQuery;
+        this.debounceExecutor = CompletableFuture.delayedExecutor(debounceMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Requests the data of the current chart state.
+     * The result handler is only called if no newer request was made in the meantime.
+     *
+     * @param chartStateModel ChartStateModel describing the data to load
+     * @param resultHandler Handler receiving the loaded data, called on a pool thread
+     */
+    public synchronized void schedule(final ChartStateModel chartStateModel, final Consumer<ConsumptionSeries> resultHandler) {
+        final DateRange dateRange = chartStateModel.getDateRange();
+        final String unitId = chartStateModel.getSelectedConsumer();
+        schedule(new QueryKey(dateRange, unitId), () -> consumptionQuery.getAverageConsumption(dateRange, unitId, bucketPlanner.apply(dateRange)), resultHandler);
+    }
+
+    /**
+     * Requests the data of a period independent of the DateRange of the chart, e.g. the part of it currently visible.
+     * The result handler is only called if no newer request was made in the meantime.
+     *
+     * @param startTime Start of the period
+     * @param endTime End of the period
+     * @param unitId Id of the consumer
+     * @param bucketPlan BucketPlan describing the aggregation windows
+     * @param resultHandler Handler receiving the loaded data, called on a pool thread
+     */
+    public synchronized void schedule(final Timestamp startTime, final Timestamp endTime, final String unitId, final BucketPlan bucketPlan, final Consumer<ConsumptionSeries> resultHandler) {
+        schedule(new QueryKey(startTime, endTime, bucketPlan.getBucketDurationSeconds(), unitId),
+                () -> consumptionQuery.getAverageConsumption(startTime, endTime, unitId, bucketPlan), resultHandler);
+    }
+
+    private void schedule(final QueryKey key, final Supplier<CompletableFuture<ConsumptionSeries>> querySupplier, final Consumer<ConsumptionSeries> resultHandler) {
+        final long generation = ++requestGeneration;
+        debounceExecutor.execute(() -> dispatch(generation, key, querySupplier, resultHandler));
+    }
+
+    /**
+     * Requests an update after the live consumption of the displayed consumer changed.
+     * All requests within {@link #DEFAULT_LIVE_UPDATE_INTERVAL_MILLISECONDS} are merged into a single update.
+     *
+     * @param chartStateModel ChartStateModel describing the displayed data
+     * @param resultHandler Handler receiving the updated data, called on a pool thread
+     */
+    public synchronized void scheduleLiveUpdate(final ChartStateModel chartStateModel, final Consumer<ConsumptionSeries> resultHandler) {
+        liveUpdateStateModel = chartStateModel;
+        liveUpdateResultHandler = resultHandler;
+        if (liveUpdatePending) {
+            return;
+        }
+        liveUpdatePending = true;
+        LIVE_UPDATE_EXECUTOR.execute(this::dispatchLiveUpdate);
+    }
+
+    /**
+     * Cancels the query in flight and drops all pending requests.
+     */
+    public synchronized void cancel() {
+        requestGeneration++;
+        if (inFlightQuery != null) {
+            inFlightQuery.cancel(true);
+        }
+        inFlightQuery = null;
+        inFlightKey = null;
+        inFlightResultHandler = null;
+        deliveredKey = null;
+        deliveredSeries = null;
+        liveUpdateStateModel = null;
+        liveUpdateResultHandler = null;
+    }
+
+    private void dispatchLiveUpdate() {
+        final ConsumptionSeries updatedSeries;
+        final Consumer<ConsumptionSeries> resultHandler;
+        synchronized (this) {
+            liveUpdatePending = false;
+            final ChartStateModel chartStateModel = liveUpdateStateModel;
+            resultHandler = liveUpdateResultHandler;
+            if (chartStateModel == null) {
+                return;
+            }
+
+            // pending or running queries deliver up to date data anyway.
+            if (dispatchedGeneration != requestGeneration || (inFlightQuery != null && !inFlightQuery.isDone())) {
+                return;
+            }
+
+            // ranges ending before today do not change anymore.
+            final DateRange dateRange = chartStateModel.getDateRange();
+            if (dateRange.getEndDate().isBefore(LocalDate.now())) {
+                return;
+            }
+
+            updatedSeries = updateOpenWindow(chartStateModel);
+            if (updatedSeries == null) {
+                schedule(chartStateModel, resultHandler);
+                return;
+            }
+            deliveredSeries = updatedSeries;
+        }
+        resultHandler.accept(updatedSeries);
+    }
+
+    /**
+     * Recalculates the last window of the delivered series from the live stream.
+     *
+     * @return The updated series or null if the series has to be queried again
+     */
+    private ConsumptionSeries updateOpenWindow(final ChartStateModel chartStateModel) {
+        final DateRange dateRange = chartStateModel.getDateRange();
+        final QueryKey key = new QueryKey(dateRange, chartStateModel.getSelectedConsumer());
+
+        // the current consumption is served from the stream by the service without a database query.
+        if (dateRange.isEmpty() || deliveredSeries == null || deliveredSeries.isEmpty() || !key.equals(deliveredKey)) {
+            return null;
+        }
+
+        final long now = System.currentTimeMillis();
+        final long windowStart = deliveredSeries.getTimestamp(deliveredSeries.size() - 1);
+        final long windowEnd = windowStart + TimeUnit.SECONDS.toMillis(deliveredSeries.getBucketPlan().getBucketDurationSeconds());
+        if (now >= windowEnd) {
+            // a new window started, which is not part of the delivered series yet.
+            return null;
+        }
+        final Double value = LiveConsumptionStream.getAverageConsumption(key.unitId, windowStart, now);
+        return value == null ? null : deliveredSeries.withLastValue(value);
+    }
+
+    private synchronized void dispatch(final long generation, final QueryKey key, final Supplier<CompletableFuture<ConsumptionSeries>> querySupplier, final Consumer<ConsumptionSeries> resultHandler) {
+
+        // skip request if superseded during the debounce delay.
+        if (generation != requestGeneration) {
+            return;
+        }
+        dispatchedGeneration = generation;
+
+        if (inFlightQuery != null && !inFlightQuery.isDone()) {
+            if (key.equals(inFlightKey)) {
+                // the running query already loads the requested data, so only the handler is replaced.
+                inFlightResultHandler = resultHandler;
+                return;
+            }
+            inFlightQuery.cancel(true);
+        }
+
+        final CompletableFuture<ConsumptionSeries> query = querySupplier.get();
+        inFlightKey = key;
+        inFlightQuery = query;
+        inFlightResultHandler = resultHandler;
+        query.thenAccept(data -> deliver(query, data));
+    }
+
+    private void deliver(final CompletableFuture<ConsumptionSeries> query, final ConsumptionSeries data) {
+        final Consumer<ConsumptionSeries> resultHandler;
+        synchronized (this) {
+            if (query != inFlightQuery) {
+                return;
+            }
+            resultHandler = inFlightResultHandler;
+            deliveredKey = inFlightKey;
+            deliveredSeries = data;
+        }
+        resultHandler.accept(data);
+    }
+
+    /**
+     * Identifies the data of a query, either by the DateRange of the chart or by an explicit period and window duration.
+     */
+    private static final class QueryKey {
+        private final Object start;
+        private final Object end;
+        private final long bucketDurationSeconds;
+        private final String unitId;
+
+        private QueryKey(final DateRange dateRange, final String unitId) {
+            this.start = dateRange.getStartDate();
+            this.end = dateRange.getEndDate();
+            this.bucketDurationSeconds = 0;
+            this.unitId = unitId;
+        }
+
+        private QueryKey(final Timestamp startTime, final Timestamp endTime, final long bucketDurationSeconds, final String unitId) {
+            this.start = startTime;
+            this.end = endTime;
+            this.bucketDurationSeconds = bucketDurationSeconds;
+            this.unitId = unitId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof QueryKey)) {
+                return false;
+            }
+            QueryKey other = (QueryKey) o;
+            return Objects.equals(start, other.start) && Objects.equals(end, other.end)
+                    && bucketDurationSeconds == other.bucketDurationSeconds && Objects.equals(unitId, other.unitId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end, bucketDurationSeconds, unitId);
+        }
+    }
+
+    /**
+     * Performs the queries of a scheduler, cancelling a returned future has to cancel its query.
+     */
+    public interface ConsumptionQuery {
+
+        /**
+         * @param dateRange DateRange of the chart
+         * @param unitId Id of the consumer
+         * @param bucketPlan BucketPlan describing the aggregation windows
+         * @return Future of the average consumption, never completed exceptionally
+         */
+        CompletableFuture<ConsumptionSeries> getAverageConsumption(DateRange dateRange, String unitId, BucketPlan bucketPlan);
+
+        /**
+         * @param startTime Start of the period
+         * @param endTime End of the period
+         * @param unitId Id of the consumer
+         * @param bucketPlan BucketPlan describing the aggregation windows
+         * @return Future of the average consumption, never completed exceptionally
+         */
+        CompletableFuture<ConsumptionSeries> getAverageConsumption(Timestamp startTime, Timestamp endTime, String unitId, BucketPlan bucketPlan);
+    }
+}
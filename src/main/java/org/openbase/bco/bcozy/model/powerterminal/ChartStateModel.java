@@ -1,7 +1,13 @@
 package org.openbase.bco.bcozy.model.powerterminal;
 
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.LongProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.*;
 
@@ -9,10 +15,19 @@ import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.*;
  * Stores the state of the displayed power draw chart.
  */
 public class ChartStateModel {
+
+    /**
+     * Default factor the heatmap playback is faster than real time, a day is played in four minutes.
+     */
+    public static final double DEFAULT_PLAYBACK_SPEED = 360;
+
     private ObjectProperty<VisualizationType> visualizationTypeProperty = new SimpleObjectProperty<>(VisualizationType.LINE_CHART);
     private ObjectProperty<SymbolUnit> unitProperty;
     private ReadOnlyStringProperty selectedConsumerProperty;
     private ObjectProperty<DateRange> dateRangeProperty;
+    private final BooleanProperty playbackActiveProperty = new SimpleBooleanProperty(false);
+    private final DoubleProperty playbackSpeedProperty = new SimpleDoubleProperty(DEFAULT_PLAYBACK_SPEED);
+    private final LongProperty playbackTimeProperty = new SimpleLongProperty();
 
     public ChartStateModel(ObjectProperty<SymbolUnit> unitProperty, ReadOnlyStringProperty selectedConsumerProperty, ObjectProperty<DateRange> dateRangeProperty) {
         this.unitProperty = unitProperty;
@@ -51,4 +66,35 @@ public class ChartStateModel {
     public ObjectProperty<DateRange> dateRangeProperty() {
         return dateRangeProperty;
     }
+
+    public boolean isPlaybackActive() {
+        return playbackActiveProperty.get();
+    }
+
+    /**
+     * Describes if the heatmap plays back the DateRange instead of showing the live consumption.
+     * The heatmap resets it after the playback finished.
+     * @return The property
+     */
+    public BooleanProperty playbackActiveProperty() {
+        return playbackActiveProperty;
+    }
+
+    public double getPlaybackSpeed() {
+        return playbackSpeedProperty.get();
+    }
+
+    /**
+     * @return Property of the factor the heatmap playback is faster than real time
+     */
+    public DoubleProperty playbackSpeedProperty() {
+        return playbackSpeedProperty;
+    }
+
+    /**
+     * @return Property of the time of the played frame in milliseconds since the unix epoch, 0 before the first frame
+     */
+    public LongProperty playbackTimeProperty() {
+        return playbackTimeProperty;
+    }
 }
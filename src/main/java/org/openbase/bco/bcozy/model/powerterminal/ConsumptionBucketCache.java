@@ -0,0 +1,114 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded LRU cache for average consumption values of closed aggregation windows.
+ * Values of a window never change once it is closed, so they can be kept until they are evicted.
+ */
+public class ConsumptionBucketCache {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * Time after the end of a window until it counts as closed, so measurements arriving late are still included.
+     */
+    public static final long SETTLE_MARGIN_SECONDS = 900;
+
+    /**
+     * Value of a closed window without any measurement, cached so the window is not queried again.
+     */
+    public static final double NO_DATA = Double.NaN;
+
+    private final Map<BucketKey, Double> buckets;
+
+    public ConsumptionBucketCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     * @param capacity Maximal number of buckets kept before the least recently used ones are evicted
+     */
+    public ConsumptionBucketCache(final int capacity) {
+        this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BucketKey, Double> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value of the window starting at the given aligned point in time.
+     * @param unitId Id of the consumer or one of the aggregated consumption ids
+     * @param bucketDuration Window length in seconds
+     * @param bucketStart Aligned window start in seconds since the unix epoch
+     * @return The cached value or null if the window is not cached
+     */
+    public synchronized Double get(final String unitId, final long bucketDuration, final long bucketStart) {
+        return buckets.get(new BucketKey(unitId, bucketDuration, bucketStart));
+    }
+
+    /**
+     * Stores the value of a closed window.
+     * @param unitId Id of the consumer or one of the aggregated consumption ids
+     * @param bucketDuration Window length in seconds
+     * @param bucketStart Aligned window start in seconds since the unix epoch
+     * @param value Average consumption of the window or {@link #NO_DATA}
+     */
+    public synchronized void put(final String unitId, final long bucketDuration, final long bucketStart, final double value) {
+        buckets.put(new BucketKey(unitId, bucketDuration, bucketStart), value);
+    }
+
+    public synchronized int size() {
+        return buckets.size();
+    }
+
+    public synchronized void clear() {
+        buckets.clear();
+    }
+
+    /**
+     * Checks if the window starting at the given aligned point in time is already closed.
+     * A window is closed once {@link #SETTLE_MARGIN_SECONDS} passed after its end.
+     * @param bucketDuration Window length in seconds
+     * @param bucketStart Aligned window start in seconds since the unix epoch
+     * @param nowInSeconds Current time in seconds since the unix epoch
+     * @return true if no further data can arrive for the window
+     */
+    public static boolean isClosed(final long bucketDuration, final long bucketStart, final long nowInSeconds) {
+        return bucketStart + bucketDuration + SETTLE_MARGIN_SECONDS <= nowInSeconds;
+    }
+
+    private static final class BucketKey {
+        private final String unitId;
+        private final long bucketDuration;
+        private final long bucketStart;
+
+        private BucketKey(final String unitId, final long bucketDuration, final long bucketStart) {
+            this.unitId = unitId;
+            this.bucketDuration = bucketDuration;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return bucketStart == other.bucketStart && bucketDuration == other.bucketDuration && unitId.equals(other.unitId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(unitId, bucketDuration, bucketStart);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+/**
+ * Fixed capacity ring buffer of consumption samples backed by primitive arrays.
+ * <p>
+ * The consumption of a unit is treated as a step function, each sample is valid until the next one arrives.
+ * Samples repeating the previous value are therefore dropped, so a buffer covers a longer period for stable consumers.
+ * Once the buffer is full the oldest samples are overwritten.
+ */
+public class ConsumptionRingBuffer {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final long[] timestamps;
+    private final double[] values;
+    private int head;
+    private int count;
+
+    public ConsumptionRingBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     * @param capacity Maximal number of kept samples
+     */
+    public ConsumptionRingBuffer(final int capacity) {
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Appends a sample.
+     * Samples older than the latest one are ignored.
+     * @param timestamp Time the value was measured in milliseconds since the unix epoch
+     * @param value Consumption in watt
+     */
+    public synchronized void append(final long timestamp, final double value) {
+        if (count > 0) {
+            final int latest = index(count - 1);
+            if (timestamp < timestamps[latest] || Double.compare(value, values[latest]) == 0) {
+                return;
+            }
+        }
+        timestamps[(head + count) % timestamps.length] = timestamp;
+        values[(head + count) % values.length] = value;
+        if (count < timestamps.length) {
+            count++;
+        } else {
+            head = (head + 1) % timestamps.length;
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Returns the time from which on the buffer describes the consumption without gaps.
+     * @return Timestamp of the oldest sample in milliseconds or {@link Long#MAX_VALUE} if the buffer is empty
+     */
+    public synchronized long getOldestTimestamp() {
+        return count == 0 ? Long.MAX_VALUE : timestamps[head];
+    }
+
+    /**
+     * Returns the most recent value.
+     * @return The value or null if the buffer is empty
+     */
+    public synchronized Double getLatestValue() {
+        return count == 0 ? null : values[index(count - 1)];
+    }
+
+    /**
+     * Calculates the time weighted average consumption of the given period.
+     * @param from Start of the period in milliseconds since the unix epoch
+     * @param to End of the period in milliseconds since the unix epoch
+     * @return The average or null if the buffer does not cover the start of the period
+     */
+    public synchronized Double getAverage(final long from, final long to) {
+        if (count == 0 || timestamps[head] > from || to <= from) {
+            return null;
+        }
+        double weightedSum = 0;
+        for (int i = findLatestAtOrBefore(from); i < count; i++) {
+            final long sampleStart = Math.max(from, timestamps[index(i)]);
+            final long sampleEnd = i + 1 < count ? Math.min(to, timestamps[index(i + 1)]) : to;
+            if (sampleStart >= to) {
+                break;
+            }
+            weightedSum += values[index(i)] * (sampleEnd - sampleStart);
+        }
+        return weightedSum / (to - from);
+    }
+
+    /**
+     * Binary search for the latest sample taken at or before the given time.
+     * @return Logical index of the sample or 0 if all samples are newer
+     */
+    private int findLatestAtOrBefore(final long time) {
+        int low = 0;
+        int high = count - 1;
+        int result = 0;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (timestamps[index(middle)] <= time) {
+                result = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return result;
+    }
+
+    private int index(final int logicalIndex) {
+        return (head + logicalIndex) % timestamps.length;
+    }
+}
@@ -0,0 +1,299 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.Interval;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local on-disk store for average consumption values of closed aggregation windows.
+ * <p>
+ * Each unit and window duration is stored in its own memory mapped file of fixed width records. The file starts with
+ * the start of the window of its first record, which is the first window ever stored, and is grown to the front or
+ * to the end as earlier or later windows are stored. A record consists of the window start and the time it was
+ * stored in seconds followed by the value, a record with a window start of zero is empty. This way historic data
+ * survives restarts and can be read without any database query.
+ * <p>
+ * Only the window durations of the {@link #STORED_INTERVALS} are stored. Unit ids are only unique within one BCO
+ * instance, so each instance gets its own directory. Records expire after {@link #DEFAULT_MAX_AGE_SECONDS} and files of
+ * an older {@link #FORMAT_VERSION} are ignored.
+ */
+public class ConsumptionRollupStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsumptionRollupStore.class);
+
+    public static final File DEFAULT_DIRECTORY = new File(System.getProperty("user.home"), ".cache/bcozy/consumption");
+
+    /**
+     * Version of the file layout, part of the file names so files of other versions are never read.
+     */
+    public static final int FORMAT_VERSION = 3;
+
+    /**
+     * Time after which stored records are not trusted anymore and queried again, 30 days.
+     */
+    public static final long DEFAULT_MAX_AGE_SECONDS = 2592000L;
+
+    /**
+     * Intervals whose windows are stored, windows of other durations are always queried.
+     */
+    public static final Set<Interval> STORED_INTERVALS = Collections.unmodifiableSet(EnumSet.of(Interval.HOURLY, Interval.DAILY, Interval.WEEKLY, Interval.MONTHLY));
+
+    static final int HEADER_SIZE = Long.BYTES;
+    static final int RECORD_SIZE = Long.BYTES + Long.BYTES + Double.BYTES;
+    private static final int GROWTH_IN_RECORDS = 64;
+    private static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+    private static final String FILE_SUFFIX = ".rollup";
+    private static final long NOT_ALIGNED = Long.MIN_VALUE;
+
+    private final File directory;
+    private final long maxAgeSeconds;
+    private final Map<String, MappedByteBuffer> bufferMap = new HashMap<>();
+    private boolean available = true;
+
+    /**
+     * Constructor
+     * @param directory Directory containing the store files, created if missing
+     */
+    public ConsumptionRollupStore(final File directory) {
+        this(directory, DEFAULT_MAX_AGE_SECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param directory Directory containing the store files, created if missing
+     * @param maxAgeSeconds Time after which stored records expire
+     */
+    public ConsumptionRollupStore(final File directory, final long maxAgeSeconds) {
+        this.directory = directory;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    /**
+     * Creates the store of the given BCO instance within the {@link #DEFAULT_DIRECTORY}.
+     * @param instanceId Id identifying the BCO instance, e.g. the id of its root location
+     * @return The store
+     */
+    public static ConsumptionRollupStore forInstance(final String instanceId) {
+        return new ConsumptionRollupStore(new File(DEFAULT_DIRECTORY, toFileName(instanceId)));
+    }
+
+    /**
+     * Checks if windows of the given duration are stored.
+     * @param bucketDuration Window length in seconds
+     * @return true if the duration is the one of a {@link #STORED_INTERVALS}
+     */
+    public static boolean isStored(final long bucketDuration) {
+        for (Interval interval : STORED_INTERVALS) {
+            if (interval.getBucketDurationSeconds() == bucketDuration) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the stored value of the window starting at the given aligned point in time.
+     * @param unitId Id of the consumer or one of the aggregated consumption ids
+     * @param bucketDuration Window length in seconds
+     * @param bucketStart Aligned window start in seconds since the unix epoch
+     * @param nowInSeconds Current time in seconds since the unix epoch
+     * @return The stored value or null if the window is not stored, expired or was stored before it was closed
+     */
+    public synchronized Double get(final String unitId, final long bucketDuration, final long bucketStart, final long nowInSeconds) {
+        if (!available || !isStored(bucketDuration)) {
+            return null;
+        }
+        try {
+            final MappedByteBuffer buffer = getBuffer(getFileName(unitId, bucketDuration));
+            if (buffer == null) {
+                return null;
+            }
+            final long index = getRecordIndex(buffer, bucketDuration, bucketStart);
+            if (index < 0 || index >= getRecordCount(buffer)) {
+                return null;
+            }
+            final int position = getPosition(index);
+            if (buffer.getLong(position) != bucketStart) {
+                return null;
+            }
+            final long storedAt = buffer.getLong(position + Long.BYTES);
+            if (nowInSeconds - storedAt > maxAgeSeconds || !ConsumptionBucketCache.isClosed(bucketDuration, bucketStart, storedAt)) {
+                return null;
+            }
+            return buffer.getDouble(position + 2 * Long.BYTES);
+        } catch (IOException ex) {
+            disable(ex);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the value of a closed window.
+     * @param unitId Id of the consumer or one of the aggregated consumption ids
+     * @param bucketDuration Window length in seconds
+     * @param bucketStart Aligned window start in seconds since the unix epoch
+     * @param value Average consumption of the window or {@link ConsumptionBucketCache#NO_DATA}
+     * @param nowInSeconds Current time in seconds since the unix epoch, stored to let the record expire
+     */
+    public synchronized void put(final String unitId, final long bucketDuration, final long bucketStart, final double value, final long nowInSeconds) {
+        if (!available || !isStored(bucketDuration) || bucketStart == 0) {
+            return;
+        }
+        try {
+            final String fileName = getFileName(unitId, bucketDuration);
+            MappedByteBuffer buffer = getBuffer(fileName);
+            if (buffer == null) {
+                buffer = resize(fileName, bucketStart, GROWTH_IN_RECORDS, null, 0);
+            }
+            long index = getRecordIndex(buffer, bucketDuration, bucketStart);
+            if (index == NOT_ALIGNED) {
+                return;
+            } else if (index < 0) {
+                // grow to the front, keeping the existing records behind the new ones.
+                final long shift = roundUpToGrowth(-index);
+                if (shift + getRecordCount(buffer) > MAX_RECORDS) {
+                    return;
+                }
+                buffer = resize(fileName, buffer.getLong(0) - shift * bucketDuration, shift + getRecordCount(buffer), buffer, shift);
+                index += shift;
+            } else if (index >= getRecordCount(buffer)) {
+                if (index >= MAX_RECORDS) {
+                    return;
+                }
+                buffer = resize(fileName, buffer.getLong(0), Math.min(MAX_RECORDS, roundUpToGrowth(index + 1)), buffer, 0);
+            }
+            final int position = getPosition(index);
+            buffer.putDouble(position + 2 * Long.BYTES, value);
+            buffer.putLong(position + Long.BYTES, nowInSeconds);
+            buffer.putLong(position, bucketStart);
+        } catch (IOException ex) {
+            disable(ex);
+        }
+    }
+
+    /**
+     * Writes all pending changes to disk.
+     */
+    public synchronized void flush() {
+        for (MappedByteBuffer buffer : bufferMap.values()) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Writes all pending changes to disk and releases the mapped files, the store is not used anymore afterwards.
+     */
+    public synchronized void close() {
+        flush();
+        bufferMap.clear();
+        available = false;
+    }
+
+    /**
+     * @return Index of the record of the window relative to the first record of the file, negative if the window
+     * starts before it or {@link #NOT_ALIGNED} if the window is not aligned to the records of the file
+     */
+    private static long getRecordIndex(final MappedByteBuffer buffer, final long bucketDuration, final long bucketStart) {
+        final long offset = bucketStart - buffer.getLong(0);
+        if (offset % bucketDuration != 0) {
+            return NOT_ALIGNED;
+        }
+        return offset / bucketDuration;
+    }
+
+    private static long getRecordCount(final MappedByteBuffer buffer) {
+        return (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private static int getPosition(final long index) {
+        return (int) (HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    private static long roundUpToGrowth(final long records) {
+        return (records + GROWTH_IN_RECORDS - 1) / GROWTH_IN_RECORDS * GROWTH_IN_RECORDS;
+    }
+
+    private static String getFileName(final String unitId, final long bucketDuration) {
+        return toFileName(unitId) + "." + bucketDuration + "s.v" + FORMAT_VERSION + FILE_SUFFIX;
+    }
+
+    /**
+     * Maps an existing file.
+     * @return The mapped file or null if the file does not exist or is no valid store file
+     */
+    private MappedByteBuffer getBuffer(final String fileName) throws IOException {
+        MappedByteBuffer buffer = bufferMap.get(fileName);
+        if (buffer != null) {
+            return buffer;
+        }
+        final File file = new File(directory, fileName);
+        if (file.length() < HEADER_SIZE + RECORD_SIZE) {
+            return null;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"); FileChannel channel = randomAccessFile.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(channel.size(), HEADER_SIZE + (long) MAX_RECORDS * RECORD_SIZE));
+        }
+        bufferMap.put(fileName, buffer);
+        return buffer;
+    }
+
+    /**
+     * Maps the file with the given number of records starting at the given window.
+     * @param firstBucketStart Start of the window of the first record
+     * @param records Number of records
+     * @param previousBuffer Currently mapped file whose records are kept or null to create a new file
+     * @param shift Number of records the records of the previous file are moved to the end
+     * @return The mapped file
+     */
+    private MappedByteBuffer resize(final String fileName, final long firstBucketStart, final long records, final MappedByteBuffer previousBuffer, final long shift) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory.getAbsolutePath());
+        }
+        byte[] previousRecords = null;
+        if (previousBuffer != null && shift > 0) {
+            previousRecords = new byte[previousBuffer.capacity() - HEADER_SIZE];
+            previousBuffer.position(HEADER_SIZE);
+            previousBuffer.get(previousRecords);
+        }
+
+        final MappedByteBuffer buffer;
+        final File file = new File(directory, fileName);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"); FileChannel channel = randomAccessFile.getChannel()) {
+            // newly mapped regions of the file are zero filled which marks their records as empty.
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + records * RECORD_SIZE);
+        }
+        if (previousRecords != null) {
+            buffer.position(getPosition(shift));
+            buffer.put(previousRecords);
+            buffer.position(HEADER_SIZE);
+            buffer.put(new byte[(int) (shift * RECORD_SIZE)]);
+        }
+        buffer.putLong(0, firstBucketStart);
+        bufferMap.put(fileName, buffer);
+        return buffer;
+    }
+
+    private static String toFileName(final String id) {
+        return id.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private void disable(final IOException ex) {
+        available = false;
+        bufferMap.clear();
+        ExceptionPrinter.printHistory(new CouldNotPerformException("Could not access consumption rollup store in " + directory.getAbsolutePath() + ", continue without it!", ex), LOGGER, LogLevel.WARN);
+    }
+}
@@ -0,0 +1,109 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.util.TimeLabelFormatter;
+
+/**
+ * Columnar series of average consumption values backed by primitive arrays.
+ * <p>
+ * Unit conversions create scaled views sharing the arrays of the original series and labels are only formatted on
+ * demand, so a series can be passed through the chart pipeline without allocating per data point objects.
+ * Chart library objects are only created at the rendering edge by {@link org.openbase.bco.bcozy.util.ChartDataSynchronizer}.
+ */
+public class ConsumptionSeries {
+
+    /**
+     * Language identifier of the label displayed instead of an empty series.
+     */
+    public static final String NO_DATA_IDENTIFIER = "powerterminal.noData";
+
+    private final BucketPlan bucketPlan;
+    private final long[] timestamps;
+    private final double[] values;
+    private final String[] labels;
+    private final int size;
+    private final double scale;
+
+    /**
+     * Constructor
+     * @param bucketPlan BucketPlan describing the window of each value
+     * @param timestamps Start of the window of each value in milliseconds since the unix epoch
+     * @param values Average consumption of each window in watt
+     * @param size Number of valid entries in the given arrays
+     */
+    public ConsumptionSeries(final BucketPlan bucketPlan, final long[] timestamps, final double[] values, final int size) {
+        this(bucketPlan, timestamps, values, new String[size], size, 1.0);
+    }
+
+    private ConsumptionSeries(final BucketPlan bucketPlan, final long[] timestamps, final double[] values, final String[] labels, final int size, final double scale) {
+        this.bucketPlan = bucketPlan;
+        this.timestamps = timestamps;
+        this.values = values;
+        this.labels = labels;
+        this.size = size;
+        this.scale = scale;
+    }
+
+    /**
+     * Creates a series without any values.
+     * @param bucketPlan BucketPlan describing the windows
+     * @return The empty series
+     */
+    public static ConsumptionSeries empty(final BucketPlan bucketPlan) {
+        return new ConsumptionSeries(bucketPlan, new long[0], new double[0], 0);
+    }
+
+    /**
+     * Creates a view of this series with all values multiplied by the given factor.
+     * @param factor Factor to scale the values with
+     * @return View sharing the data of this series
+     */
+    public ConsumptionSeries scale(final double factor) {
+        return new ConsumptionSeries(bucketPlan, timestamps, values, labels, size, scale * factor);
+    }
+
+    /**
+     * Creates a copy of this series with the value of the last entry replaced, e.g. to update the still open window.
+     * @param value New value of the last entry in watt, before scaling
+     * @return The new series, keeping the scale of this series
+     */
+    public ConsumptionSeries withLastValue(final double value) {
+        final double[] updatedValues = values.clone();
+        updatedValues[size - 1] = value;
+        return new ConsumptionSeries(bucketPlan, timestamps, updatedValues, labels, size, scale);
+    }
+
+    public BucketPlan getBucketPlan() {
+        return bucketPlan;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getTimestamp(final int index) {
+        return timestamps[index];
+    }
+
+    public double getValue(final int index) {
+        return values[index] * scale;
+    }
+
+    /**
+     * Returns the human readable time label of the given entry, looked up from the shared label tables on first access.
+     * @param index Index of the entry
+     * @return The label
+     */
+    public String getLabel(final int index) {
+        String label = labels[index];
+        if (label == null) {
+            label = TimeLabelFormatter.createTimeLabel(timestamps[index], bucketPlan);
+            labels[index] = label;
+        }
+        return label;
+    }
+}
@@ -0,0 +1,222 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import com.google.protobuf.Message;
+import org.openbase.bco.dal.lib.layer.unit.PowerConsumptionSensor;
+import org.openbase.bco.dal.lib.layer.unit.UnitRemote;
+import org.openbase.bco.dal.remote.layer.unit.CustomUnitPool;
+import org.openbase.bco.dal.remote.layer.unit.Units;
+import org.openbase.bco.registry.remote.Registries;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.ExceptionProcessor;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.provider.DataProvider;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the recent consumption of all power consumption sensors in memory.
+ * <p>
+ * Consumption state updates of the sensors are appended to a ring buffer per unit. Queries covered by these buffers
+ * are answered without any database round trip, older data still has to be loaded from the database. The registry is
+ * observed, so sensors added later are streamed as well.
+ * <p>
+ * The global consumption is not streamed. The database aggregates it differently than summing the latest sensor
+ * values, so streamed windows would not match the queried ones of the same series.
+ */
+public class LiveConsumptionStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiveConsumptionStream.class);
+
+    /**
+     * Listeners are notified at most once per interval about all units updated in the meantime.
+     */
+    public static final long NOTIFICATION_INTERVAL_MILLISECONDS = 500;
+
+    private static final Executor NOTIFICATION_EXECUTOR = CompletableFuture.delayedExecutor(NOTIFICATION_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+    private static final Map<String, ConsumptionRingBuffer> BUFFER_MAP = new ConcurrentHashMap<>();
+    private static final List<Consumer<Set<String>>> UPDATE_LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Set<String> UPDATED_UNIT_IDS = new HashSet<>();
+
+    /**
+     * Actions removing the data observer of each streamed unit, by unit id.
+     */
+    private static final Map<String, Runnable> OBSERVATION_MAP = new HashMap<>();
+
+    /**
+     * Starts and stops streaming units added to or removed from the registry.
+     */
+    private static final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> UNIT_REGISTRY_OBSERVER = (source, data) -> synchronizeObservedUnits();
+
+    private static CustomUnitPool<? extends Message, ? extends UnitRemote<? extends Message>> unitPool;
+
+    /**
+     * Starts streaming in the background, if not already done.
+     */
+    public static void init() {
+        GlobalCachedExecutorService.submit(() -> {
+            try {
+                getUnitPool();
+            } catch (CouldNotPerformException ex) {
+                if (!ExceptionProcessor.isCausedBySystemShutdown(ex)) {
+                    ExceptionPrinter.printHistory("Could not start live consumption stream!", ex, LOGGER);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Returns the pool of all power consumption sensors, which is created and observed on first access.
+     * Other components displaying live consumption should share this pool instead of creating their own.
+     *
+     * @return The activated unit pool
+     *
+     * @throws CouldNotPerformException if the pool could not be activated
+     * @throws InterruptedException     if interrupted while activating the pool
+     */
+    public static synchronized CustomUnitPool<? extends Message, ? extends UnitRemote<? extends Message>> getUnitPool() throws CouldNotPerformException, InterruptedException {
+        if (unitPool == null) {
+            final CustomUnitPool<? extends Message, ? extends UnitRemote<? extends Message>> pool = new CustomUnitPool<>();
+            pool.init(unitConfig -> unitConfig.getUnitType() == UnitType.POWER_CONSUMPTION_SENSOR);
+            pool.activate();
+            unitPool = pool;
+            Registries.getUnitRegistry().addDataObserver(UNIT_REGISTRY_OBSERVER);
+            synchronizeObservedUnits();
+        }
+        return unitPool;
+    }
+
+    /**
+     * Returns the latest known consumption of the given unit.
+     *
+     * @param unitId Id of the consumer
+     *
+     * @return The consumption in watt or null if the unit is not streamed
+     */
+    public static Double getLatestConsumption(final String unitId) {
+        final ConsumptionRingBuffer buffer = BUFFER_MAP.get(unitId);
+        return buffer == null ? null : buffer.getLatestValue();
+    }
+
+    /**
+     * Calculates the average consumption of the given unit during the given period from memory.
+     *
+     * @param unitId Id of the consumer
+     * @param from   Start of the period in milliseconds since the unix epoch
+     * @param to     End of the period in milliseconds since the unix epoch
+     *
+     * @return The average consumption in watt or null if the period is not covered by the stream
+     */
+    public static Double getAverageConsumption(final String unitId, final long from, final long to) {
+        final ConsumptionRingBuffer buffer = BUFFER_MAP.get(unitId);
+        return buffer == null ? null : buffer.getAverage(from, to);
+    }
+
+    /**
+     * Registers a listener notified with the ids of all units whose consumption changed since the last notification.
+     *
+     * @param listener Listener called on a pool thread
+     */
+    public static void addUpdateListener(final Consumer<Set<String>> listener) {
+        UPDATE_LISTENERS.add(listener);
+    }
+
+    public static void removeUpdateListener(final Consumer<Set<String>> listener) {
+        UPDATE_LISTENERS.remove(listener);
+    }
+
+    /**
+     * Observes all power consumption sensors of the registry which are not observed yet and stops observing removed ones.
+     */
+    private static synchronized void synchronizeObservedUnits() {
+        try {
+            final Set<String> currentUnitIds = new HashSet<>();
+            for (final UnitConfig unitConfig : Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.POWER_CONSUMPTION_SENSOR)) {
+                currentUnitIds.add(unitConfig.getId());
+                if (!OBSERVATION_MAP.containsKey(unitConfig.getId())) {
+                    final UnitRemote<? extends Message> unit = Units.getUnit(unitConfig, false);
+                    OBSERVATION_MAP.put(unitConfig.getId(), observe(unit));
+                    record(unit);
+                }
+            }
+            for (final Iterator<Map.Entry<String, Runnable>> iterator = OBSERVATION_MAP.entrySet().iterator(); iterator.hasNext(); ) {
+                final Map.Entry<String, Runnable> entry = iterator.next();
+                if (!currentUnitIds.contains(entry.getKey())) {
+                    entry.getValue().run();
+                    iterator.remove();
+                    BUFFER_MAP.remove(entry.getKey());
+                }
+            }
+        } catch (CouldNotPerformException ex) {
+            if (!ExceptionProcessor.isCausedBySystemShutdown(ex)) {
+                ExceptionPrinter.printHistory("Could not update streamed consumption sensors!", ex, LOGGER);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <M extends Message> Runnable observe(final UnitRemote<M> unit) {
+        final Observer<DataProvider<M>, M> observer = (source, data) -> record(unit);
+        unit.addDataObserver(observer);
+        return () -> unit.removeDataObserver(observer);
+    }
+
+    private static synchronized void record(final UnitRemote<? extends Message> unit) {
+        final String unitId;
+        final double consumption;
+        try {
+            unitId = unit.getId();
+            consumption = ((PowerConsumptionSensor) unit).getPowerConsumptionState().getConsumption();
+        } catch (NotAvailableException ex) {
+            // no data received yet, the observer will record the first value.
+            return;
+        }
+        final long timestamp = System.currentTimeMillis();
+        BUFFER_MAP.computeIfAbsent(unitId, id -> new ConsumptionRingBuffer()).append(timestamp, consumption);
+
+        synchronized (UPDATED_UNIT_IDS) {
+            if (UPDATED_UNIT_IDS.isEmpty()) {
+                NOTIFICATION_EXECUTOR.execute(LiveConsumptionStream::notifyListeners);
+            }
+            UPDATED_UNIT_IDS.add(unitId);
+        }
+    }
+
+    private static void notifyListeners() {
+        final Set<String> updatedUnitIds;
+        synchronized (UPDATED_UNIT_IDS) {
+            updatedUnitIds = Collections.unmodifiableSet(new HashSet<>(UPDATED_UNIT_IDS));
+            UPDATED_UNIT_IDS.clear();
+        }
+        for (Consumer<Set<String>> listener : UPDATE_LISTENERS) {
+            try {
+                listener.accept(updatedUnitIds);
+            } catch (RuntimeException ex) {
+                ExceptionPrinter.printHistory("Could not notify live consumption listener!", ex, LOGGER);
+            }
+        }
+    }
+}
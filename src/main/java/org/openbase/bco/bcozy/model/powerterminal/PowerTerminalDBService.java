@@ -1,9 +1,7 @@
 package org.openbase.bco.bcozy.model.powerterminal;
 
-import eu.hansolo.tilesfx.chart.ChartData;
 import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.DateRange;
-import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.Interval;
-import org.openbase.bco.bcozy.util.TimeLabelFormatter;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
 import org.openbase.bco.dal.remote.layer.unit.Units;
 import org.openbase.bco.dal.remote.layer.unit.location.LocationRemote;
 import org.openbase.bco.registry.remote.Registries;
@@ -13,15 +11,21 @@ import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.schedule.GlobalCachedExecutorService;
 import org.openbase.type.domotic.database.RecordCollectionType;
+import org.openbase.type.domotic.database.RecordType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Timestamp;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import static org.openbase.bco.bcozy.controller.powerterminal.PowerChartVisualizationController.INFLUXDB_FIELD_CONSUMPTION;
 
@@ -37,114 +41,466 @@ public class PowerTerminalDBService {
     public static final String UNIT_ID_GLOBAL_CONSUMPTION = "Global Consumption";
     public static final String UNIT_ID_LOCATION_CONSUMPTION = "Location Consumption";
 
-    private static LocationRemote locationRemote;
+    private static final ConsumptionBucketCache BUCKET_CACHE = new ConsumptionBucketCache();
 
-    static {
+    /**
+     * Store of the connected BCO instance, available once the service is initialized.
+     */
+    private static volatile ConsumptionRollupStore rollupStore;
+
+    /**
+     * Deadline applied to queries if the caller does not provide its own one.
+     */
+    public static final long DEFAULT_QUERY_TIMEOUT_MILLISECONDS = 5000;
+
+    /**
+     * Delay between two checks of a pending database future that does not support completion callbacks.
+     */
+    private static final long FUTURE_POLL_INTERVAL_MILLISECONDS = 20;
+
+    private static final Executor FUTURE_POLL_EXECUTOR = CompletableFuture.delayedExecutor(FUTURE_POLL_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+
+    private static CompletableFuture<LocationRemote> locationRemoteFuture;
+
+    /**
+     * Starts resolving the root location remote used for all queries, if not already done.
+     * Queries compose on the returned future, so they never race with the initialization.
+     *
+     * @return Future completed as soon as the service is able to perform queries
+     */
+    public static synchronized CompletableFuture<LocationRemote> init() {
+        if (locationRemoteFuture != null && !locationRemoteFuture.isCompletedExceptionally()) {
+            return locationRemoteFuture;
+        }
+
+        final CompletableFuture<LocationRemote> future = new CompletableFuture<>();
+        locationRemoteFuture = future;
         GlobalCachedExecutorService.submit(() -> {
             try {
                 Registries.waitForData();
-                locationRemote = Units.getRootLocation(false);
+                final LocationRemote rootLocationRemote = Units.getRootLocation(false);
+                if (rollupStore == null) {
+                    // unit ids are only unique within one instance, which is identified by its root location.
+                    rollupStore = ConsumptionRollupStore.forInstance(Registries.getUnitRegistry().getRootLocationConfig().getId());
+                }
+                future.complete(rootLocationRemote);
             } catch (CouldNotPerformException ex) {
+                future.completeExceptionally(ex);
                 if (!ExceptionProcessor.isCausedBySystemShutdown(ex)) {
                     ExceptionPrinter.printHistory("Could not get root location!", ex, LOGGER);
                 }
             } catch (InterruptedException ex) {
+                future.completeExceptionally(ex);
                 Thread.currentThread().interrupt();
             }
         });
+        return future;
+    }
+
+    /**
+     * Writes the local rollup store to disk and releases it, called on application shutdown.
+     */
+    public static synchronized void shutdown() {
+        final ConsumptionRollupStore store = rollupStore;
+        rollupStore = null;
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * Describes if the service is initialized and its database connection is established.
+     *
+     * @return true if queries can be performed immediately
+     */
+    public static synchronized boolean isReady() {
+        return locationRemoteFuture != null
+                && locationRemoteFuture.isDone()
+                && !locationRemoteFuture.isCompletedExceptionally()
+                && locationRemoteFuture.join().isConnected();
+    }
+
+    /**
+     * Returns the average power consumption during the given DateRange using the default query deadline.
+     *
+     * @param dateRange  DateRange in about which the database will be queried
+     * @param unitId
+     * @param chartWidth Width of the displaying chart in pixels, used to plan the aggregation windows
+     *
+     * @return Future of the data about the average power consumption
+     */
+    public static CompletableFuture<ConsumptionSeries> getAverageConsumption(DateRange dateRange, String unitId, int chartWidth) {
+        return getAverageConsumption(dateRange, unitId, chartWidth, DEFAULT_QUERY_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Returns TilesFX Chartdata of the average power consumption during the given DateRange
+     * Returns the average power consumption during the given DateRange.
+     * The returned future never completes exceptionally, failed or timed out queries lead to empty or partial data.
+     * Cancelling the returned future cancels the pending database query as well.
      *
-     * @param dateRange DateRange in about which the database will be queried
+     * @param dateRange  DateRange in about which the database will be queried
      * @param unitId
+     * @param chartWidth Width of the displaying chart in pixels, used to plan the aggregation windows
+     * @param timeout    Deadline for the whole query including the initialization of the service
+     * @param timeUnit   TimeUnit of the deadline
      *
-     * @return Data about the average power consumption
+     * @return Future of the data about the average power consumption
      */
-    public static List<ChartData> getAverageConsumption(DateRange dateRange, String unitId) {
+    public static CompletableFuture<ConsumptionSeries> getAverageConsumption(DateRange dateRange, String unitId, int chartWidth, long timeout, TimeUnit timeUnit) {
+        return getAverageConsumption(dateRange, unitId, BucketPlan.forDateRange(dateRange, chartWidth), timeout, timeUnit);
+    }
+
+    /**
+     * Returns the average power consumption during the given DateRange aggregated into the windows of the given plan.
+     * The returned future never completes exceptionally, failed or timed out queries lead to empty or partial data.
+     * Cancelling the returned future cancels the pending database query as well.
+     *
+     * @param dateRange  DateRange in about which the database will be queried
+     * @param unitId
+     * @param bucketPlan BucketPlan describing the aggregation windows
+     * @param timeout    Deadline for the whole query including the initialization of the service
+     * @param timeUnit   TimeUnit of the deadline
+     *
+     * @return Future of the data about the average power consumption
+     */
+    public static CompletableFuture<ConsumptionSeries> getAverageConsumption(DateRange dateRange, String unitId, BucketPlan bucketPlan, long timeout, TimeUnit timeUnit) {
+        final long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        final CompletableFuture<ConsumptionSeries> result = new CompletableFuture<>();
         Timestamp startTime = dateRange.getStartDateAtCurrentTime();
         Timestamp endTime = dateRange.getEndDateAtCurrentTime();
+
+        // the current consumption of streamed units is known without asking the database.
         if (dateRange.isEmpty()) {
-            return getChartData(dateRange.getDefaultIntervalSize(), startTime, unitId);
-        } else {
-            return getChartData(dateRange.getDefaultIntervalSize(), startTime, endTime, unitId);
+            final Double latestConsumption = LiveConsumptionStream.getLatestConsumption(unitId);
+            if (latestConsumption != null) {
+                result.complete(new ConsumptionSeries(bucketPlan, new long[]{startTime.getTime()}, new double[]{latestConsumption}, 1));
+                return result;
+            }
         }
+        init().copy().orTimeout(timeout, timeUnit)
+                .thenCompose(remote -> {
+                    // if remote not connected we only can return an empty data object.
+                    if (!remote.isConnected()) {
+                        return CompletableFuture.completedFuture(ConsumptionSeries.empty(bucketPlan));
+                    }
+                    if (dateRange.isEmpty()) {
+                        return getChartData(remote, bucketPlan, startTime, unitId, deadline, result);
+                    } else {
+                        return getChartData(remote, bucketPlan, startTime, endTime, unitId, deadline, result);
+                    }
+                })
+                .whenComplete((data, ex) -> {
+                    if (ex != null) {
+                        if (!result.isCancelled()) {
+                            ExceptionPrinter.printHistory("Could not load chart data!", ex, LOGGER, LogLevel.WARN);
+                        }
+                        result.complete(ConsumptionSeries.empty(bucketPlan));
+                        return;
+                    }
+                    result.complete(data);
+                });
+        return result;
     }
 
-    private static List<ChartData> getChartData(Interval intervalSize, Timestamp startAndEndTime, String unitId) {
-        long timeInSeconds = TimeUnit.MILLISECONDS.toSeconds(startAndEndTime.getTime());
-        List<ChartData> data = new ArrayList<>();
-
-        // if remote not connected we only can return an empty data object.
-        if (locationRemote == null || !locationRemote.isConnected()) {
-            return data;
+    /**
+     * Returns the average power consumption during the given period aggregated into the windows of the given plan.
+     * Charts loading only the part of a DateRange they display use this instead of querying whole days.
+     * The returned future never completes exceptionally, failed or timed out queries lead to empty or partial data.
+     * Cancelling the returned future cancels the pending database query as well.
+     *
+     * @param startTime  Start of the period
+     * @param endTime    End of the period, limited to the current time
+     * @param unitId
+     * @param bucketPlan BucketPlan describing the aggregation windows
+     * @param timeout    Deadline for the whole query including the initialization of the service
+     * @param timeUnit   TimeUnit of the deadline
+     *
+     * @return Future of the data about the average power consumption
+     */
+    public static CompletableFuture<ConsumptionSeries> getAverageConsumption(Timestamp startTime, Timestamp endTime, String unitId, BucketPlan bucketPlan, long timeout, TimeUnit timeUnit) {
+        final long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        final CompletableFuture<ConsumptionSeries> result = new CompletableFuture<>();
+        final Timestamp limitedEndTime = new Timestamp(Math.min(endTime.getTime(), System.currentTimeMillis()));
+        if (!startTime.before(limitedEndTime)) {
+            result.complete(ConsumptionSeries.empty(bucketPlan));
+            return result;
         }
+        init().copy().orTimeout(timeout, timeUnit)
+                .thenCompose(remote -> {
+                    // if remote not connected we only can return an empty data object.
+                    if (!remote.isConnected()) {
+                        return CompletableFuture.completedFuture(ConsumptionSeries.empty(bucketPlan));
+                    }
+                    return getChartData(remote, bucketPlan, startTime, limitedEndTime, unitId, deadline, result);
+                })
+                .whenComplete((data, ex) -> {
+                    if (ex != null) {
+                        if (!result.isCancelled()) {
+                            ExceptionPrinter.printHistory("Could not load chart data!", ex, LOGGER, LogLevel.WARN);
+                        }
+                        result.complete(ConsumptionSeries.empty(bucketPlan));
+                        return;
+                    }
+                    result.complete(data);
+                });
+        return result;
+    }
 
-        try {
-            double value;
-            if (unitId.equals(UNIT_ID_GLOBAL_CONSUMPTION)) {
-                value = locationRemote.getAveragePowerConsumption(intervalSize.getInfluxIntervalString(),
-                        timeInSeconds - FIVE_MINUTES_IN_MILLISECONDS, timeInSeconds, INFLUXDB_FIELD_CONSUMPTION).get(5, TimeUnit.SECONDS).getRecord(0).getValue();
-            } else {
-                value = locationRemote.getAveragePowerConsumption(intervalSize.getInfluxIntervalString(), unitId,
-                        timeInSeconds - FIVE_MINUTES_IN_MILLISECONDS, timeInSeconds, INFLUXDB_FIELD_CONSUMPTION).get(5, TimeUnit.SECONDS).getRecord(0).getValue();
+    /**
+     * Returns the average power consumption of several units during the given DateRange.
+     * The queries of all units are issued at once and share a single deadline, so the batch takes about as long as
+     * its slowest query. Like the single unit queries the returned future never completes exceptionally.
+     * Cancelling the returned future cancels all pending queries.
+     *
+     * @param dateRange  DateRange in about which the database will be queried
+     * @param unitIds    Ids of the units to query
+     * @param chartWidth Width of the displaying chart in pixels, used to plan the aggregation windows
+     *
+     * @return Future of the series of each unit id
+     */
+    public static CompletableFuture<Map<String, ConsumptionSeries>> getAverageConsumptions(DateRange dateRange, Collection<String> unitIds, int chartWidth) {
+        final Map<String, CompletableFuture<ConsumptionSeries>> queries = new HashMap<>();
+        for (String unitId : unitIds) {
+            queries.put(unitId, getAverageConsumption(dateRange, unitId, chartWidth, DEFAULT_QUERY_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS));
+        }
+        final CompletableFuture<Map<String, ConsumptionSeries>> result = CompletableFuture.allOf(queries.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    final Map<String, ConsumptionSeries> seriesMap = new HashMap<>();
+                    queries.forEach((unitId, query) -> seriesMap.put(unitId, query.join()));
+                    return seriesMap;
+                });
+        result.whenComplete((seriesMap, ex) -> {
+            if (result.isCancelled()) {
+                queries.values().forEach(query -> query.cancel(true));
             }
-            data.add(new ChartData(TimeLabelFormatter.createTimeLabel(startAndEndTime, 0, intervalSize), value));
-        } catch (ExecutionException | TimeoutException ex) {
-            ExceptionPrinter.printHistory("Could not load data!", ex, LOGGER);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
+        });
+        return result;
+    }
+
+    private static CompletableFuture<ConsumptionSeries> getChartData(LocationRemote remote, BucketPlan bucketPlan, Timestamp startAndEndTime, String unitId, long deadline, CompletableFuture<?> caller) {
+        long timeInSeconds = TimeUnit.MILLISECONDS.toSeconds(startAndEndTime.getTime());
+        final Future<RecordCollectionType.RecordCollection> future;
+        if (unitId.equals(UNIT_ID_GLOBAL_CONSUMPTION)) {
+            future = remote.getAveragePowerConsumption(bucketPlan.getInfluxIntervalString(),
+                    timeInSeconds - FIVE_MINUTES_IN_MILLISECONDS, timeInSeconds, INFLUXDB_FIELD_CONSUMPTION);
+        } else {
+            future = remote.getAveragePowerConsumption(bucketPlan.getInfluxIntervalString(), unitId,
+                    timeInSeconds - FIVE_MINUTES_IN_MILLISECONDS, timeInSeconds, INFLUXDB_FIELD_CONSUMPTION);
         }
-        return data;
+        return toCompletableFuture(future, deadline, caller).handle((recordCollection, ex) -> {
+            if (ex != null) {
+                if (!caller.isCancelled()) {
+                    ExceptionPrinter.printHistory("Could not load data!", ex, LOGGER);
+                }
+                return ConsumptionSeries.empty(bucketPlan);
+            }
+            return new ConsumptionSeries(bucketPlan, new long[]{startAndEndTime.getTime()}, new double[]{recordCollection.getRecord(0).getValue()}, 1);
+        });
     }
 
-    private static List<ChartData> getChartData(Interval intervalSize, Timestamp startTime, Timestamp endTime, String unitId) {
-        List<ChartData> data = new ArrayList<>();
+    private static CompletableFuture<ConsumptionSeries> getChartData(LocationRemote remote, BucketPlan bucketPlan, Timestamp startTime, Timestamp endTime, String unitId, long deadline, CompletableFuture<?> caller) {
+        final long bucketDuration = bucketPlan.getBucketDurationSeconds();
+        final long nowInSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final long firstBucketStart = bucketPlan.alignToBucketStart(TimeUnit.MILLISECONDS.toSeconds(startTime.getTime()));
+        final long endTimeInSeconds = TimeUnit.MILLISECONDS.toSeconds(endTime.getTime());
+        final int bucketCount = (int) Math.max(1, (endTimeInSeconds - firstBucketStart + bucketDuration - 1) / bucketDuration);
 
-        // if remote not connected we only can return an empty data object.
-        if (locationRemote == null || !locationRemote.isConnected()) {
-            return data;
+        // resolve the leading closed buckets from the caches, everything from the first miss on is queried.
+        // windows known to be without data are resolved as well, so a gap in the history is not queried again.
+        final double[] values = new double[bucketCount];
+        int cachedBuckets = 0;
+        while (cachedBuckets < bucketCount) {
+            final Double cachedValue = getCachedValue(unitId, bucketDuration, firstBucketStart + cachedBuckets * bucketDuration, nowInSeconds);
+            if (cachedValue == null) {
+                break;
+            }
+            values[cachedBuckets++] = cachedValue;
         }
+        final int firstMissingBucket = cachedBuckets;
 
-        String interval = intervalSize.getInfluxIntervalString();
-        long startTimeInSeconds = TimeUnit.MILLISECONDS.toSeconds(startTime.getTime());
-        long endTimeInSeconds = TimeUnit.MILLISECONDS.toSeconds(endTime.getTime());
-        try {
-            RecordCollectionType.RecordCollection fluxTablesCollection;
-            if (unitId.equals(UNIT_ID_GLOBAL_CONSUMPTION)) {
-                fluxTablesCollection = locationRemote.getAveragePowerConsumptionTables(interval, startTimeInSeconds, endTimeInSeconds, INFLUXDB_FIELD_CONSUMPTION).get(5, TimeUnit.SECONDS);
-            } else {
-                fluxTablesCollection = locationRemote.getAveragePowerConsumptionTables(interval, unitId, startTimeInSeconds, endTimeInSeconds, INFLUXDB_FIELD_CONSUMPTION).get(5, TimeUnit.SECONDS);
+        // the most recent windows are taken from the live stream as far as it reaches back.
+        int firstStreamedBucket = bucketCount;
+        while (firstStreamedBucket > firstMissingBucket) {
+            final long bucketStart = firstBucketStart + (firstStreamedBucket - 1) * bucketDuration;
+            final Double streamedValue = LiveConsumptionStream.getAverageConsumption(unitId,
+                    TimeUnit.SECONDS.toMillis(bucketStart),
+                    Math.min(TimeUnit.SECONDS.toMillis(bucketStart + bucketDuration), endTime.getTime()));
+            if (streamedValue == null) {
+                break;
             }
-            data = convertToChartDataList(intervalSize, startTime, fluxTablesCollection);
-        } catch (ExecutionException | TimeoutException ex) {
-            ExceptionPrinter.printHistory("Could not load chart data!", ex, LOGGER, LogLevel.WARN);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
+            values[--firstStreamedBucket] = streamedValue;
         }
-        return data;
-    }
+        final int lastQueriedBucket = firstStreamedBucket;
+
+        final boolean[] resolved = new boolean[bucketCount];
+        Arrays.fill(resolved, 0, firstMissingBucket, true);
+        Arrays.fill(resolved, lastQueriedBucket, bucketCount, true);
 
-    private static List<ChartData> convertToChartDataList(Interval intervalSize, Timestamp startTime, RecordCollectionType.RecordCollection fluxTablesCollection) {
-        List<ChartData> data = new ArrayList<>();
-        if (fluxTablesCollection.getRecordList().size() == 0) {
-            data.add(new ChartData("No Data!", 0));
+        if (firstMissingBucket == lastQueriedBucket) {
+            return CompletableFuture.completedFuture(createSeries(bucketPlan, firstBucketStart, values, resolved));
         }
 
-        for (int i = 0; i < fluxTablesCollection.getRecordList().size(); i++) {
-            Double value = fluxTablesCollection.getRecord(i).getValue();
-            if (value == null) {
-                value = 0.0;
-            }
-            data.add(i, new ChartData(TimeLabelFormatter.createTimeLabel(startTime, i, intervalSize), value));
+        final long queryStartTimeInSeconds = firstBucketStart + firstMissingBucket * bucketDuration;
+        final long queryEndTimeInSeconds = lastQueriedBucket == bucketCount ? endTimeInSeconds : firstBucketStart + lastQueriedBucket * bucketDuration;
+        return toCompletableFuture(queryAverageConsumption(remote, bucketPlan, unitId, queryStartTimeInSeconds, queryEndTimeInSeconds), deadline, caller)
+                .handle((fluxTablesCollection, ex) -> {
+                    if (ex != null) {
+                        if (!caller.isCancelled()) {
+                            ExceptionPrinter.printHistory("Could not load chart data!", ex, LOGGER, LogLevel.WARN);
+                        }
+                        return createSeries(bucketPlan, firstBucketStart, values, resolved);
+                    }
+                    // influx skips empty windows, so records are assigned to windows by their timestamp instead of their position.
+                    for (final RecordType.Record record : fluxTablesCollection.getRecordList()) {
+                        final int bucket = getBucketIndex(record, firstBucketStart, bucketDuration);
+                        if (bucket < firstMissingBucket || bucket >= lastQueriedBucket || resolved[bucket]) {
+                            continue;
+                        }
+                        values[bucket] = record.getValue();
+                        resolved[bucket] = true;
+                        putClosedValue(unitId, bucketDuration, firstBucketStart + bucket * bucketDuration, values[bucket], nowInSeconds);
+                    }
+                    // queried windows without any record have no data, which is remembered as well once they are closed.
+                    for (int bucket = firstMissingBucket; bucket < lastQueriedBucket; bucket++) {
+                        if (!resolved[bucket]) {
+                            putClosedValue(unitId, bucketDuration, firstBucketStart + bucket * bucketDuration, ConsumptionBucketCache.NO_DATA, nowInSeconds);
+                        }
+                    }
+                    return createSeries(bucketPlan, firstBucketStart, values, resolved);
+                });
+    }
+
+    /**
+     * Resolves the window an influx record belongs to.
+     * The aggregation stamps each window with its stop time, which is the query end for the truncated last window.
+     *
+     * @return Index of the window counted from the first window of the query or -1 if the record carries no timestamp
+     */
+    private static int getBucketIndex(final RecordType.Record record, final long firstBucketStart, final long bucketDuration) {
+        if (!record.hasTimestamp()) {
+            return -1;
+        }
+        final long recordTimeInSeconds = TimeUnit.MICROSECONDS.toSeconds(record.getTimestamp().getTime());
+        if (recordTimeInSeconds <= firstBucketStart) {
+            return -1;
         }
-        return data;
+        final long bucket = (recordTimeInSeconds - firstBucketStart + bucketDuration - 1) / bucketDuration - 1;
+        return bucket > Integer.MAX_VALUE ? -1 : (int) bucket;
     }
-}
 
+    /**
+     * Stores the value of a window in memory and in the local rollup store if the window is closed already.
+     */
+    private static void putClosedValue(String unitId, long bucketDuration, long bucketStart, double value, long nowInSeconds) {
+        if (!ConsumptionBucketCache.isClosed(bucketDuration, bucketStart, nowInSeconds)) {
+            return;
+        }
+        BUCKET_CACHE.put(unitId, bucketDuration, bucketStart, value);
+        final ConsumptionRollupStore store = rollupStore;
+        if (store != null) {
+            store.put(unitId, bucketDuration, bucketStart, value, nowInSeconds);
+        }
+    }
 
+    /**
+     * Looks up the value of a closed window in memory first and falls back to the local rollup store.
+     * Windows which are not settled yet are never served from the caches.
+     *
+     * @return The value, {@link ConsumptionBucketCache#NO_DATA} if the window is known to be without data or null if
+     * the window is not cached
+     */
+    private static Double getCachedValue(String unitId, long bucketDuration, long bucketStart, long nowInSeconds) {
+        if (!ConsumptionBucketCache.isClosed(bucketDuration, bucketStart, nowInSeconds)) {
+            return null;
+        }
+        Double value = BUCKET_CACHE.get(unitId, bucketDuration, bucketStart);
+        final ConsumptionRollupStore store = rollupStore;
+        if (value == null && store != null) {
+            value = store.get(unitId, bucketDuration, bucketStart, nowInSeconds);
+            if (value != null) {
+                BUCKET_CACHE.put(unitId, bucketDuration, bucketStart, value);
+            }
+        }
+        return value;
+    }
 
+    private static Future<RecordCollectionType.RecordCollection> queryAverageConsumption(LocationRemote remote, BucketPlan bucketPlan, String unitId, long startTimeInSeconds, long endTimeInSeconds) {
+        String interval = bucketPlan.getInfluxIntervalString();
+        if (unitId.equals(UNIT_ID_GLOBAL_CONSUMPTION)) {
+            return remote.getAveragePowerConsumptionTables(interval, startTimeInSeconds, endTimeInSeconds, INFLUXDB_FIELD_CONSUMPTION);
+        } else {
+            return remote.getAveragePowerConsumptionTables(interval, unitId, startTimeInSeconds, endTimeInSeconds, INFLUXDB_FIELD_CONSUMPTION);
+        }
+    }
 
+    /**
+     * Bridges a plain database future into a CompletableFuture without parking a thread on it.
+     * The returned future fails with a TimeoutException after the deadline and then cancels the database future.
+     * The same happens if the caller future is cancelled before the query is done.
+     *
+     * @param future   Future returned by the database remote
+     * @param deadline Deadline in terms of {@link System#nanoTime()}
+     * @param caller   Future handed out to the caller of the service
+     * @param <T>      Type of the result
+     *
+     * @return CompletableFuture completed with the result of the given future
+     */
+    private static <T> CompletableFuture<T> toCompletableFuture(final Future<T> future, final long deadline, final CompletableFuture<?> caller) {
+        final CompletableFuture<T> completableFuture;
+        if (future instanceof CompletableFuture) {
+            completableFuture = ((CompletableFuture<T>) future).copy();
+        } else {
+            completableFuture = new CompletableFuture<>();
+            completeWhenDone(future, completableFuture);
+        }
+        completableFuture.orTimeout(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        completableFuture.whenComplete((result, ex) -> {
+            if (ex != null) {
+                future.cancel(true);
+            }
+        });
+        caller.whenComplete((result, ex) -> {
+            if (caller.isCancelled()) {
+                completableFuture.cancel(true);
+            }
+        });
+        return completableFuture;
+    }
 
+    private static <T> void completeWhenDone(final Future<T> future, final CompletableFuture<T> target) {
+        if (target.isDone()) {
+            return;
+        }
+        if (!future.isDone()) {
+            FUTURE_POLL_EXECUTOR.execute(() -> completeWhenDone(future, target));
+            return;
+        }
+        try {
+            target.complete(future.get());
+        } catch (ExecutionException ex) {
+            target.completeExceptionally(ex.getCause());
+        } catch (CancellationException ex) {
+            target.completeExceptionally(ex);
+        } catch (InterruptedException ex) {
+            target.completeExceptionally(ex);
+            Thread.currentThread().interrupt();
+        }
+    }
 
+    private static ConsumptionSeries createSeries(BucketPlan bucketPlan, long firstBucketStart, double[] values, boolean[] resolved) {
+        final long[] timestamps = new long[values.length];
+        final double[] resolvedValues = new double[values.length];
+        final long bucketDurationInMilliseconds = TimeUnit.SECONDS.toMillis(bucketPlan.getBucketDurationSeconds());
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            // windows without data are left out instead of being shown as zero consumption
+            if (!resolved[i] || Double.isNaN(values[i])) {
+                continue;
+            }
+            timestamps[size] = TimeUnit.SECONDS.toMillis(firstBucketStart) + i * bucketDurationInMilliseconds;
+            resolvedValues[size] = values[i];
+            size++;
+        }
+        return new ConsumptionSeries(bucketPlan, timestamps, resolvedValues, size);
+    }
+}
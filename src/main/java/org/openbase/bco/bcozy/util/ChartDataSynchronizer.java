@@ -0,0 +1,150 @@
+package org.openbase.bco.bcozy.util;
+
+import eu.hansolo.tilesfx.chart.ChartData;
+import javafx.scene.chart.XYChart;
+import org.openbase.bco.bcozy.model.LanguageSelection;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a new consumption series to the entries displayed by a chart instead of replacing all of them.
+ * <p>
+ * If the displayed entries are a shifted version of the new series, entries scrolled out of the series are removed
+ * at the head and new ones appended at the tail. All other entries are kept and only updated if their label or value
+ * changed, so a refresh only results in change events for what actually changed.
+ */
+public class ChartDataSynchronizer {
+
+    private static final EntryAdapter<ChartData> CHART_DATA_ADAPTER = new EntryAdapter<ChartData>() {
+        @Override
+        public String getName(final ChartData entry) {
+            return entry.getName();
+        }
+
+        @Override
+        public double getValue(final ChartData entry) {
+            return entry.getValue();
+        }
+
+        @Override
+        public void setName(final ChartData entry, final String name) {
+            entry.setName(name);
+        }
+
+        @Override
+        public void setValue(final ChartData entry, final double value) {
+            entry.setValue(value);
+        }
+
+        @Override
+        public ChartData create(final String name, final double value) {
+            return new ChartData(name, value);
+        }
+    };
+
+    private static final EntryAdapter<XYChart.Data<String, Number>> SERIES_DATA_ADAPTER = new EntryAdapter<XYChart.Data<String, Number>>() {
+        @Override
+        public String getName(final XYChart.Data<String, Number> entry) {
+            return entry.getXValue();
+        }
+
+        @Override
+        public double getValue(final XYChart.Data<String, Number> entry) {
+            return entry.getYValue().doubleValue();
+        }
+
+        @Override
+        public void setName(final XYChart.Data<String, Number> entry, final String name) {
+            entry.setXValue(name);
+        }
+
+        @Override
+        public void setValue(final XYChart.Data<String, Number> entry, final double value) {
+            entry.setYValue(value);
+        }
+
+        @Override
+        public XYChart.Data<String, Number> create(final String name, final double value) {
+            return new XYChart.Data<>(name, value);
+        }
+    };
+
+    /**
+     * Synchronizes the ChartData of a TilesFX Tile with the given series.
+     * @param displayed ChartData currently displayed, modified in place
+     * @param data Series to display, an empty series results in a single placeholder entry
+     */
+    public static void synchronizeChartData(final List<ChartData> displayed, final ConsumptionSeries data) {
+        synchronize(displayed, data, CHART_DATA_ADAPTER);
+    }
+
+    /**
+     * Synchronizes the data of a JavaFX XYChart series with the given series.
+     * @param displayed Data currently displayed, modified in place
+     * @param data Series to display, an empty series results in a single placeholder entry
+     */
+    public static void synchronizeSeriesData(final List<XYChart.Data<String, Number>> displayed, final ConsumptionSeries data) {
+        synchronize(displayed, data, SERIES_DATA_ADAPTER);
+    }
+
+    private static <T> void synchronize(final List<T> displayed, final ConsumptionSeries data, final EntryAdapter<T> adapter) {
+        final int targetSize = Math.max(1, data.size());
+
+        // remove entries scrolled out at the head if the series continues the displayed entries.
+        final String firstLabel = getLabel(data, 0);
+        for (int i = 1; i < displayed.size(); i++) {
+            if (adapter.getName(displayed.get(i)).equals(firstLabel)) {
+                displayed.subList(0, i).clear();
+                break;
+            }
+        }
+
+        final int commonSize = Math.min(displayed.size(), targetSize);
+        for (int i = 0; i < commonSize; i++) {
+            final T entry = displayed.get(i);
+            final String label = getLabel(data, i);
+            final double value = getValue(data, i);
+            if (!adapter.getName(entry).equals(label)) {
+                adapter.setName(entry, label);
+            }
+            if (Double.compare(adapter.getValue(entry), value) != 0) {
+                adapter.setValue(entry, value);
+            }
+        }
+
+        if (displayed.size() > targetSize) {
+            displayed.subList(targetSize, displayed.size()).clear();
+        } else if (displayed.size() < targetSize) {
+            final List<T> appendedEntries = new ArrayList<>(targetSize - displayed.size());
+            for (int i = displayed.size(); i < targetSize; i++) {
+                appendedEntries.add(adapter.create(getLabel(data, i), getValue(data, i)));
+            }
+            displayed.addAll(appendedEntries);
+        }
+    }
+
+    private static String getLabel(final ConsumptionSeries data, final int index) {
+        return data.isEmpty() ? LanguageSelection.getLocalized(ConsumptionSeries.NO_DATA_IDENTIFIER) : data.getLabel(index);
+    }
+
+    private static double getValue(final ConsumptionSeries data, final int index) {
+        return data.isEmpty() ? 0 : data.getValue(index);
+    }
+
+    /**
+     * Access to the label and value of the entry type of a chart.
+     */
+    private interface EntryAdapter<T> {
+        String getName(T entry);
+
+        double getValue(T entry);
+
+        void setName(T entry, String name);
+
+        void setValue(T entry, double value);
+
+        T create(String name, double value);
+    }
+}
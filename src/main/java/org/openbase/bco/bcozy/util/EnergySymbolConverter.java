@@ -1,41 +1,31 @@
 package org.openbase.bco.bcozy.util;
 
-import eu.hansolo.tilesfx.chart.ChartData;
 import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.SymbolUnit;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
 
-import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 public class EnergySymbolConverter {
 
-    private final static Map<SymbolUnit, Function<List<ChartData>, List<ChartData>>> converterMap = Map.of(
-            SymbolUnit.LIGHTBULB, EnergySymbolConverter::convertToLightBulbs,
-            SymbolUnit.ENERGY, EnergySymbolConverter::convertToEnergy,
-            SymbolUnit.MONEY, EnergySymbolConverter::convertToCosts);
     public static final double EURO_PER_KILOWATTHOUR = 0.3;
     public static final double LIGHTBULB_POWER_DRAW_IN_WATT = 9.5;
     public static final double WATT_HOURS_PER_KILOWATTHOUR = 1000.0;
 
-    public static List<ChartData> convert(final SymbolUnit targetSymbolUnit, List<ChartData> data) {
-        return converterMap.get(targetSymbolUnit).apply(data);
+    /**
+     * All supported conversions are linear, so each unit is described by the factor applied to the power draw in watt.
+     */
+    private final static Map<SymbolUnit, Double> conversionFactorMap = Map.of(
+            SymbolUnit.LIGHTBULB, 1 / LIGHTBULB_POWER_DRAW_IN_WATT,
+            SymbolUnit.ENERGY, 1 / WATT_HOURS_PER_KILOWATTHOUR,
+            SymbolUnit.MONEY, EURO_PER_KILOWATTHOUR / WATT_HOURS_PER_KILOWATTHOUR);
+
+    /**
+     * Converts the given series into the target unit.
+     * @param targetSymbolUnit Unit to convert to
+     * @param data Series of power draw values in watt
+     * @return View of the given series, no data is copied
+     */
+    public static ConsumptionSeries convert(final SymbolUnit targetSymbolUnit, ConsumptionSeries data) {
+        return data.scale(conversionFactorMap.get(targetSymbolUnit));
     }
-
-    private static List<ChartData> convertToEnergy (List<ChartData> data) {
-        return data.stream().map((datum) -> new ChartData(datum.getName(), datum.getValue() / WATT_HOURS_PER_KILOWATTHOUR))
-                .collect(Collectors.toList());
-    }
-
-    private static List<ChartData> convertToCosts (List<ChartData> data) {
-        return data.stream().map((datum) -> new ChartData(datum.getName(), (datum.getValue() / WATT_HOURS_PER_KILOWATTHOUR) * EURO_PER_KILOWATTHOUR))
-                .collect(Collectors.toList());
-    }
-
-    private static List<ChartData> convertToLightBulbs (List<ChartData> data) {
-        return data.stream().map((datum) -> new ChartData(datum.getName(), datum.getValue() / LIGHTBULB_POWER_DRAW_IN_WATT))
-                .collect(Collectors.toList());
-    }
-
-
 }
@@ -0,0 +1,179 @@
+package org.openbase.bco.bcozy.util;
+
+import javafx.geometry.Point2D;
+
+import javax.vecmath.Matrix4d;
+import java.util.List;
+
+/**
+ * Immutable floor shape of a unit, stored as one array of interleaved x and y coordinates.
+ * <p>
+ * Bounds, centroid and area are computed once on creation, so the location map, the scalar field overlays and the
+ * unit placement can share one instance per shape instead of converting boxed vertex lists again and again.
+ */
+public final class ShapeGeometry {
+
+    /**
+     * Geometry without any vertex.
+     */
+    public static final ShapeGeometry EMPTY = new ShapeGeometry(new double[0]);
+
+    private final double[] coordinates;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    private final double centroidX;
+    private final double centroidY;
+    private final double area;
+
+    /**
+     * @param coordinates Interleaved x and y coordinates of the vertices, the array is not copied and must not be
+     *                    modified afterwards
+     */
+    public ShapeGeometry(final double[] coordinates) {
+        if (coordinates.length % 2 != 0) {
+            throw new IllegalArgumentException("Coordinates have to be pairs of x and y, got " + coordinates.length + " values.");
+        }
+        this.coordinates = coordinates;
+
+        double tmpMinX = Double.MAX_VALUE;
+        double tmpMaxX = -Double.MAX_VALUE;
+        double tmpMinY = Double.MAX_VALUE;
+        double tmpMaxY = -Double.MAX_VALUE;
+        double sumX = 0;
+        double sumY = 0;
+        double doubleSignedArea = 0;
+        double weightedX = 0;
+        double weightedY = 0;
+        final int vertexCount = coordinates.length / 2;
+        for (int i = 0; i < vertexCount; i++) {
+            final double x = coordinates[2 * i];
+            final double y = coordinates[2 * i + 1];
+            final int next = (i + 1) % vertexCount;
+            final double nextX = coordinates[2 * next];
+            final double nextY = coordinates[2 * next + 1];
+
+            tmpMinX = Math.min(x, tmpMinX);
+            tmpMaxX = Math.max(x, tmpMaxX);
+            tmpMinY = Math.min(y, tmpMinY);
+            tmpMaxY = Math.max(y, tmpMaxY);
+            sumX += x;
+            sumY += y;
+
+            // shoelace formula
+            final double cross = x * nextY - nextX * y;
+            doubleSignedArea += cross;
+            weightedX += (x + nextX) * cross;
+            weightedY += (y + nextY) * cross;
+        }
+        this.minX = tmpMinX;
+        this.maxX = tmpMaxX;
+        this.minY = tmpMinY;
+        this.maxY = tmpMaxY;
+        this.area = Math.abs(doubleSignedArea) / 2;
+
+        if (vertexCount == 0) {
+            this.centroidX = 0;
+            this.centroidY = 0;
+        } else if (Math.abs(doubleSignedArea) < 1e-9) {
+            // degenerated shapes have no area, so the mean of the vertices is used instead
+            this.centroidX = sumX / vertexCount;
+            this.centroidY = sumY / vertexCount;
+        } else {
+            this.centroidX = weightedX / (3 * doubleSignedArea);
+            this.centroidY = weightedY / (3 * doubleSignedArea);
+        }
+    }
+
+    /**
+     * Creates a geometry out of a list of vertices.
+     * @param vertices Vertices of the shape
+     * @return The geometry
+     */
+    public static ShapeGeometry of(final List<Point2D> vertices) {
+        final double[] coordinates = new double[vertices.size() * 2];
+        for (int i = 0; i < vertices.size(); i++) {
+            coordinates[2 * i] = vertices.get(i).getX();
+            coordinates[2 * i + 1] = vertices.get(i).getY();
+        }
+        return new ShapeGeometry(coordinates);
+    }
+
+    /**
+     * Transforms all vertices with the given matrix and scales the result, without creating an object per vertex.
+     * @param localCoordinates Interleaved x, y and z coordinates of the vertices
+     * @param matrix Transformation applied to each vertex
+     * @param scale Factor the transformed x and y coordinates are multiplied with
+     * @return The geometry of the transformed x and y coordinates
+     */
+    public static ShapeGeometry transform(final double[] localCoordinates, final Matrix4d matrix, final double scale) {
+        if (localCoordinates.length % 3 != 0) {
+            throw new IllegalArgumentException("Coordinates have to be triples of x, y and z, got " + localCoordinates.length + " values.");
+        }
+        final double[] coordinates = new double[localCoordinates.length / 3 * 2];
+        for (int i = 0, j = 0; i < localCoordinates.length; i += 3, j += 2) {
+            final double x = localCoordinates[i];
+            final double y = localCoordinates[i + 1];
+            final double z = localCoordinates[i + 2];
+            coordinates[j] = (matrix.m00 * x + matrix.m01 * y + matrix.m02 * z + matrix.m03) * scale;
+            coordinates[j + 1] = (matrix.m10 * x + matrix.m11 * y + matrix.m12 * z + matrix.m13) * scale;
+        }
+        return new ShapeGeometry(coordinates);
+    }
+
+    public int getVertexCount() {
+        return coordinates.length / 2;
+    }
+
+    public double getX(final int index) {
+        return coordinates[2 * index];
+    }
+
+    public double getY(final int index) {
+        return coordinates[2 * index + 1];
+    }
+
+    public Point2D getVertex(final int index) {
+        return new Point2D(getX(index), getY(index));
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public double getWidth() {
+        return getVertexCount() == 0 ? 0 : maxX - minX;
+    }
+
+    public double getHeight() {
+        return getVertexCount() == 0 ? 0 : maxY - minY;
+    }
+
+    public double getCentroidX() {
+        return centroidX;
+    }
+
+    public double getCentroidY() {
+        return centroidY;
+    }
+
+    /**
+     * @return The enclosed area, independent of the orientation of the vertices
+     */
+    public double getArea() {
+        return area;
+    }
+}
@@ -0,0 +1,204 @@
+package org.openbase.bco.bcozy.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quadtree over the bounding boxes of items, answering which items cover a point or intersect a region.
+ * <p>
+ * Each item is stored in the deepest node whose area fully contains its bounds, so updating or removing an item only
+ * touches that node. Items which do not fit into the area of the index are kept in the root node and are therefore
+ * still found, only without the speedup.
+ *
+ * @param <T> Type of the indexed items, identified by equals and hashCode
+ */
+public class SpatialIndex<T> {
+
+    /**
+     * Number of items a node keeps before it is split into quadrants.
+     */
+    private static final int NODE_CAPACITY = 8;
+
+    /**
+     * Depth at which nodes are not split anymore, so many overlapping items can not split endlessly.
+     */
+    private static final int MAX_DEPTH = 12;
+
+    private final Node<T> root;
+    private final Map<T, Entry<T>> entryMap;
+
+    /**
+     * @param minX Left border of the indexed area
+     * @param minY Top border of the indexed area
+     * @param maxX Right border of the indexed area
+     * @param maxY Bottom border of the indexed area
+     */
+    public SpatialIndex(final double minX, final double minY, final double maxX, final double maxY) {
+        this.root = new Node<>(minX, minY, maxX, maxY, 0);
+        this.entryMap = new HashMap<>();
+    }
+
+    /**
+     * Adds the item or moves it to the given bounds if it is indexed already.
+     * @param item Item to index
+     * @param minX Left border of the item
+     * @param minY Top border of the item
+     * @param maxX Right border of the item
+     * @param maxY Bottom border of the item
+     */
+    public void put(final T item, final double minX, final double minY, final double maxX, final double maxY) {
+        final Entry<T> previousEntry = entryMap.get(item);
+        if (previousEntry != null) {
+            if (previousEntry.minX == minX && previousEntry.minY == minY && previousEntry.maxX == maxX && previousEntry.maxY == maxY) {
+                return;
+            }
+            previousEntry.node.entries.remove(previousEntry);
+        }
+        final Entry<T> entry = new Entry<>(item, minX, minY, maxX, maxY);
+        entryMap.put(item, entry);
+        root.insert(entry);
+    }
+
+    /**
+     * @param item Item to remove, unknown items are ignored
+     */
+    public void remove(final T item) {
+        final Entry<T> entry = entryMap.remove(item);
+        if (entry != null) {
+            entry.node.entries.remove(entry);
+        }
+    }
+
+    public boolean contains(final T item) {
+        return entryMap.containsKey(item);
+    }
+
+    public int size() {
+        return entryMap.size();
+    }
+
+    public void clear() {
+        entryMap.clear();
+        root.entries.clear();
+        root.children = null;
+    }
+
+    /**
+     * @param x Horizontal coordinate of the point
+     * @param y Vertical coordinate of the point
+     * @return All items whose bounds contain the point
+     */
+    public List<T> query(final double x, final double y) {
+        return query(x, y, x, y);
+    }
+
+    /**
+     * @param minX Left border of the region
+     * @param minY Top border of the region
+     * @param maxX Right border of the region
+     * @param maxY Bottom border of the region
+     * @return All items whose bounds intersect the region
+     */
+    public List<T> query(final double minX, final double minY, final double maxX, final double maxY) {
+        final List<T> result = new ArrayList<>();
+        root.query(minX, minY, maxX, maxY, result);
+        return result;
+    }
+
+    private static final class Entry<T> {
+
+        private final T item;
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+        private Node<T> node;
+
+        private Entry(final T item, final double minX, final double minY, final double maxX, final double maxY) {
+            this.item = item;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        private boolean intersects(final double minX, final double minY, final double maxX, final double maxY) {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+    }
+
+    private static final class Node<T> {
+
+        private final double minX;
+        private final double minY;
+        private final double maxX;
+        private final double maxY;
+        private final int depth;
+        private final List<Entry<T>> entries;
+        private Node<T>[] children;
+
+        private Node(final double minX, final double minY, final double maxX, final double maxY, final int depth) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.depth = depth;
+            this.entries = new ArrayList<>();
+        }
+
+        private boolean encloses(final Entry<T> entry) {
+            return entry.minX >= minX && entry.maxX <= maxX && entry.minY >= minY && entry.maxY <= maxY;
+        }
+
+        private void insert(final Entry<T> entry) {
+            if (children != null) {
+                for (final Node<T> child : children) {
+                    if (child.encloses(entry)) {
+                        child.insert(entry);
+                        return;
+                    }
+                }
+            }
+            entry.node = this;
+            entries.add(entry);
+            if (children == null && entries.size() > NODE_CAPACITY && depth < MAX_DEPTH) {
+                split();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void split() {
+            final double centerX = (minX + maxX) / 2;
+            final double centerY = (minY + maxY) / 2;
+            children = new Node[]{
+                    new Node<>(minX, minY, centerX, centerY, depth + 1),
+                    new Node<>(centerX, minY, maxX, centerY, depth + 1),
+                    new Node<>(minX, centerY, centerX, maxY, depth + 1),
+                    new Node<>(centerX, centerY, maxX, maxY, depth + 1)
+            };
+            final List<Entry<T>> previousEntries = new ArrayList<>(entries);
+            entries.clear();
+            for (final Entry<T> entry : previousEntries) {
+                insert(entry);
+            }
+        }
+
+        private void query(final double queryMinX, final double queryMinY, final double queryMaxX, final double queryMaxY, final List<T> result) {
+            for (final Entry<T> entry : entries) {
+                if (entry.intersects(queryMinX, queryMinY, queryMaxX, queryMaxY)) {
+                    result.add(entry.item);
+                }
+            }
+            if (children == null) {
+                return;
+            }
+            for (final Node<T> child : children) {
+                if (child.minX <= queryMaxX && child.maxX >= queryMinX && child.minY <= queryMaxY && child.maxY >= queryMinY) {
+                    child.query(queryMinX, queryMinY, queryMaxX, queryMaxY, result);
+                }
+            }
+        }
+    }
+}
@@ -1,21 +1,50 @@
 package org.openbase.bco.bcozy.util;
 
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
 import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.Interval;
 import org.openbase.bco.bcozy.model.LanguageSelection;
 
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.time.format.TextStyle;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalField;
 import java.time.temporal.WeekFields;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
+/**
+ * Creates the time labels of the power charts.
+ * <p>
+ * Labels of aggregation windows are formatted once per window start and label format and kept in label tables, so
+ * refreshing a chart looks its labels up instead of formatting them again. The tables are cleared whenever the
+ * language changes, since month names and week numbers depend on the locale.
+ */
 public class TimeLabelFormatter {
 
+    private static final DateTimeFormatter HOURS_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter DAYS_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.");
+    private static final DateTimeFormatter DAY_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd.MM. HH:mm");
+
+    /**
+     * Maximal number of labels kept per label format.
+     */
+    private static final int LABEL_TABLE_CAPACITY = 4096;
+
     private static final Map<Interval, BiFunction<LocalDateTime, Integer, String>> creators;
+    private static final Map<Interval, LabelTable> intervalLabelTables = new EnumMap<>(Interval.class);
+    private static final LabelTable timeLabelTable = new LabelTable(LABEL_TABLE_CAPACITY);
+    private static final LabelTable dayTimeLabelTable = new LabelTable(LABEL_TABLE_CAPACITY);
+
+    private static volatile WeekFields weekFields = WeekFields.of(Locale.getDefault());
+    private static volatile DateTimeFormatter axisTimeFormatter;
+    private static volatile DateTimeFormatter axisDayTimeFormatter;
+    private static volatile DateTimeFormatter axisDateFormatter;
 
     static {
         BiFunction<LocalDateTime, Integer, String> nowLabelFunction = TimeLabelFormatter::createTimeLabelNow;
@@ -33,6 +62,12 @@ public class TimeLabelFormatter {
                 Interval.MONTHLY, monthLabelFunction,
                 Interval.YEARLY, yearLabelFunction
         );
+        for (Interval interval : Interval.values()) {
+            intervalLabelTables.put(interval, new LabelTable(LABEL_TABLE_CAPACITY));
+        }
+        createAxisFormatters();
+
+        LanguageSelection.getInstance().addObserver((observable, locale) -> clearLabelTables());
     }
 
     /**
@@ -46,21 +81,100 @@ public class TimeLabelFormatter {
         return creators.get(interval).apply(time.toLocalDateTime(), shift);
     }
 
+    /**
+     * Creates a Label describing the start of an aggregation window for a chart
+     * @param time Timestamp containing the start of the window
+     * @param bucketPlan BucketPlan the window is part of
+     * @return Short label describing the time human readable
+     */
+    public static String createTimeLabel(Timestamp time, BucketPlan bucketPlan) {
+        return createTimeLabel(time.getTime(), bucketPlan);
+    }
+
+    /**
+     * Returns the Label describing the start of an aggregation window for a chart.
+     * The label is only formatted on the first request of a window start, later requests return the same instance
+     * without allocating.
+     * @param epochMilliseconds Start of the window in milliseconds since the unix epoch
+     * @param bucketPlan BucketPlan the window is part of
+     * @return Short label describing the time human readable
+     */
+    public static String createTimeLabel(final long epochMilliseconds, final BucketPlan bucketPlan) {
+        final Interval labelInterval = bucketPlan.getLabelInterval();
+        if (labelInterval == Interval.HOURLY
+                && (bucketPlan.isSpanningMultipleDays() || bucketPlan.getBucketDurationSeconds() != Interval.HOURLY.getBucketDurationSeconds())) {
+            // windows shorter than a day are labeled exactly, including the day if the range covers several of them.
+            final LabelTable table = bucketPlan.isSpanningMultipleDays() ? dayTimeLabelTable : timeLabelTable;
+            final DateTimeFormatter formatter = bucketPlan.isSpanningMultipleDays() ? DAY_TIME_FORMATTER : HOURS_FORMATTER;
+            String label = table.get(epochMilliseconds);
+            if (label == null) {
+                label = table.put(epochMilliseconds, toLocalDateTime(epochMilliseconds).format(formatter));
+            }
+            return label;
+        }
+        final LabelTable table = intervalLabelTables.get(labelInterval);
+        String label = table.get(epochMilliseconds);
+        if (label == null) {
+            label = table.put(epochMilliseconds, creators.get(labelInterval).apply(toLocalDateTime(epochMilliseconds), 0));
+        }
+        return label;
+    }
+
+    /**
+     * Creates the label of a point on a continuous time axis in the format of the selected language.
+     * The date is only included if the visible time span covers more than a day, the time only up to 90 days.
+     * @param epochMilliseconds Point in time in milliseconds since the unix epoch
+     * @param visibleSpanMilliseconds Length of the visible time span in milliseconds
+     * @return Short label describing the time human readable
+     */
+    public static String createAxisLabel(final long epochMilliseconds, final long visibleSpanMilliseconds) {
+        final DateTimeFormatter formatter;
+        if (visibleSpanMilliseconds > TimeUnit.DAYS.toMillis(90)) {
+            formatter = axisDateFormatter;
+        } else if (visibleSpanMilliseconds > TimeUnit.DAYS.toMillis(1)) {
+            formatter = axisDayTimeFormatter;
+        } else {
+            formatter = axisTimeFormatter;
+        }
+        return toLocalDateTime(epochMilliseconds).format(formatter);
+    }
+
+    private static LocalDateTime toLocalDateTime(final long epochMilliseconds) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilliseconds), ZoneId.systemDefault());
+    }
+
+    private static void clearLabelTables() {
+        weekFields = WeekFields.of(Locale.getDefault());
+        for (LabelTable table : intervalLabelTables.values()) {
+            table.clear();
+        }
+        timeLabelTable.clear();
+        dayTimeLabelTable.clear();
+        createAxisFormatters();
+    }
+
+    private static void createAxisFormatters() {
+        final Locale locale = LanguageSelection.getSelectedLocale();
+        axisTimeFormatter = DateTimeFormatter.ofLocalizedTime(FormatStyle.SHORT).withLocale(locale);
+        axisDayTimeFormatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT).withLocale(locale);
+        axisDateFormatter = DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM).withLocale(locale);
+    }
+
     private static String createTimeLabelNow(LocalDateTime dateTime, Integer shift) {
         return "Now";
     }
 
     private static String createTimeLabelHours(LocalDateTime dateTime, int shift) {
         dateTime = dateTime.plusHours(shift + 1).plusHours(dateTime.getMinute() > 29 ? 1 : 0).truncatedTo(ChronoUnit.HOURS);
-        return dateTime.format(DateTimeFormatter.ofPattern("HH:mm"));
+        return dateTime.format(HOURS_FORMATTER);
     }
 
     private static String createTimeLabelDays(LocalDateTime dateTime, int shift) {
-        return dateTime.plusDays(shift).format(DateTimeFormatter.ofPattern("dd.MM."));
+        return dateTime.plusDays(shift).format(DAYS_FORMATTER);
     }
 
     private static String createTimeLabelWeeks(LocalDateTime dateTime, int shift) {
-        TemporalField woy = WeekFields.of(Locale.getDefault()).weekOfWeekBasedYear();
+        TemporalField woy = weekFields.weekOfWeekBasedYear();
         int weeknumber = dateTime.plusWeeks(shift).get(woy);
         return "Week " + weeknumber;
     }
@@ -72,4 +186,60 @@ public class TimeLabelFormatter {
     private static String createTimeLabelYears(LocalDateTime dateTime, int shift) {
         return "" + dateTime.plusYears(shift).getYear();
     }
+
+    /**
+     * Labels by window start, stored in open addressing arrays so lookups do not box the keys.
+     * A full table is cleared, since charts only ever show a small range of windows at once.
+     */
+    private static final class LabelTable {
+
+        private final long[] keys;
+        private final String[] labels;
+        private int size;
+
+        private LabelTable(final int capacity) {
+            // twice the capacity keeps the probe sequences short.
+            final int length = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            this.keys = new long[length];
+            this.labels = new String[length];
+        }
+
+        private synchronized String get(final long key) {
+            for (int slot = slotOf(key); labels[slot] != null; slot = (slot + 1) & (keys.length - 1)) {
+                if (keys[slot] == key) {
+                    return labels[slot];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return The stored label, which is the label already present if another thread stored it first
+         */
+        private synchronized String put(final long key, final String label) {
+            if (size * 2 >= keys.length) {
+                clear();
+            }
+            int slot = slotOf(key);
+            for (; labels[slot] != null; slot = (slot + 1) & (keys.length - 1)) {
+                if (keys[slot] == key) {
+                    return labels[slot];
+                }
+            }
+            keys[slot] = key;
+            labels[slot] = label;
+            size++;
+            return label;
+        }
+
+        private synchronized void clear() {
+            Arrays.fill(labels, null);
+            size = 0;
+        }
+
+        private int slotOf(final long key) {
+            final long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & (keys.length - 1);
+        }
+    }
 }
@@ -174,6 +174,7 @@ public class BackgroundPane extends StackPane {
     public void initPowerTerminalPane(ChartStateModel chartStateModel) {
         PowerChartVisualizationController chartController = powerChartPaneAndController.getValue();
         chartController.initChartState(chartStateModel);
+        locationMapPane.getHeatmap().initPlayback(chartStateModel);
     }
 
     /**
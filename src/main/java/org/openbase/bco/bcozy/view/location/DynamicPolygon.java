@@ -20,12 +20,12 @@
 package org.openbase.bco.bcozy.view.location;
 
 import javafx.beans.value.ChangeListener;
-import javafx.geometry.Point2D;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Path;
 import javafx.scene.shape.Polygon;
 import javafx.scene.shape.Shape;
+import org.openbase.bco.bcozy.util.ShapeGeometry;
 import org.openbase.bco.bcozy.view.Constants;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
@@ -55,10 +55,7 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
     private boolean selected;
     private boolean selectable;
 
-    private double minX;
-    private double maxX;
-    private double minY;
-    private double maxY;
+    private ShapeGeometry shapeGeometry;
     private boolean horizontal;
     private boolean editMode;
 
@@ -75,6 +72,7 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
      */
     public DynamicPolygon(final LocationMap locationMap) {
         this.locationMap = locationMap;
+        this.shapeGeometry = ShapeGeometry.EMPTY;
         this.mainColor = Color.TRANSPARENT;
         this.customColor = Color.TRANSPARENT;
 
@@ -122,32 +120,38 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
             }
         });
 
-        // needed to handle background pane selection of the root pane
-        setOnMouseEntered(event -> {
-            locationMap.handleHoverUpdate(DynamicPolygon.this, true);
-        });
-
-        setOnMouseExited(event -> {
-            locationMap.handleHoverUpdate(DynamicPolygon.this, false);
-        });
-
-        hoverProperty().addListener((observable, oldValue, newValue) -> locationMap.handleHoverUpdate(DynamicPolygon.this, newValue));
-
     }
 
     private void updateShape() {
-        getPoints().clear();
-        for (AnchorPoint anchorPoint : anchorPointList) {
-            getPoints().add(anchorPoint.getY());
-            getPoints().add(anchorPoint.getX());
+        // one change event for the whole shape instead of one per coordinate
+        final Double[] points = new Double[anchorPointList.size() * 2];
+        for (int i = 0; i < anchorPointList.size(); i++) {
+            points[2 * i] = anchorPointList.get(i).getY();
+            points[2 * i + 1] = anchorPointList.get(i).getX();
         }
+        getPoints().setAll(points);
+        locationMap.handleShapeUpdate(this);
     }
 
     public int getVertexCount() {
         return anchorPointList.size();
     }
 
-    protected final synchronized void updateVertices() throws CouldNotPerformException, InterruptedException {
+    /**
+     * Returns the shape this polygon was created from, not including changes of the anchor points made in edit mode.
+     *
+     * @return the resolved shape.
+     */
+    public ShapeGeometry getShapeGeometry() {
+        return shapeGeometry;
+    }
+
+    /**
+     * Replaces the shape of this polygon by the given one, which has to be resolved already.
+     *
+     * @param shapeGeometry the shape of the polygon.
+     */
+    protected final synchronized void updateVertices(final ShapeGeometry shapeGeometry) {
 
         // cleanup old anchor points
         for (AnchorPoint anchorPoint : new ArrayList<>(anchorPointList)) {
@@ -156,39 +160,27 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
             anchorPoint.shutdown();
         }
 
-        // init vars
-        double tmpMinX = Double.MAX_VALUE;
-        double tmpMaxX = -Double.MAX_VALUE;
-        double tmpMinY = Double.MAX_VALUE;
-        double tmpMaxY = -Double.MAX_VALUE;
-        int index = 0;
-
         // load new anchors
-        for (Point2D vertex : loadShapeVertices()) {
+        for (int index = 0; index < shapeGeometry.getVertexCount(); index++) {
             final AnchorPoint anchorPoint = new AnchorPoint(this, locationMap);
-            anchorPoint.init(vertex, Integer.toString(index++));
+            anchorPoint.init(shapeGeometry.getVertex(index), Integer.toString(index));
             anchorPoint.translateXProperty().addListener(shapeChangeListener);
             anchorPoint.translateYProperty().addListener(shapeChangeListener);
             ancorPointLayer.getChildren().add(anchorPoint);
             anchorPointList.add(anchorPoint);
-
-            // update min max
-            tmpMinX = Math.min(vertex.getX(), tmpMinX);
-            tmpMaxX = Math.max(vertex.getX(), tmpMaxX);
-            tmpMinY = Math.min(vertex.getY(), tmpMinY);
-            tmpMaxY = Math.max(vertex.getY(), tmpMaxY);
-
         }
 
-        // store values into global vars
-        minX = tmpMinX;
-        maxX = tmpMaxX;
-        minY = tmpMinY;
-        maxY = tmpMaxY;
-        horizontal = (Math.abs(maxX - minX) > Math.abs(maxY - minY));
+        this.shapeGeometry = shapeGeometry;
+        horizontal = shapeGeometry.getWidth() > shapeGeometry.getHeight();
 
-        // update shape
-        updateShape();
+        // update shape, x and y are swapped within the map
+        final Double[] points = new Double[shapeGeometry.getVertexCount() * 2];
+        for (int i = 0; i < shapeGeometry.getVertexCount(); i++) {
+            points[2 * i] = shapeGeometry.getY(i);
+            points[2 * i + 1] = shapeGeometry.getX(i);
+        }
+        getPoints().setAll(points);
+        locationMap.handleShapeUpdate(this);
 
 
         // Paint debug information
@@ -297,16 +289,6 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
      */
     protected abstract void onColorChange(final Color mainColor, final Color customColor);
 
-    /**
-     * Method loads all vertices of the shape of this polygon.
-     *
-     * @return the points forming the polygons shape.
-     *
-     * @throws InterruptedException     is thrown when the thread was internally interrupted since this method takes some time to resolve all transformations.
-     * @throws CouldNotPerformException is thrown when the points are not yet accessible.
-     **/
-    protected abstract List<Point2D> loadShapeVertices() throws InterruptedException, CouldNotPerformException;
-
     /**
      * Getter method for the selected boolean.
      *
@@ -426,7 +408,7 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
      * @return minX
      */
     protected double getMinX() {
-        return minX;
+        return shapeGeometry.getMinX();
     }
 
     /**
@@ -435,7 +417,7 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
      * @return maxX
      */
     protected double getMaxX() {
-        return maxX;
+        return shapeGeometry.getMaxX();
     }
 
     /**
@@ -444,7 +426,7 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
      * @return minY
      */
     protected double getMinY() {
-        return minY;
+        return shapeGeometry.getMinY();
     }
 
     /**
@@ -453,7 +435,7 @@ public abstract class DynamicPolygon extends Polygon implements Colorable, Label
      * @return maxY
      */
     protected double getMaxY() {
-        return maxY;
+        return shapeGeometry.getMaxY();
     }
 
     /**
@@ -20,7 +20,7 @@ package org.openbase.bco.bcozy.view.location;
 
 import com.google.protobuf.Message;
 import javafx.application.Platform;
-import javafx.geometry.Point2D;
+import org.openbase.bco.bcozy.util.ShapeGeometry;
 import org.openbase.bco.bcozy.view.Constants;
 import org.openbase.bco.dal.lib.layer.unit.UnitRemote;
 import org.openbase.bco.dal.remote.layer.unit.Units;
@@ -36,13 +36,12 @@ import org.openbase.jul.pattern.controller.ConfigurableRemote;
 import org.openbase.jul.pattern.provider.DataProvider;
 import org.openbase.rct.Transform;
 import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
-import org.openbase.type.math.Vec3DDoubleType;
 import org.openbase.type.math.Vec3DDoubleType.Vec3DDouble;
 import org.openbase.type.spatial.ShapeType.Shape.Builder;
 
 import javax.vecmath.Point3d;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -57,9 +56,12 @@ public abstract class DynamicUnitPolygon<M extends Message, UR extends UnitRemot
     private Observer<DataProvider<M>, M> dataObserver;
     private Observer<ConfigurableRemote<String, M, UnitConfig>, UnitConfig> configObserver;
     private boolean active;
+    private long shapeRequestCount;
+    private CompletableFuture<Void> shapeFuture;
 
     public DynamicUnitPolygon(final LocationMap locationMap) {
         super(locationMap);
+        this.shapeFuture = CompletableFuture.completedFuture(null);
         this.dataObserver = (source, data) -> {
             Platform.runLater(() -> {
                 applyDataUpdate(data);
@@ -157,56 +159,68 @@ public abstract class DynamicUnitPolygon<M extends Message, UR extends UnitRemot
 
     public abstract void applyDataUpdate(final M unitData);
 
+    /**
+     * Applies the given config to this polygon.
+     * The shape is resolved in the background and applied later on, see {@link #getShapeFuture()}.
+     *
+     * @param unitConfig the config of the unit.
+     *
+     * @throws InterruptedException is thrown if the thread was interrupted while applying the config.
+     */
     public void applyConfigUpdate(final UnitConfig unitConfig) throws InterruptedException {
-        try {
-            updateVertices();
-        } catch (CouldNotPerformException | InterruptedException ex) {
-            ExceptionPrinter.printHistory("Could not update unit shape of " + getLabel(), ex, LOGGER);
-        }
+        final long shapeRequest = ++shapeRequestCount;
+        shapeFuture = GeometryResolver.requestShapeGeometry(unitConfig).handle((shapeGeometry, throwable) -> {
+            // a newer config is already resolving, so its shape is applied instead.
+            if (shapeRequest != shapeRequestCount) {
+                return null;
+            }
+            if (throwable != null) {
+                ExceptionPrinter.printHistory("Could not update unit shape of " + getLabel(), throwable, LOGGER);
+                return null;
+            }
+            updateVertices(shapeGeometry);
+            applyShapeUpdate();
+            return null;
+        });
     }
 
     /**
-     * Method loads all vertices of the shape of this unit.
-     *
-     * @return the points forming the unit shape.
+     * Is called on the application thread each time a resolved shape was applied to this polygon.
+     * Subclasses can override this method to adjust the new shape.
+     */
+    protected void applyShapeUpdate() {
+        // nothing to adjust by default
+    }
+
+    /**
+     * Returns a future which is completed as soon as the shape of the latest config update is applied.
+     * The future is also completed if the shape could not be resolved.
      *
-     * @throws InterruptedException     is thrown when the thread was internally interrupted since this method takes some time to resolve all transformations.
-     * @throws CouldNotPerformException is thrown when the points are not yet accessible.
-     **/
-    public List<Point2D> loadShapeVertices() throws InterruptedException, CouldNotPerformException {
-        return loadShapeVertices(getConfig());
+     * @return the future of the current shape update.
+     */
+    public CompletableFuture<Void> getShapeFuture() {
+        return shapeFuture;
     }
 
     /**
-     * Method loads all vertices of the shape of the given unit.
+     * Method loads the shape of the given unit.
+     * The calling thread is blocked until the transformation is resolved, so the application thread should use
+     * {@link GeometryResolver#requestShapeGeometry(UnitConfig)} instead.
      *
      * @param unitConfig the config to resolve the shape.
      *
-     * @return the points forming the unit shape.
+     * @return the shape of the unit.
      *
      * @throws InterruptedException     is thrown when the thread was internally interrupted since this method takes some time to resolve all transformations.
      * @throws CouldNotPerformException is thrown when the points are not yet accessible.
      **/
-    public static List<Point2D> loadShapeVertices(UnitConfig unitConfig) throws InterruptedException, CouldNotPerformException {
+    public static ShapeGeometry loadShapeGeometry(UnitConfig unitConfig) throws InterruptedException, CouldNotPerformException {
         try {
-            final List<Point2D> vertices = new LinkedList<>();
-
             // Get the transformation for the current room
-            final Future<Transform> transform = Registries.getUnitRegistry().getUnitTransformation(unitConfig, Registries.getUnitRegistry().getRootLocationConfig());
-
-            // Get the shape of the room
-            final List<Vec3DDoubleType.Vec3DDouble> shape = unitConfig.getPlacementConfig().getShape().getFloorList();
-
-            // Iterate over all vertices
-            for (final Vec3DDoubleType.Vec3DDouble rstVertex : shape) {
-                // Convert vertex into java type
-                final Point3d vertex = new Point3d(rstVertex.getX(), rstVertex.getY(), rstVertex.getZ());
-                // Transform
-                transform.get(Constants.TRANSFORMATION_TIMEOUT, TimeUnit.MILLISECONDS).getTransform().transform(vertex);
-                // Add vertex to list of vertices
-                vertices.add(new Point2D(vertex.x * Constants.METER_TO_PIXEL, vertex.y * Constants.METER_TO_PIXEL));
-            }
-            return vertices;
+            final Future<Transform> transform = TransformationCache.getRootTransformation(unitConfig);
+
+            // Transform all vertices of the shape, the transformation is only awaited once
+            return GeometryResolver.toShapeGeometry(unitConfig, transform.get(Constants.TRANSFORMATION_TIMEOUT, TimeUnit.MILLISECONDS));
         } catch (TimeoutException | ExecutionException ex) {
             throw new CouldNotPerformException(ex);
         }
@@ -218,7 +232,7 @@ public abstract class DynamicUnitPolygon<M extends Message, UR extends UnitRemot
             final UnitConfig.Builder configBuilder = getConfig().toBuilder();
 
             // Get the transformation for the current room
-            final Future<Transform> transform = Registries.getUnitRegistry().getUnitTransformation(Registries.getUnitRegistry().getRootLocationConfig(), configBuilder.build());
+            final Future<Transform> transform = TransformationCache.getTransformation(Registries.getUnitRegistry().getRootLocationConfig(), configBuilder.build());
 
 
             final Builder shapeBuilder = configBuilder.getPlacementConfigBuilder().getShapeBuilder();
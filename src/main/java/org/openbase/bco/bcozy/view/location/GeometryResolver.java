@@ -0,0 +1,237 @@
+/**
+ * ==================================================================
+ * <p>
+ * This file is part of org.openbase.bco.bcozy.
+ * <p>
+ * org.openbase.bco.bcozy is free software: you can redistribute it and modify
+ * it under the terms of the GNU General Public License (Version 3)
+ * as published by the Free Software Foundation.
+ * <p>
+ * org.openbase.bco.bcozy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with org.openbase.bco.bcozy. If not, see <http://www.gnu.org/licenses/>.
+ * ==================================================================
+ */
+package org.openbase.bco.bcozy.view.location;
+
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+import org.openbase.bco.bcozy.util.ShapeGeometry;
+import org.openbase.bco.bcozy.view.Constants;
+import org.openbase.bco.registry.remote.Registries;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
+import org.openbase.rct.Transform;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.math.Vec3DDoubleType.Vec3DDouble;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Resolves the floorplan geometry of units, which are their shapes and positions within the root location.
+ * <p>
+ * Resolving a transformation can take up to {@link Constants#TRANSFORMATION_TIMEOUT}, so the application thread never
+ * waits for one. All transformations of a batch are requested at once and awaited together on the global executor
+ * under a single deadline, so a batch takes as long as its slowest transformation instead of the sum of all of them.
+ * The results of a batch are published as a whole, which allows to apply them within a single pulse.
+ */
+public class GeometryResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeometryResolver.class);
+
+    /**
+     * Shape requests collected until the next flush on the application thread.
+     */
+    private static final List<ShapeRequest> pendingShapeRequests = new ArrayList<>();
+
+    /**
+     * Computes the geometry of a unit out of its transformation into the root location.
+     *
+     * @param <G> the type of the geometry.
+     */
+    public interface GeometryMapper<G> {
+        G map(final UnitConfig unitConfig, final Transform transform);
+    }
+
+    /**
+     * Resolves the geometry of all given units in one batch.
+     * Units whose transformation is not available until the deadline are missing in the result.
+     *
+     * @param unitConfigs         the units to resolve by a key chosen by the caller.
+     * @param geometryMapper      computes the geometry out of the transformation of a unit.
+     * @param timeoutMilliseconds the time to wait for the transformations of the whole batch.
+     * @param <K>                 the key type.
+     * @param <G>                 the geometry type.
+     *
+     * @return a future of the unmodifiable geometries by key, completed on a background thread.
+     */
+    public static <K, G> CompletableFuture<Map<K, G>> resolve(final Map<K, UnitConfig> unitConfigs, final GeometryMapper<G> geometryMapper, final long timeoutMilliseconds) {
+        final CompletableFuture<Map<K, G>> future = new CompletableFuture<>();
+        if (unitConfigs.isEmpty()) {
+            future.complete(Collections.emptyMap());
+            return future;
+        }
+
+        GlobalCachedExecutorService.submit(() -> {
+            try {
+                final UnitConfig rootLocationConfig = Registries.getUnitRegistry().getRootLocationConfig();
+
+                // request all transformations before waiting for the first one.
+                final Map<K, Future<Transform>> transformMap = new LinkedHashMap<>();
+                for (final Map.Entry<K, UnitConfig> entry : unitConfigs.entrySet()) {
+                    transformMap.put(entry.getKey(), TransformationCache.getTransformation(entry.getValue(), rootLocationConfig));
+                }
+
+                final long deadline = System.currentTimeMillis() + timeoutMilliseconds;
+                final Map<K, G> geometryMap = new LinkedHashMap<>();
+                for (final Map.Entry<K, Future<Transform>> entry : transformMap.entrySet()) {
+                    final UnitConfig unitConfig = unitConfigs.get(entry.getKey());
+                    try {
+                        final Transform transform = entry.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                        geometryMap.put(entry.getKey(), geometryMapper.map(unitConfig, transform));
+                    } catch (ExecutionException | TimeoutException | CancellationException ex) {
+                        // skip the unit, so the remaining ones are still shown
+                        ExceptionPrinter.printHistory("Could not resolve transformation of unit " + unitConfig.getId(), ex, LOGGER, LogLevel.DEBUG);
+                    }
+                }
+                future.complete(Collections.unmodifiableMap(geometryMap));
+            } catch (CouldNotPerformException ex) {
+                future.completeExceptionally(ex);
+                ExceptionPrinter.printHistory("Could not resolve unit geometry!", ex, LOGGER);
+            } catch (InterruptedException ex) {
+                future.completeExceptionally(ex);
+                Thread.currentThread().interrupt();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Resolves the shapes of all given units in one batch.
+     *
+     * @see #resolve(Map, GeometryMapper, long)
+     */
+    public static <K> CompletableFuture<Map<K, ShapeGeometry>> resolveShapeGeometries(final Map<K, UnitConfig> unitConfigs) {
+        return resolve(unitConfigs, GeometryResolver::toShapeGeometry, Constants.TRANSFORMATION_TIMEOUT);
+    }
+
+    /**
+     * Resolves a position of all given units in one batch.
+     *
+     * @param unitConfigs         the units to resolve by a key chosen by the caller.
+     * @param localPosition       computes the position to resolve within the coordinate system of a unit.
+     * @param timeoutMilliseconds the time to wait for the transformations of the whole batch.
+     *
+     * @return a future of the positions in pixel by key.
+     *
+     * @see #resolve(Map, GeometryMapper, long)
+     */
+    public static <K> CompletableFuture<Map<K, Point2D>> resolvePositions(final Map<K, UnitConfig> unitConfigs, final Function<UnitConfig, Point3d> localPosition, final long timeoutMilliseconds) {
+        return resolve(unitConfigs, (unitConfig, transform) -> {
+            final Point3d position = localPosition.apply(unitConfig);
+            transform.getTransform().transform(position);
+            return new Point2D(position.x * Constants.METER_TO_PIXEL, position.y * Constants.METER_TO_PIXEL);
+        }, timeoutMilliseconds);
+    }
+
+    /**
+     * Requests the shape of the given unit.
+     * <p>
+     * All requests made until the application thread is idle again are resolved as one batch, and all their futures
+     * are completed within the same pulse. Therefore, this method as well as the returned future are meant to be used
+     * on the application thread only.
+     *
+     * @param unitConfig the unit to resolve the shape of.
+     *
+     * @return a future of the shape in pixel, completed on the application thread.
+     */
+    public static CompletableFuture<ShapeGeometry> requestShapeGeometry(final UnitConfig unitConfig) {
+        final ShapeRequest request = new ShapeRequest(unitConfig);
+        synchronized (pendingShapeRequests) {
+            pendingShapeRequests.add(request);
+            if (pendingShapeRequests.size() == 1) {
+                Platform.runLater(GeometryResolver::flushShapeRequests);
+            }
+        }
+        return request.future;
+    }
+
+    private static void flushShapeRequests() {
+        final Map<ShapeRequest, UnitConfig> unitConfigs = new IdentityHashMap<>();
+        synchronized (pendingShapeRequests) {
+            for (final ShapeRequest request : pendingShapeRequests) {
+                unitConfigs.put(request, request.unitConfig);
+            }
+            pendingShapeRequests.clear();
+        }
+
+        resolveShapeGeometries(unitConfigs).whenComplete((shapeMap, throwable) -> Platform.runLater(() -> {
+            for (final ShapeRequest request : unitConfigs.keySet()) {
+                if (throwable != null) {
+                    request.future.completeExceptionally(throwable);
+                } else if (!shapeMap.containsKey(request)) {
+                    request.future.completeExceptionally(new NotAvailableException("Shape of unit " + request.unitConfig.getId()));
+                } else {
+                    request.future.complete(shapeMap.get(request));
+                }
+            }
+        }));
+    }
+
+    /**
+     * Transforms the floor vertices of the given unit into the root location.
+     * All vertices are transformed in one pass through the transformation matrix.
+     *
+     * @param unitConfig the unit providing the shape.
+     * @param transform  the transformation of the unit into the root location.
+     *
+     * @return the shape of the unit in pixel.
+     */
+    public static ShapeGeometry toShapeGeometry(final UnitConfig unitConfig, final Transform transform) {
+        final List<Vec3DDouble> shape = unitConfig.getPlacementConfig().getShape().getFloorList();
+        final double[] localCoordinates = new double[shape.size() * 3];
+        for (int i = 0; i < shape.size(); i++) {
+            final Vec3DDouble rstVertex = shape.get(i);
+            localCoordinates[3 * i] = rstVertex.getX();
+            localCoordinates[3 * i + 1] = rstVertex.getY();
+            localCoordinates[3 * i + 2] = rstVertex.getZ();
+        }
+        final Matrix4d matrix = new Matrix4d();
+        transform.getTransform().get(matrix);
+        return ShapeGeometry.transform(localCoordinates, matrix, Constants.METER_TO_PIXEL);
+    }
+
+    private static final class ShapeRequest {
+
+        private final UnitConfig unitConfig;
+        private final CompletableFuture<ShapeGeometry> future;
+
+        private ShapeRequest(final UnitConfig unitConfig) {
+            this.unitConfig = unitConfig;
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
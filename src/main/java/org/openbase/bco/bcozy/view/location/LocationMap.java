@@ -37,7 +37,12 @@ public interface LocationMap {
 
     Point2D calculateTransition(double scale, DynamicPolygon polygon);
 
-    void handleHoverUpdate(DynamicPolygon locationPolygon, boolean hover);
+    /**
+     * Is called each time the shape of one of the polygons of this map changed.
+     *
+     * @param polygon the changed polygon.
+     */
+    void handleShapeUpdate(DynamicPolygon polygon);
 
     void selectAnchorPoint(final AnchorPoint anchorPoint);
 
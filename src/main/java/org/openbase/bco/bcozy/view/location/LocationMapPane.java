@@ -22,15 +22,20 @@ package org.openbase.bco.bcozy.view.location;
 import javafx.animation.ParallelTransition;
 import javafx.animation.ScaleTransition;
 import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
+import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.scene.Node;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
 import javafx.util.Duration;
 import org.openbase.bco.bcozy.BCozy;
+import org.openbase.bco.bcozy.controller.CenterPaneController;
 import org.openbase.bco.bcozy.controller.powerterminal.Heatmap;
+import org.openbase.bco.bcozy.util.SpatialIndex;
 import org.openbase.bco.bcozy.view.BackgroundPane;
 import org.openbase.bco.bcozy.view.Constants;
 import org.openbase.bco.bcozy.view.ForegroundPane;
@@ -60,9 +65,14 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(LocationMapPane.class);
     private static boolean initialized;
+
+    /**
+     * Half the side length of the area covered by the polygon index in pixel, polygons outside are still found.
+     */
+    private static final double POLYGON_INDEX_EXTENT = 1 << 15;
     public final SimpleObjectProperty<DynamicUnitPolygon<?,?>> selectedUnit;
     private final ForegroundPane foregroundPane;
-    private final List<DynamicPolygon> locationHoverLevelList;
+    private final SpatialIndex<DynamicPolygon> polygonIndex;
     private final Map<String, LocationPolygon> tileMap;
     private final Map<String, LocationPolygon> regionMap;
     private final Map<String, LocationPolygon> zoneMap;
@@ -72,13 +82,23 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
     private LocationPolygon rootLocation;
     private LocationPolygon lastClickTarget;
     private LocationPolygon lastSelectedTile;
+    private DynamicPolygon hoveredPolygon;
+    private double mouseX;
+    private double mouseY;
+    private boolean mouseInside;
+    private boolean hoverResolutionPending;
 
     //private final EventHandler<MouseEvent> mouseEventHandler;
 
     private final List<AnchorPoint> anchorPointList;
 
     private final StackPane editOverlay;
-    private final Pane heatMap;
+    private final Heatmap heatMap;
+
+    /**
+     * Created on the first switch to the temperature mode, so its sensors are only observed if it is ever shown.
+     */
+    private ScalarFieldOverlay temperatureField;
 
     private SelectionMode anchorManipulationMode;
 
@@ -96,7 +116,7 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
         super();
         this.anchorManipulationMode = SelectionMode.NON;
         this.foregroundPane = foregroundPane;
-        this.locationHoverLevelList = new ArrayList<>();
+        this.polygonIndex = new SpatialIndex<>(-POLYGON_INDEX_EXTENT, -POLYGON_INDEX_EXTENT, POLYGON_INDEX_EXTENT, POLYGON_INDEX_EXTENT);
         this.tileMap = new HashMap<>();
         this.regionMap = new HashMap<>();
         this.zoneMap = new HashMap<>();
@@ -125,8 +145,25 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
                 getChildren().remove(heatMap);
         });
 
+        BCozy.appModeProperty.addListener((observableValue, oldValue, newValue) -> {
+            if (newValue == CenterPaneController.State.TEMPERATURE) {
+                if (temperatureField == null) {
+                    temperatureField = ScalarFieldOverlay.createTemperatureOverlay();
+                }
+                temperatureField.activeProperty().set(true);
+                getChildren().add(temperatureField);
+            } else if (oldValue == CenterPaneController.State.TEMPERATURE && temperatureField != null) {
+                temperatureField.activeProperty().set(false);
+                getChildren().remove(temperatureField);
+            }
+        });
+
         this.editOverlay.setPickOnBounds(false);
 
+        // the hovered polygon is looked up from the mouse position instead of tracking enter and exit events of all polygons
+        addEventFilter(MouseEvent.MOUSE_MOVED, event -> updateMousePosition(event.getX(), event.getY(), true));
+        addEventHandler(MouseEvent.MOUSE_EXITED, event -> updateMousePosition(event.getX(), event.getY(), false));
+
 
         // handle node mouse translations
         editOverlay.setOnMousePressed(event -> {
@@ -272,6 +309,7 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
             }
 
             locationPolygon.init(locationUnitConfig);
+            indexPolygon(locationPolygon);
             locationPolygon.activate();
 
             // configure root location if detected
@@ -279,6 +317,10 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
                 setRootLocation(locationPolygon);
             }
 
+            if (isLocationPaneDisplayed()) {
+                insertLayered(locationPolygon);
+            }
+
         } catch (Exception ex) {
             throw new CouldNotPerformException("Could not add location!", ex);
         }
@@ -313,10 +355,15 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
             }
 
             connectionPolygon.init(connectionUnitConfig);
+            indexPolygon(connectionPolygon);
             connectionPolygon.activate();
 
             connectionMap.put(connectionUnitConfig.getId(), connectionPolygon);
 
+            if (isLocationPaneDisplayed()) {
+                insertLayered(connectionPolygon);
+            }
+
             connectionUnitConfig.getConnectionConfig().getTileIdList().forEach(locationId -> {
                 if (tileMap.containsKey(locationId)) {
 
@@ -367,6 +414,7 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
         zoneMap.forEach((locationId, locationPolygon) -> {
                     locationPolygon.shutdown();
                     this.getChildren().remove(locationPolygon);
+                    forgetPolygon(locationPolygon);
                 }
         );
         zoneMap.clear();
@@ -374,6 +422,7 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
         tileMap.forEach((locationId, locationPolygon) -> {
                     locationPolygon.shutdown();
                     this.getChildren().remove(locationPolygon);
+                    forgetPolygon(locationPolygon);
                 }
         );
         tileMap.clear();
@@ -381,6 +430,7 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
         regionMap.forEach((locationId, locationPolygon) -> {
                     locationPolygon.shutdown();
                     this.getChildren().remove(locationPolygon);
+                    forgetPolygon(locationPolygon);
                 }
         );
         regionMap.clear();
@@ -416,6 +466,143 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
         }
     }
 
+    /**
+     * Applies a changed config to the polygon of an already added location.
+     * The polygon is kept, so its children, selection and hover state do not flicker.
+     *
+     * @param locationUnitConfig the changed configuration of the location, its location type has to be unchanged.
+     *
+     * @throws CouldNotPerformException if the location was not added before.
+     * @throws InterruptedException     if interrupted while applying the config.
+     */
+    public void updateLocation(final UnitConfig locationUnitConfig) throws CouldNotPerformException, InterruptedException {
+        final LocationPolygon locationPolygon = getLocationPolygon(locationUnitConfig.getId());
+        if (locationPolygon == null) {
+            throw new InvalidStateException("Location " + locationUnitConfig.getId() + " is not part of the location map!");
+        }
+        locationPolygon.applyConfigUpdate(locationUnitConfig);
+
+        if (locationUnitConfig.getLocationConfig().getRoot()) {
+            setRootLocation(locationPolygon);
+        } else if (locationPolygon == rootLocation) {
+            setRootLocation(null);
+        }
+    }
+
+    /**
+     * Removes a single location from the locationPane.
+     *
+     * @param locationId the id of the location to remove.
+     */
+    public void removeLocation(final String locationId) {
+        LocationPolygon locationPolygon = zoneMap.remove(locationId);
+        if (locationPolygon == null) {
+            locationPolygon = tileMap.remove(locationId);
+        }
+        if (locationPolygon == null) {
+            locationPolygon = regionMap.remove(locationId);
+        }
+        if (locationPolygon == null) {
+            return;
+        }
+        locationPolygon.shutdown();
+        this.getChildren().remove(locationPolygon);
+        forgetPolygon(locationPolygon);
+
+        if (locationPolygon == rootLocation) {
+            setRootLocation(null);
+        }
+        if (locationPolygon == lastSelectedTile) {
+            lastSelectedTile = null;
+        }
+        if (locationPolygon == lastClickTarget) {
+            lastClickTarget = null;
+        }
+        if (locationPolygon == selectedLocation) {
+            selectedLocation = null;
+            selectRootLocation();
+        }
+    }
+
+    /**
+     * Applies a changed config to the polygon of an already added connection.
+     *
+     * @param connectionUnitConfig the changed configuration of the connection, its connection type has to be unchanged.
+     *
+     * @throws CouldNotPerformException if the connection was not added before.
+     * @throws InterruptedException     if interrupted while applying the config.
+     */
+    public void updateConnection(final UnitConfig connectionUnitConfig) throws CouldNotPerformException, InterruptedException {
+        final ConnectionPolygon connectionPolygon = connectionMap.get(connectionUnitConfig.getId());
+        if (connectionPolygon == null) {
+            throw new InvalidStateException("Connection " + connectionUnitConfig.getId() + " is not part of the location map!");
+        }
+        connectionPolygon.applyConfigUpdate(connectionUnitConfig);
+    }
+
+    /**
+     * Removes a single connection from the locationPane.
+     *
+     * @param connectionId the id of the connection to remove.
+     */
+    public void removeConnection(final String connectionId) {
+        final ConnectionPolygon connectionPolygon = connectionMap.remove(connectionId);
+        if (connectionPolygon == null) {
+            return;
+        }
+        connectionPolygon.shutdown();
+        this.getChildren().remove(connectionPolygon);
+        forgetPolygon(connectionPolygon);
+        if (connectionPolygon == lastClickTarget) {
+            lastClickTarget = null;
+        }
+    }
+
+    private LocationPolygon getLocationPolygon(final String locationId) {
+        if (zoneMap.containsKey(locationId)) {
+            return zoneMap.get(locationId);
+        }
+        if (tileMap.containsKey(locationId)) {
+            return tileMap.get(locationId);
+        }
+        return regionMap.get(locationId);
+    }
+
+    /**
+     * @return true if {@link #updateLocationPane()} already added the polygons as children.
+     */
+    private boolean isLocationPaneDisplayed() {
+        return getChildren().contains(editOverlay);
+    }
+
+    /**
+     * Inserts a polygon behind all children of higher layers, following the order of {@link #updateLocationPane()}:
+     * zones, tiles, regions, connections and everything else on top.
+     *
+     * @param polygon the polygon to insert.
+     */
+    private void insertLayered(final DynamicPolygon polygon) {
+        final int layer = getLayer(polygon);
+        int index = 0;
+        while (index < getChildren().size() && getLayer(getChildren().get(index)) <= layer) {
+            index++;
+        }
+        getChildren().add(index, polygon);
+    }
+
+    private static int getLayer(final Node node) {
+        if (node instanceof ZonePolygon) {
+            return 0;
+        } else if (node instanceof TilePolygon) {
+            return 1;
+        } else if (node instanceof RegionPolygon) {
+            return 2;
+        } else if (node instanceof ConnectionPolygon) {
+            return 3;
+        }
+        return 4;
+    }
+
     /**
      * Erases all connections from the locationPane.
      */
@@ -423,6 +610,7 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
         connectionMap.forEach((connectionId, connectionPolygon) -> {
                     connectionPolygon.shutdown();
                     this.getChildren().remove(connectionPolygon);
+                    forgetPolygon(connectionPolygon);
                 }
         );
         connectionMap.clear();
@@ -469,6 +657,10 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
             this.getChildren().add(connectionPolygon);
         });
 
+        if (temperatureField != null && temperatureField.activeProperty().get()) {
+            getChildren().add(temperatureField);
+        }
+
         getChildren().add(editOverlay);
 
         if (JPService.debugMode()) {
@@ -483,6 +675,23 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
         }
     }
 
+    /**
+     * Stops the overlays of the map from observing the registry and their units.
+     */
+    public void shutdown() {
+        heatMap.shutdown();
+        if (temperatureField != null) {
+            temperatureField.shutdown();
+        }
+    }
+
+    /**
+     * @return The heatmap of the power consumption shown in the energy mode
+     */
+    public Heatmap getHeatmap() {
+        return heatMap;
+    }
+
     @Override
     public Pane getEditOverlay() {
         return editOverlay;
@@ -556,11 +765,16 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
 
     @Override
     public void zoomFit() {
+        final LocationPolygon focusPolygon;
         if (rootLocation != null) {
-            autoFocusPolygon(rootLocation);
+            focusPolygon = rootLocation;
         } else if (!tileMap.isEmpty()) {
-            autoFocusPolygon(tileMap.values().iterator().next());
+            focusPolygon = tileMap.values().iterator().next();
+        } else {
+            return;
         }
+        // the shape may still be resolving, so the polygon is focused as soon as it is applied.
+        focusPolygon.getShapeFuture().thenRun(() -> autoFocusPolygon(focusPolygon));
     }
 
     @Override
@@ -597,43 +811,89 @@ public final class LocationMapPane extends MultiTouchPane implements LocationMap
     }
 
     @Override
-    public void handleHoverUpdate(final DynamicPolygon locationPolygon, boolean hover) {
+    public void handleShapeUpdate(final DynamicPolygon polygon) {
+        // polygons which are not part of the map anymore are not indexed again
+        if (!polygonIndex.contains(polygon)) {
+            return;
+        }
+        indexPolygon(polygon);
+        if (mouseInside) {
+            requestHoverResolution();
+        }
+    }
 
-        if (hover) {
-            locationHoverLevelList.add(locationPolygon);
-        } else {
-            locationHoverLevelList.remove(locationPolygon);
+    private void indexPolygon(final DynamicPolygon polygon) {
+        final Bounds bounds = polygon.getBoundsInParent();
+        polygonIndex.put(polygon, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
 
-            // only deselect
-            if (!locationHoverLevelList.contains(locationPolygon)) {
-                locationPolygon.setStrokeWidth(Constants.ROOM_STROKE_WIDTH);
-            }
+    private void forgetPolygon(final DynamicPolygon polygon) {
+        polygonIndex.remove(polygon);
+        if (polygon == hoveredPolygon) {
+            hoveredPolygon = null;
         }
+    }
 
+    /**
+     * Returns the location and connection polygons under the given point, the one of the highest level first.
+     * Only polygons shown on the map and reachable by the mouse are considered.
+     *
+     * @param x the horizontal coordinate within this pane.
+     * @param y the vertical coordinate within this pane.
+     *
+     * @return the polygons containing the point.
+     */
+    public List<DynamicPolygon> getPolygonsAt(final double x, final double y) {
+        final List<DynamicPolygon> polygonList = new ArrayList<>();
+        for (final DynamicPolygon polygon : polygonIndex.query(x, y)) {
+            if (polygon.getParent() == this && polygon.isVisible() && !polygon.isMouseTransparent() && polygon.contains(polygon.parentToLocal(x, y))) {
+                polygonList.add(polygon);
+            }
+        }
         // sort by location level
-        Collections.sort(locationHoverLevelList, (o1, o2) -> Integer.compare(o2.getLevel(), o1.getLevel()));
+        polygonList.sort((o1, o2) -> Integer.compare(o2.getLevel(), o1.getLevel()));
+        return polygonList;
+    }
+
+    private void updateMousePosition(final double x, final double y, final boolean inside) {
+        mouseX = x;
+        mouseY = y;
+        mouseInside = inside;
+        requestHoverResolution();
+    }
 
-        InfoPane.info("");
+    /**
+     * Resolves the hovered polygon once all pending mouse events are processed, so a burst of events only resolves
+     * the hover once.
+     */
+    private void requestHoverResolution() {
+        if (hoverResolutionPending) {
+            return;
+        }
+        hoverResolutionPending = true;
+        Platform.runLater(this::resolveHover);
+    }
 
-        boolean first = true;
-        DynamicPolygon lastPolygon = null;
-        for (DynamicPolygon polygon : locationHoverLevelList) {
+    private void resolveHover() {
+        hoverResolutionPending = false;
 
-            // only handle ones
-            if (lastPolygon == polygon) {
-                continue;
-            }
+        final List<DynamicPolygon> polygonList = mouseInside ? getPolygonsAt(mouseX, mouseY) : Collections.emptyList();
+        final DynamicPolygon topPolygon = polygonList.isEmpty() ? null : polygonList.get(0);
+        if (topPolygon == hoveredPolygon) {
+            return;
+        }
 
-            // select top level location
-            if (first) {
-                first = false;
-                polygon.setStrokeWidth(Constants.ROOM_STROKE_WIDTH_MOUSE_OVER);
-                InfoPane.info(polygon.getLabel("?"));
-            } else {
-                polygon.setStrokeWidth(Constants.ROOM_STROKE_WIDTH);
-            }
+        if (hoveredPolygon != null) {
+            hoveredPolygon.setStrokeWidth(Constants.ROOM_STROKE_WIDTH);
+        }
+        hoveredPolygon = topPolygon;
 
-            lastPolygon = polygon;
+        // select top level location
+        if (topPolygon != null) {
+            topPolygon.setStrokeWidth(Constants.ROOM_STROKE_WIDTH_MOUSE_OVER);
+            InfoPane.info(topPolygon.getLabel("?"));
+        } else {
+            InfoPane.info("");
         }
     }
 
@@ -23,7 +23,6 @@ import javafx.collections.ObservableList;
 import javafx.scene.paint.Color;
 import org.openbase.bco.bcozy.view.Constants;
 import org.openbase.jul.exception.InstantiationException;
-import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
 import org.openbase.type.domotic.unit.connection.ConnectionDataType;
 
 /**
@@ -39,9 +38,7 @@ public class PassagePolygon extends ConnectionPolygon {
     }
 
     @Override
-    public void applyConfigUpdate(UnitConfig unitConfig) throws InterruptedException {
-        super.applyConfigUpdate(unitConfig);
-        
+    protected void applyShapeUpdate() {
         // The following Code adjusts passagePolygon to properly cut out room walls.
         // Yes, it is unfortunately ugly as hell... :(
         if (isHorizontal()) {
@@ -0,0 +1,748 @@
+package org.openbase.bco.bcozy.view.location;
+
+import com.google.protobuf.Message;
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Stop;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.GridRegions;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapDiffusion;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapKernel;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapMode;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapRenderer;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapSpot;
+import org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes.HeatmapValues;
+import org.openbase.bco.bcozy.util.ShapeGeometry;
+import org.openbase.bco.bcozy.view.Constants;
+import org.openbase.bco.dal.lib.layer.unit.TemperatureSensor;
+import org.openbase.bco.dal.lib.layer.unit.UnitRemote;
+import org.openbase.bco.dal.remote.layer.unit.CustomUnitPool;
+import org.openbase.bco.registry.remote.Registries;
+import org.openbase.bco.registry.unit.lib.UnitRegistry;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.provider.DataProvider;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
+import org.openbase.rct.Transform;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.unit.UnitConfigType;
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
+import org.openbase.type.domotic.unit.location.LocationConfigType;
+import org.openbase.type.geometry.AxisAlignedBoundingBox3DFloatType.AxisAlignedBoundingBox3DFloat;
+import org.openbase.type.geometry.TranslationType;
+import org.openbase.type.spatial.PlacementConfigType.PlacementConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.vecmath.Point3d;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Overlay of the location map showing a scalar field spread from the positions of units of one type.
+ * <p>
+ * Each unit inside of a tile becomes a spot whose value is provided by a {@link SpotValueMapper}. The field is
+ * computed on a coarse grid clipped to the tiles and rendered into a single image upscaled to the map. Updates are
+ * event driven: only spots whose value changed are marked dirty and only their surroundings are computed and
+ * rendered again, at most one frame per frame budget. The power heatmap and the temperature field share this
+ * engine.
+ */
+public class ScalarFieldOverlay extends Pane {
+
+    /**
+     * Default minimal time between two frames of the overlay.
+     */
+    public static final long DEFAULT_FRAME_BUDGET_MILLISECONDS = 250;
+
+    /**
+     * Default edge length of a cell of the field in meters.
+     */
+    public static final double DEFAULT_CELL_SIZE_METERS = 0.2;
+
+    /**
+     * Gradient of temperature fields from blue over yellow to red.
+     */
+    public static final List<Stop> TEMPERATURE_GRADIENT = Collections.unmodifiableList(Arrays.asList(
+            new Stop(0, Color.BLUE), new Stop(0.5, Color.YELLOW), new Stop(1, Color.RED)));
+
+    /**
+     * Temperatures in degree celsius mapped to the lowest and highest spot value.
+     */
+    private static final double MIN_TEMPERATURE = 15;
+    private static final double MAX_TEMPERATURE = 30;
+
+    /**
+     * Number of diffusion steps per frame.
+     */
+    protected static final int SPREADING_ITERATIONS = 3;
+
+    /**
+     * Width of a ring of a spot relative to the spot radius.
+     */
+    private static final double SPOT_STOP_WIDTH = 0.1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScalarFieldOverlay.class);
+
+    private final UnitPoolSupplier unitPoolSupplier;
+    private final SpotValueMapper valueMapper;
+    private final long frameBudgetMilliseconds;
+    private final HeatmapMode mode;
+    private final double pixelsPerCell;
+    private final List<Stop> gradient;
+    private final BooleanProperty activeProperty = new SimpleBooleanProperty(false);
+    private final Set<HeatmapSpot> dirtySpots = new HashSet<>();
+    private final Map<String, List<HeatmapSpot>> spotsByUnitId = new HashMap<>();
+    private final AtomicBoolean tileReloadScheduled = new AtomicBoolean(false);
+    private final List<Runnable> unitObserverRemovals = new ArrayList<>();
+    private final Observer<DataProvider<UnitRegistryData>, UnitRegistryData> registryObserver = (source, data) -> handleRegistryUpdate();
+
+    private CustomUnitPool<? extends Message, ? extends UnitRemote<? extends Message>> unitPool;
+    private volatile HeatmapValues fieldValues;
+    private volatile HeatmapRenderer renderer;
+    private volatile Map<HeatmapSpot, HeatmapKernel> kernels = Collections.emptyMap();
+    private volatile boolean active;
+    private volatile boolean liveUpdatesSuspended;
+    private volatile boolean tilesOutdated;
+    private Map<String, List<PlacementConfig>> tilePlacements = Collections.emptyMap();
+    private boolean shutdownInitiated;
+    private boolean frameScheduled;
+    private long lastFrameTime;
+
+    /**
+     * Constructor
+     *
+     * @param unitPoolSupplier        Supplier of the pool of the units the field is spread from
+     * @param valueMapper             Mapper providing the value of the spot of a unit
+     * @param frameBudgetMilliseconds Minimal time between two frames of the overlay
+     * @param mode                    Method computing the field from the spots
+     * @param cellSizeMeters          Edge length of a cell in meters, the field is computed per cell and upscaled to
+     *                                the map by bilinear filtering
+     * @param gradient                Colours of the spot values, ascending by offset
+     */
+    public ScalarFieldOverlay(final UnitPoolSupplier unitPoolSupplier, final SpotValueMapper valueMapper, final long frameBudgetMilliseconds,
+                              final HeatmapMode mode, final double cellSizeMeters, final List<Stop> gradient) {
+        this.unitPoolSupplier = unitPoolSupplier;
+        this.valueMapper = valueMapper;
+        this.frameBudgetMilliseconds = frameBudgetMilliseconds;
+        this.mode = mode;
+        this.pixelsPerCell = Math.max(1, cellSizeMeters * Constants.METER_TO_PIXEL);
+        this.gradient = gradient;
+        this.setPickOnBounds(false);
+        this.setMouseTransparent(true);
+
+        activeProperty.addListener((observable, oldValue, newValue) -> {
+            active = newValue;
+            if (active) {
+                onActivation();
+                if (tilesOutdated) {
+                    scheduleTileReload();
+                }
+            } else {
+                onDeactivation();
+            }
+        });
+
+        GlobalCachedExecutorService.submit(() -> {
+            try {
+                init();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (CouldNotPerformException ex) {
+                ExceptionPrinter.printHistory("Could not initialize scalar field overlay", ex, LOGGER);
+            }
+        });
+    }
+
+    /**
+     * Creates an overlay of the temperature measured by all temperature sensors.
+     *
+     * @return The overlay, inactive until its {@link #activeProperty()} is set
+     */
+    public static ScalarFieldOverlay createTemperatureOverlay() {
+        return new ScalarFieldOverlay(() -> createUnitPool(UnitType.TEMPERATURE_SENSOR),
+                unit -> normalize(((TemperatureSensor) unit).getTemperatureState().getTemperature(), MIN_TEMPERATURE, MAX_TEMPERATURE),
+                DEFAULT_FRAME_BUDGET_MILLISECONDS, HeatmapMode.DIFFUSION, DEFAULT_CELL_SIZE_METERS, TEMPERATURE_GRADIENT);
+    }
+
+    /**
+     * Creates and activates a pool of all units of the given type.
+     *
+     * @param unitType Type of the units
+     *
+     * @return The activated pool
+     *
+     * @throws CouldNotPerformException if the pool could not be activated
+     * @throws InterruptedException     if interrupted while activating the pool
+     */
+    public static CustomUnitPool<? extends Message, ? extends UnitRemote<? extends Message>> createUnitPool(final UnitType unitType) throws CouldNotPerformException, InterruptedException {
+        final CustomUnitPool<? extends Message, ? extends UnitRemote<? extends Message>> pool = new CustomUnitPool<>();
+        pool.init(unitConfig -> unitConfig.getUnitType() == unitType);
+        pool.activate();
+        return pool;
+    }
+
+    private static double normalize(final double value, final double min, final double max) {
+        return Math.max(0, Math.min(1, (value - min) / (max - min)));
+    }
+
+    /**
+     * Describes if the overlay is shown, an inactive overlay does not compute anything.
+     *
+     * @return The property
+     */
+    public BooleanProperty activeProperty() {
+        return activeProperty;
+    }
+
+    private void init() throws CouldNotPerformException, InterruptedException {
+        unitPool = unitPoolSupplier.getUnitPool();
+        final UnitConfigType.UnitConfig rootLocationConfig = Registries.getUnitRegistry(true).getRootLocationConfig();
+        final Map<String, List<PlacementConfig>> initialTilePlacements = loadTilePlacements();
+        final HeatmapValues values = initField(rootLocationConfig);
+        for (HeatmapSpot spot : values.getSpots()) {
+            try {
+                spotsByUnitId.computeIfAbsent(unitPool.getInternalUnitList().get(spot.unitListPosition).getId(), id -> new ArrayList<>()).add(spot);
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory("Could not get id of overlay unit", ex, LOGGER, LogLevel.DEBUG);
+            }
+        }
+        renderer = new HeatmapRenderer(values.getGrid().getRows(), values.getGrid().getColumns(), gradient);
+        updateKernels(values);
+        fieldValues = values;
+        Platform.runLater(() -> {
+            final ImageView fieldView = new ImageView(renderer.getImage());
+            fieldView.setOpacity(0.8);
+            fieldView.setSmooth(true);
+            fieldView.setFitWidth(renderer.getRows() * pixelsPerCell);
+            fieldView.setFitHeight(renderer.getColumns() * pixelsPerCell);
+            this.getChildren().setAll(fieldView);
+        });
+
+        synchronized (this) {
+            if (shutdownInitiated) {
+                return;
+            }
+            tilePlacements = initialTilePlacements;
+            Registries.getUnitRegistry().addDataObserver(registryObserver);
+            for (UnitRemote<? extends Message> unit : unitPool.getInternalUnitList()) {
+                unitObserverRemovals.add(observe(unit));
+            }
+        }
+        if (active) {
+            markDirty(values.getSpots());
+        }
+    }
+
+    private <M extends Message> Runnable observe(final UnitRemote<M> unit) {
+        final Observer<DataProvider<M>, M> observer = (source, data) -> handleUnitUpdate(unit);
+        unit.addDataObserver(observer);
+        return () -> unit.removeDataObserver(observer);
+    }
+
+    /**
+     * Stops observing the registry and the units, the field is not updated anymore afterwards.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdownInitiated = true;
+            for (Runnable unitObserverRemoval : unitObserverRemovals) {
+                unitObserverRemoval.run();
+            }
+            unitObserverRemovals.clear();
+        }
+        try {
+            Registries.getUnitRegistry().removeDataObserver(registryObserver);
+        } catch (NotAvailableException ex) {
+            ExceptionPrinter.printHistory("Could not remove registry observer of overlay", ex, LOGGER, LogLevel.DEBUG);
+        }
+    }
+
+    /**
+     * Flags the tiles as outdated, they are only rasterized again while the overlay is active.
+     */
+    private void handleRegistryUpdate() {
+        tilesOutdated = true;
+        if (active) {
+            scheduleTileReload();
+        }
+    }
+
+    private void scheduleTileReload() {
+        if (tileReloadScheduled.compareAndSet(false, true)) {
+            GlobalCachedExecutorService.submit(this::reloadTiles);
+        }
+    }
+
+    /**
+     * Rasterizes the tiles again if the placement of a tile or of one of its parent locations changed.
+     * Runs under the lock of {@link #updateField()} so no frame is computed with partially updated tiles.
+     */
+    private synchronized void reloadTiles() {
+        tileReloadScheduled.set(false);
+        final HeatmapValues values = fieldValues;
+        if (!active || shutdownInitiated || values == null) {
+            return;
+        }
+        tilesOutdated = false;
+        try {
+            final Map<String, List<PlacementConfig>> placements = loadTilePlacements();
+            if (placements.equals(tilePlacements)) {
+                return;
+            }
+            values.setLocations(loadTiles());
+            tilePlacements = placements;
+            updateKernels(values);
+        } catch (CouldNotPerformException ex) {
+            ExceptionPrinter.printHistory("Could not rasterize the tiles of the overlay again", ex, LOGGER);
+            return;
+        }
+        markDirty(values.getSpots());
+    }
+
+    /**
+     * Called on the FX thread when the overlay gets activated.
+     */
+    protected void onActivation() {
+        final HeatmapValues values = fieldValues;
+        if (values != null) {
+            markDirty(values.getSpots());
+        }
+    }
+
+    /**
+     * Called on the FX thread when the overlay gets deactivated.
+     */
+    protected void onDeactivation() {
+    }
+
+    /**
+     * Marks the spots of the updated unit as dirty if their value changed.
+     *
+     * @param unit Unit with new data
+     */
+    private void handleUnitUpdate(final UnitRemote<? extends Message> unit) {
+        if (!active || liveUpdatesSuspended) {
+            return;
+        }
+        final List<HeatmapSpot> changedSpots = new ArrayList<>();
+        try {
+            for (HeatmapSpot spot : spotsByUnitId.getOrDefault(unit.getId(), Collections.emptyList())) {
+                if (Double.compare(readSpotValue(spot), spot.value) != 0) {
+                    changedSpots.add(spot);
+                }
+            }
+        } catch (NotAvailableException ex) {
+            ExceptionPrinter.printHistory("Could not get value of overlay unit", ex, LOGGER, LogLevel.DEBUG);
+        }
+        markDirty(changedSpots);
+    }
+
+    /**
+     * Schedules a frame updating the given spots, at most one frame is computed per frame budget.
+     *
+     * @param spots Spots which have to be updated
+     */
+    protected void markDirty(final Collection<HeatmapSpot> spots) {
+        if (spots.isEmpty()) {
+            return;
+        }
+        synchronized (dirtySpots) {
+            dirtySpots.addAll(spots);
+            if (frameScheduled) {
+                return;
+            }
+            frameScheduled = true;
+            final long delay = Math.max(0, lastFrameTime + frameBudgetMilliseconds - System.currentTimeMillis());
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(this::updateField);
+        }
+    }
+
+    /**
+     * Stops or resumes updating the field from the live values of the units, e.g. while a recording is shown.
+     * Resuming clears the field and paints all spots again.
+     *
+     * @param suspended true to stop the live updates
+     */
+    protected void setLiveUpdatesSuspended(final boolean suspended) {
+        liveUpdatesSuspended = suspended;
+        final HeatmapValues values = fieldValues;
+        if (suspended || values == null || !active) {
+            return;
+        }
+        renderer.paint((field, rows, columns) -> {
+            Arrays.fill(field, 0f);
+            return Collections.singletonList(new Rectangle(0, 0, rows, columns));
+        });
+        markDirty(values.getSpots());
+    }
+
+    /**
+     * Computes the kernels of all spots if the field is computed by superposition.
+     *
+     * @param values Values with the current tiles and spots
+     *
+     * @return true if the kernels were computed
+     */
+    private boolean updateKernels(final HeatmapValues values) {
+        if (mode != HeatmapMode.SUPERPOSITION) {
+            return false;
+        }
+        kernels = computeKernels(values);
+        return true;
+    }
+
+    /**
+     * Computes the kernel of each spot.
+     *
+     * @param values Values with the current tiles and spots
+     *
+     * @return The kernel of each spot
+     */
+    protected Map<HeatmapSpot, HeatmapKernel> computeKernels(final HeatmapValues values) {
+        final float[] profile = HeatmapKernel.computeProfile(SPREADING_ITERATIONS);
+        final double ringWidth = SPOT_STOP_WIDTH * SPREADING_ITERATIONS * Constants.RADIUS_SPOTS / pixelsPerCell;
+        final Map<HeatmapSpot, HeatmapKernel> spotKernels = new HashMap<>();
+        for (HeatmapSpot spot : values.getSpots()) {
+            spotKernels.put(spot, HeatmapKernel.compute(values, spot, profile, ringWidth));
+        }
+        return spotKernels;
+    }
+
+    /**
+     * @return The kernels of the spots, computed on demand if the field is not computed by superposition
+     */
+    protected Map<HeatmapSpot, HeatmapKernel> getKernels() {
+        return mode == HeatmapMode.SUPERPOSITION ? kernels : computeKernels(fieldValues);
+    }
+
+    private double readSpotValue(final HeatmapSpot spot) throws NotAvailableException {
+        return valueMapper.getSpotValue(unitPool.getInternalUnitList().get(spot.unitListPosition));
+    }
+
+    /**
+     * @return Values of the field or null if the overlay is not initialized yet
+     */
+    protected HeatmapValues getFieldValues() {
+        return fieldValues;
+    }
+
+    protected HeatmapRenderer getRenderer() {
+        return renderer;
+    }
+
+    protected Map<String, List<HeatmapSpot>> getSpotsByUnitId() {
+        return spotsByUnitId;
+    }
+
+    protected long getFrameBudgetMilliseconds() {
+        return frameBudgetMilliseconds;
+    }
+
+    /**
+     * Initializes the field
+     *
+     * @param rootLocationConfig rootLocation to get the position of the units
+     *
+     * @return HeatmapValues
+     */
+    private HeatmapValues initField(UnitConfigType.UnitConfig rootLocationConfig) {
+        List<ShapeGeometry> rooms = null;
+        try {
+            rooms = loadTiles();
+        } catch (CouldNotPerformException ex) {
+            ExceptionPrinter.printHistory("Could not get location units", ex, LOGGER);
+        }
+        double xTranslation = 0;
+        double yTranslation = 0;
+
+        AxisAlignedBoundingBox3DFloat rootBoundingBox = rootLocationConfig.getPlacementConfig().getShape().getBoundingBox();
+
+        HeatmapDiffusion u = new HeatmapDiffusion((int) Math.ceil(rootBoundingBox.getDepth() * Constants.METER_TO_PIXEL / pixelsPerCell), (int) Math.ceil(rootBoundingBox.getWidth() * Constants.METER_TO_PIXEL / pixelsPerCell));
+        List<HeatmapSpot> spots = new ArrayList<>();
+
+        try {
+            ShapeGeometry rootGeometry = DynamicUnitPolygon.loadShapeGeometry(rootLocationConfig);
+            xTranslation = Math.abs(rootGeometry.getX(0));
+            yTranslation = Math.abs(rootGeometry.getY(0));
+            this.setTranslateY(-xTranslation);
+            this.setTranslateX(-yTranslation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ExceptionPrinter.printHistory("Could not get Vertices of the locations", e, LOGGER);
+        } catch (CouldNotPerformException e) {
+            ExceptionPrinter.printHistory("Could not get Vertices of the locations", e, LOGGER);
+        }
+
+        HeatmapValues values = new HeatmapValues(rooms, spots, u, xTranslation, yTranslation, pixelsPerCell);
+
+        // request the transformations of all units at once, so the loop below only waits for the slowest one.
+        final List<UnitConfigType.UnitConfig> unitConfigs = new ArrayList<>();
+        for (UnitRemote<? extends Message> unit : unitPool.getInternalUnitList()) {
+            if (unit.isConfigAvailable()) {
+                try {
+                    unitConfigs.add(unit.getConfig());
+                } catch (NotAvailableException ex) {
+                    // resolved within the loop below
+                }
+            }
+        }
+        TransformationCache.prefetch(unitConfigs);
+
+        int unitListPosition = -1;
+        for (UnitRemote<? extends Message> unit : unitPool.getInternalUnitList()) {
+            unitListPosition++;
+            try {
+                unit.waitForData(Constants.TRANSFORMATION_TIMEOUT, TimeUnit.MILLISECONDS);
+                Future<Transform> transform = TransformationCache.getTransformation(unit.getConfig(), rootLocationConfig);
+                TranslationType.Translation unitPosition = unit.getUnitPosition();
+                Point3d unitPoint = new Point3d(unitPosition.getX(), unitPosition.getY(), unitPosition.getZ());
+
+                //Wait for transformation of unitPoint but use getUnitPositionGlobalPoint3D because I need the Global unit point
+                transform.get(Constants.TRANSFORMATION_TIMEOUT, TimeUnit.MILLISECONDS).getTransform().transform(unitPoint);
+
+                final Point3d globalUnitPosition = unit.getUnitPositionGlobalPoint3d().get(UnitRegistry.RCT_TIMEOUT, TimeUnit.MILLISECONDS);
+
+                int unitPointGlobalX = (int) Math.floor((globalUnitPosition.x * Constants.METER_TO_PIXEL + xTranslation) / pixelsPerCell);
+                int unitPointGlobalY = (int) Math.floor((globalUnitPosition.y * Constants.METER_TO_PIXEL + yTranslation) / pixelsPerCell);
+
+                if (values.isInsideLocation(unitPointGlobalY, unitPointGlobalX))
+                    spots.add(new HeatmapSpot(unitPointGlobalY, unitPointGlobalX, 0, unitListPosition));
+            } catch (CouldNotPerformException | TimeoutException | ExecutionException | CancellationException ex) {
+                ExceptionPrinter.printHistory("Could not get location units", ex, LOGGER, LogLevel.DEBUG);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        values.setSpots(spots);
+        return values;
+    }
+
+    /**
+     * Loads the placements of all tiles together with the placements of their parent locations, which determine
+     * where the tiles are rasterized.
+     *
+     * @return The placements by tile id
+     *
+     * @throws CouldNotPerformException if the locations could not be loaded
+     */
+    private static Map<String, List<PlacementConfig>> loadTilePlacements() throws CouldNotPerformException {
+        final Map<String, List<PlacementConfig>> placements = new HashMap<>();
+        for (UnitConfigType.UnitConfig locationConfig : Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.LOCATION)) {
+            if (locationConfig.getLocationConfig().getLocationType() == LocationConfigType.LocationConfig.LocationType.TILE) {
+                placements.put(locationConfig.getId(), TransformationCache.getPlacementRevision(locationConfig));
+            }
+        }
+        return placements;
+    }
+
+    /**
+     * Loads the tiles and their shape out of the UnitRegistry
+     *
+     * @return List<ShapeGeometry> List of tiles with the shape of the tile
+     */
+    private List<ShapeGeometry> loadTiles() throws CouldNotPerformException {
+        List<UnitConfigType.UnitConfig> roomConfigs = null;
+        List<ShapeGeometry> rooms = new ArrayList<>();
+
+        try {
+            roomConfigs = Registries.getUnitRegistry().getUnitConfigsByUnitType(UnitType.LOCATION);
+        } catch (CouldNotPerformException ex) {
+            throw new CouldNotPerformException("Could not get location units", ex);
+        }
+        for (UnitConfigType.UnitConfig roomConfig : roomConfigs) {
+            LocationConfigType.LocationConfig.LocationType locationType = roomConfig.getLocationConfig().getLocationType();
+
+            // filter non tiles
+            if (!locationType.equals(LocationConfigType.LocationConfig.LocationType.TILE)) {
+                continue;
+            }
+
+            try {
+                rooms.add(DynamicUnitPolygon.loadShapeGeometry(roomConfig));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                ExceptionPrinter.printHistory("Could not get location units", ex, LOGGER);
+            } catch (CouldNotPerformException ex) {
+                ExceptionPrinter.printHistory("Could not get location units", ex, LOGGER);
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Computes a frame for all dirty spots.
+     * The field is computed around the dirty spots on the calling thread, the FX thread only converts the changed
+     * regions into pixels.
+     */
+    private synchronized void updateField() {
+        final List<HeatmapSpot> updatedSpots;
+        synchronized (dirtySpots) {
+            updatedSpots = new ArrayList<>(dirtySpots);
+            dirtySpots.clear();
+            frameScheduled = false;
+            lastFrameTime = System.currentTimeMillis();
+        }
+        if (!active || liveUpdatesSuspended) {
+            return;
+        }
+
+        final HeatmapValues values = fieldValues;
+        final List<HeatmapSpot> spots = values.getSpots();
+        final HeatmapDiffusion u = values.getGrid();
+
+        final List<Rectangle> diffusionRegions = new ArrayList<>();
+        final List<Rectangle> paintRegions = new ArrayList<>();
+        for (HeatmapSpot spot : updatedSpots) {
+            try {
+                spot.value = readSpotValue(spot);
+            } catch (NotAvailableException ex) {
+                ExceptionPrinter.printHistory("Could not get value of overlay unit", ex, LOGGER);
+            }
+            if (mode == HeatmapMode.DIFFUSION) {
+                u.setValue(spot.x, spot.y, (float) spot.value);
+                diffusionRegions.add(new Rectangle(spot.x - SPREADING_ITERATIONS, spot.y - SPREADING_ITERATIONS, 2 * SPREADING_ITERATIONS + 1, 2 * SPREADING_ITERATIONS + 1));
+            }
+            paintRegions.add(getSpotRegion(spot, SPREADING_ITERATIONS));
+        }
+        for (Rectangle region : GridRegions.merge(diffusionRegions)) {
+            u.diffuse(spots, SPREADING_ITERATIONS, region);
+        }
+
+        final Map<HeatmapSpot, HeatmapKernel> spotKernels = kernels;
+        renderer.paint((field, rows, columns) -> {
+            final List<Rectangle> dirtyRegions = GridRegions.merge(paintRegions);
+            for (Rectangle dirtyRegion : dirtyRegions) {
+                final Rectangle region = dirtyRegion.intersection(new Rectangle(0, 0, rows, columns));
+                if (region.isEmpty()) {
+                    continue;
+                }
+                clearRegion(field, columns, region);
+
+                // neighbouring spots reaching into the region are painted again as well.
+                for (HeatmapSpot spot : spots) {
+                    if (!getSpotRegion(spot, SPREADING_ITERATIONS).intersects(region)) {
+                        continue;
+                    }
+                    if (mode == HeatmapMode.SUPERPOSITION) {
+                        spotKernels.get(spot).addTo(field, columns, (float) spot.value, region);
+                    } else {
+                        paintSpot(field, values, spot, SPREADING_ITERATIONS, region);
+                    }
+                }
+            }
+            return dirtyRegions;
+        });
+    }
+
+    /**
+     * Region of grid cells a spot can paint
+     *
+     * @param spot               Position of the spot
+     * @param spreadingIteration parameter how often the heat spreads
+     *
+     * @return Region with x and width referring to rows, y and height to columns
+     */
+    private Rectangle getSpotRegion(final HeatmapSpot spot, final int spreadingIteration) {
+        final int reach = (int) Math.ceil(SPOT_STOP_WIDTH * spreadingIteration * spreadingIteration * Constants.RADIUS_SPOTS / pixelsPerCell);
+        return new Rectangle(spot.x - reach, spot.y - reach, 2 * reach + 1, 2 * reach + 1);
+    }
+
+    private static void clearRegion(final float[] field, final int columns, final Rectangle region) {
+        for (int row = region.x; row < region.x + region.width; row++) {
+            Arrays.fill(field, row * columns + region.y, row * columns + region.y + region.height, 0f);
+        }
+    }
+
+    /**
+     * Paints a single spot into the field of the renderer.
+     * The intensity falls off in rings around the spot, following the spread values at the first cells next to the
+     * spot. Cells of other tiles than the tile of the spot are not painted. Overlapping spots are blended.
+     *
+     * @param field              Intensities of the renderer
+     * @param values             Class with relevant data (position, value) of the spots
+     * @param spot               Position and value of a single spot
+     * @param spreadingIteration parameter how often the heat spreads
+     * @param clip               Region of cells which may be painted
+     */
+    private void paintSpot(final float[] field, final HeatmapValues values, final HeatmapSpot spot, final int spreadingIteration, final Rectangle clip) {
+        final HeatmapDiffusion u = values.getGrid();
+        final int spotTileId = values.getTileId(spot.x, spot.y);
+        if (spotTileId == HeatmapValues.NO_TILE) {
+            return;
+        }
+
+        final float[] stops = new float[spreadingIteration + 1];
+        for (int i = 0; i < spreadingIteration; i++) {
+            float stop = 1;
+            if (spot.x + i < u.getRows())
+                stop = Math.min(stop, u.getValue(spot.x + i, spot.y));
+            if (spot.y + i < u.getColumns())
+                stop = Math.min(stop, u.getValue(spot.x, spot.y + i));
+            if (spot.x - i > 0)
+                stop = Math.min(stop, u.getValue(spot.x - i, spot.y));
+            if (spot.y - i > 0)
+                stop = Math.min(stop, u.getValue(spot.x, spot.y - i));
+            stops[i] = Math.max(0, stop);
+        }
+
+        final Rectangle region = getSpotRegion(spot, spreadingIteration).intersection(clip);
+        final double ringWidth = SPOT_STOP_WIDTH * spreadingIteration * Constants.RADIUS_SPOTS / pixelsPerCell;
+        final int columns = u.getColumns();
+        for (int row = region.x; row < region.x + region.width; row++) {
+            for (int column = region.y; column < region.y + region.height; column++) {
+                final double deltaX = row - spot.x;
+                final double deltaY = column - spot.y;
+                final double ring = Math.sqrt((deltaX * deltaX) + (deltaY * deltaY)) / ringWidth;
+                final int stop = (int) ring;
+                if (stop >= spreadingIteration || values.getTileId(row, column) != spotTileId) {
+                    continue;
+                }
+                final float fraction = (float) (ring - stop);
+                final float intensity = stops[stop] + (stops[stop + 1] - stops[stop]) * fraction;
+                final int index = row * columns + column;
+                field[index] = 1 - (1 - field[index]) * (1 - intensity);
+            }
+        }
+    }
+
+    /**
+     * Provides the pool of the units a field is spread from.
+     */
+    public interface UnitPoolSupplier {
+        CustomUnitPool<? extends Message, ? extends UnitRemote<? extends Message>> getUnitPool() throws CouldNotPerformException, InterruptedException;
+    }
+
+    /**
+     * Maps the current data of a unit to the value of its spot.
+     */
+    public interface SpotValueMapper {
+
+        /**
+         * @param unit Unit of the spot
+         * @return Value between 0 and 1
+         * @throws NotAvailableException if the unit provides no value yet
+         */
+        double getSpotValue(UnitRemote<? extends Message> unit) throws NotAvailableException;
+    }
+}
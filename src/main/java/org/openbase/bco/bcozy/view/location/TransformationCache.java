@@ -0,0 +1,169 @@
+/**
+ * ==================================================================
+ * <p>
+ * This file is part of org.openbase.bco.bcozy.
+ * <p>
+ * org.openbase.bco.bcozy is free software: you can redistribute it and modify
+ * it under the terms of the GNU General Public License (Version 3)
+ * as published by the Free Software Foundation.
+ * <p>
+ * org.openbase.bco.bcozy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU General Public License
+ * along with org.openbase.bco.bcozy. If not, see <http://www.gnu.org/licenses/>.
+ * ==================================================================
+ */
+package org.openbase.bco.bcozy.view.location;
+
+import org.openbase.bco.registry.remote.Registries;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.openbase.rct.Transform;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
+import org.openbase.type.spatial.PlacementConfigType.PlacementConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Process wide cache of the transformations between units, shared by all layers of the floorplan.
+ * <p>
+ * A transformation only depends on the placements of both units and of the locations they are placed in, so an entry
+ * stays valid as long as none of these placement configs changes. Since unit configs do not carry a revision, these
+ * placement configs are stored with the entry and compared on each lookup. Entries whose transformation failed are
+ * requested again and entries of units removed from the registry are dropped via {@link #retainUnits(Set)}.
+ */
+public class TransformationCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransformationCache.class);
+
+    private static final Map<String, CacheEntry> transformationMap = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the transformation from the coordinate system of the source unit into the one of the target unit.
+     * The transformation is only requested if it is not cached or the placement of one of the units changed.
+     *
+     * @param sourceUnitConfig the unit to transform from.
+     * @param targetUnitConfig the unit to transform into.
+     *
+     * @return the future of the transformation.
+     *
+     * @throws CouldNotPerformException is thrown if the transformation could not be requested.
+     */
+    public static Future<Transform> getTransformation(final UnitConfig sourceUnitConfig, final UnitConfig targetUnitConfig) throws CouldNotPerformException {
+        final String key = sourceUnitConfig.getId() + ":" + targetUnitConfig.getId();
+        final List<PlacementConfig> placementRevision = getPlacementRevision(sourceUnitConfig);
+        placementRevision.addAll(getPlacementRevision(targetUnitConfig));
+
+        final CacheEntry cachedEntry = transformationMap.get(key);
+        if (cachedEntry != null && cachedEntry.placementRevision.equals(placementRevision) && !isFailed(cachedEntry.transformation)) {
+            return cachedEntry.transformation;
+        }
+
+        final Future<Transform> transformation = Registries.getUnitRegistry().getUnitTransformation(sourceUnitConfig, targetUnitConfig);
+        transformationMap.put(key, new CacheEntry(sourceUnitConfig.getId(), targetUnitConfig.getId(), placementRevision, transformation));
+        return transformation;
+    }
+
+    /**
+     * Returns the transformation from the coordinate system of the given unit into the one of the root location.
+     *
+     * @see #getTransformation(UnitConfig, UnitConfig)
+     */
+    public static Future<Transform> getRootTransformation(final UnitConfig unitConfig) throws CouldNotPerformException {
+        return getTransformation(unitConfig, Registries.getUnitRegistry().getRootLocationConfig());
+    }
+
+    /**
+     * Requests the transformations of all given units into the root location without waiting for them,
+     * so later lookups find them resolved already.
+     *
+     * @param unitConfigs the units to prefetch.
+     */
+    public static void prefetch(final Collection<UnitConfig> unitConfigs) {
+        for (final UnitConfig unitConfig : unitConfigs) {
+            try {
+                getRootTransformation(unitConfig);
+            } catch (CouldNotPerformException ex) {
+                ExceptionPrinter.printHistory("Could not prefetch transformation of unit " + unitConfig.getId(), ex, LOGGER, LogLevel.DEBUG);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached transformations from or into units which are not part of the given ones anymore.
+     *
+     * @param unitIds the ids of all units currently known by the registry.
+     */
+    public static void retainUnits(final Set<String> unitIds) {
+        transformationMap.values().removeIf(entry -> !unitIds.contains(entry.sourceUnitId) || !unitIds.contains(entry.targetUnitId));
+    }
+
+    /**
+     * Collects the placement configs the transformation of the given unit depends on,
+     * which are the one of the unit itself and the ones of all locations up to the root location.
+     */
+    static List<PlacementConfig> getPlacementRevision(final UnitConfig unitConfig) throws CouldNotPerformException {
+        final List<PlacementConfig> placementRevision = new ArrayList<>();
+        UnitConfig currentUnitConfig = unitConfig;
+        placementRevision.add(currentUnitConfig.getPlacementConfig());
+        while (!isRootLocation(currentUnitConfig)) {
+            final String locationId = currentUnitConfig.getPlacementConfig().getLocationId();
+            if (locationId.isEmpty() || locationId.equals(currentUnitConfig.getId())) {
+                break;
+            }
+            currentUnitConfig = Registries.getUnitRegistry().getUnitConfigById(locationId);
+            placementRevision.add(currentUnitConfig.getPlacementConfig());
+        }
+        return placementRevision;
+    }
+
+    private static boolean isRootLocation(final UnitConfig unitConfig) {
+        return unitConfig.getUnitType() == UnitType.LOCATION && unitConfig.getLocationConfig().getRoot();
+    }
+
+    private static boolean isFailed(final Future<Transform> transformation) {
+        if (!transformation.isDone()) {
+            return false;
+        }
+        try {
+            // does not block since the future is done already
+            transformation.get();
+            return false;
+        } catch (ExecutionException | CancellationException ex) {
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final String sourceUnitId;
+        private final String targetUnitId;
+        private final List<PlacementConfig> placementRevision;
+        private final Future<Transform> transformation;
+
+        private CacheEntry(final String sourceUnitId, final String targetUnitId, final List<PlacementConfig> placementRevision, final Future<Transform> transformation) {
+            this.sourceUnitId = sourceUnitId;
+            this.targetUnitId = targetUnitId;
+            this.placementRevision = placementRevision;
+            this.transformation = transformation;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package org.openbase.bco.bcozy.view.powerterminal;
+
+import eu.hansolo.tilesfx.Tile;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import org.openbase.bco.bcozy.model.LanguageSelection;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
+import org.openbase.bco.bcozy.util.TimeLabelFormatter;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Draws a consumption series directly onto a canvas, supporting series of far more points than the chart is wide.
+ * <p>
+ * Every frame the visible points are reduced to the minimum and maximum of each pixel column, so the amount of
+ * drawing is bound by the width of the canvas instead of the size of the series. Dragging pans and scrolling or
+ * pinching zooms the visible period without touching the scene graph, a double click shows the whole series again.
+ * Changes are coalesced into a single redraw, so nothing is drawn while the chart is idle.
+ * <p>
+ * The series set via {@link #setSeries(ConsumptionSeries)} defines the period which can be explored. Finer data of the
+ * visible part can be provided via {@link #setDetailSeries(ConsumptionSeries)}, it is drawn instead as long as it
+ * covers the visible period.
+ */
+public class SeriesCanvas extends Pane {
+
+    private static final double PADDING_LEFT = 70;
+    private static final double PADDING_RIGHT = 20;
+    private static final double PADDING_TOP = 50;
+    private static final double PADDING_BOTTOM = 40;
+    private static final double TIME_LABEL_SPACING = 160;
+    private static final int VALUE_GRID_LINES = 4;
+    private static final double SCROLL_ZOOM_SENSITIVITY = 0.002;
+
+    /**
+     * Shortest period the view can be zoomed to.
+     */
+    private static final long MINIMAL_VISIBLE_SPAN_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Canvas canvas = new Canvas();
+    private final GraphicsContext gc = canvas.getGraphicsContext2D();
+
+    private ConsumptionSeries series;
+    private ConsumptionSeries detailSeries;
+    private BiConsumer<Long, Long> visiblePeriodListener;
+    private final StringProperty titleProperty = new SimpleStringProperty("");
+    private long visibleStart;
+    private long visibleEnd;
+    private boolean zoomed;
+    private boolean redrawScheduled;
+
+    private double[] columnMin = new double[0];
+    private double[] columnMax = new double[0];
+    private boolean[] columnFilled = new boolean[0];
+
+    private double dragStartX;
+    private long dragStartVisibleStart;
+
+    public SeriesCanvas() {
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        canvas.widthProperty().addListener((observable, oldValue, newValue) -> requestRedraw());
+        canvas.heightProperty().addListener((observable, oldValue, newValue) -> requestRedraw());
+        titleProperty.addListener((observable, oldValue, newValue) -> requestRedraw());
+        getChildren().add(canvas);
+
+        canvas.setOnMousePressed(event -> {
+            dragStartX = event.getX();
+            dragStartVisibleStart = visibleStart;
+            event.consume();
+        });
+
+        canvas.setOnMouseDragged(event -> {
+            final double plotWidth = getPlotWidth();
+            if (plotWidth > 0) {
+                pan(dragStartVisibleStart - (long) ((event.getX() - dragStartX) / plotWidth * (visibleEnd - visibleStart)));
+            }
+            event.consume();
+        });
+
+        canvas.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                resetView();
+            }
+            event.consume();
+        });
+
+        canvas.setOnScroll(event -> {
+            if (!event.isDirect()) {
+                zoom(Math.exp(event.getDeltaY() * SCROLL_ZOOM_SENSITIVITY), event.getX());
+            }
+            event.consume();
+        });
+
+        canvas.setOnZoom(event -> {
+            zoom(event.getZoomFactor(), event.getX());
+            event.consume();
+        });
+
+        // changes made while the chart was not displayed are drawn once it is shown again.
+        sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene != null) {
+                requestRedraw();
+            }
+        });
+    }
+
+    /**
+     * Displays the given series.
+     * The visible period is kept if the user zoomed or panned, otherwise the whole series is shown.
+     * @param series Series to display, timestamps have to be ascending
+     */
+    public void setSeries(final ConsumptionSeries series) {
+        this.series = series;
+        if (!zoomed || series.isEmpty()) {
+            resetView();
+            return;
+        }
+        pan(visibleStart);
+    }
+
+    /**
+     * Displays the given series instead of the overview series while it covers the visible period.
+     * @param detailSeries Series with finer windows than the overview series or null to only draw the overview
+     */
+    public void setDetailSeries(final ConsumptionSeries detailSeries) {
+        this.detailSeries = detailSeries;
+        requestRedraw();
+    }
+
+    /**
+     * Sets the listener notified about the visible period after the user panned or zoomed, e.g. to load details.
+     * @param listener Listener receiving the start and end of the visible period in milliseconds since the unix epoch
+     */
+    public void setOnVisiblePeriodChanged(final BiConsumer<Long, Long> listener) {
+        this.visiblePeriodListener = listener;
+    }
+
+    public long getVisibleStart() {
+        return visibleStart;
+    }
+
+    public long getVisibleEnd() {
+        return visibleEnd;
+    }
+
+    public boolean isZoomed() {
+        return zoomed;
+    }
+
+    public StringProperty titleProperty() {
+        return titleProperty;
+    }
+
+    /**
+     * Shows the whole series.
+     */
+    public void resetView() {
+        zoomed = false;
+        if (series != null && !series.isEmpty()) {
+            visibleStart = series.getTimestamp(0);
+            visibleEnd = Math.max(series.getTimestamp(series.size() - 1), visibleStart + 1);
+        }
+        requestRedraw();
+        notifyVisiblePeriodChanged();
+    }
+
+    private void pan(final long requestedStart) {
+        if (series == null || series.isEmpty()) {
+            return;
+        }
+        final long span = visibleEnd - visibleStart;
+        final long first = series.getTimestamp(0);
+        final long last = series.getTimestamp(series.size() - 1);
+        visibleStart = Math.max(first, Math.min(requestedStart, last - span));
+        visibleEnd = visibleStart + span;
+        requestRedraw();
+        notifyVisiblePeriodChanged();
+    }
+
+    private void zoom(final double factor, final double anchorX) {
+        if (series == null || series.isEmpty() || factor <= 0) {
+            return;
+        }
+        final long first = series.getTimestamp(0);
+        final long last = series.getTimestamp(series.size() - 1);
+        final long span = visibleEnd - visibleStart;
+        final long newSpan = Math.max(MINIMAL_VISIBLE_SPAN_MILLISECONDS, Math.min(last - first, (long) (span / factor)));
+        if (newSpan >= last - first) {
+            resetView();
+            return;
+        }
+
+        // keep the point in time below the cursor in place.
+        final double anchorFraction = Math.max(0, Math.min(1, (anchorX - PADDING_LEFT) / getPlotWidth()));
+        final long anchorTime = visibleStart + (long) (anchorFraction * span);
+        zoomed = true;
+        visibleEnd = visibleStart + newSpan;
+        pan(anchorTime - (long) (anchorFraction * newSpan));
+    }
+
+    private void requestRedraw() {
+        if (!redrawScheduled) {
+            redrawScheduled = true;
+            Platform.runLater(this::redraw);
+        }
+    }
+
+    private void redraw() {
+        redrawScheduled = false;
+        if (getScene() != null) {
+            draw();
+        }
+    }
+
+    private void notifyVisiblePeriodChanged() {
+        if (visiblePeriodListener != null) {
+            visiblePeriodListener.accept(visibleStart, visibleEnd);
+        }
+    }
+
+    /**
+     * Selects the series to draw, which is the detail series if it covers the visible period.
+     */
+    private ConsumptionSeries getDrawnSeries() {
+        if (detailSeries != null && !detailSeries.isEmpty()
+                && detailSeries.getTimestamp(0) <= visibleStart
+                && detailSeries.getTimestamp(detailSeries.size() - 1) + TimeUnit.SECONDS.toMillis(detailSeries.getBucketPlan().getBucketDurationSeconds()) >= visibleEnd) {
+            return detailSeries;
+        }
+        return series;
+    }
+
+    private double getPlotWidth() {
+        return canvas.getWidth() - PADDING_LEFT - PADDING_RIGHT;
+    }
+
+    private double getPlotHeight() {
+        return canvas.getHeight() - PADDING_TOP - PADDING_BOTTOM;
+    }
+
+    private void draw() {
+        final double width = canvas.getWidth();
+        final double height = canvas.getHeight();
+        gc.setFill(Tile.BACKGROUND);
+        gc.fillRect(0, 0, width, height);
+
+        gc.setFill(Tile.FOREGROUND);
+        gc.setFont(Font.font(20));
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.TOP);
+        gc.fillText(titleProperty.get(), PADDING_LEFT, 10);
+
+        final int columns = (int) getPlotWidth();
+        final double plotHeight = getPlotHeight();
+        if (columns <= 0 || plotHeight <= 0 || series == null) {
+            return;
+        }
+        if (series.isEmpty()) {
+            gc.setTextAlign(TextAlignment.CENTER);
+            gc.setTextBaseline(VPos.CENTER);
+            gc.fillText(LanguageSelection.getLocalized(ConsumptionSeries.NO_DATA_IDENTIFIER), width / 2, height / 2);
+            return;
+        }
+
+        final double maxValue = fillColumns(getDrawnSeries(), columns);
+        drawValueAxis(maxValue, plotHeight);
+        drawTimeAxis(columns, plotHeight);
+        drawColumns(columns, maxValue, plotHeight);
+    }
+
+    /**
+     * Reduces the visible points to the minimum and maximum of each pixel column.
+     * The point before and after the visible period are included, so lines continue to the border of the plot.
+     * @return The maximal visible value
+     */
+    private double fillColumns(final ConsumptionSeries series, final int columns) {
+        if (columnMin.length != columns) {
+            columnMin = new double[columns];
+            columnMax = new double[columns];
+            columnFilled = new boolean[columns];
+        }
+        Arrays.fill(columnFilled, false);
+
+        final int firstIndex = Math.max(0, findFirstIndexAfter(series, visibleStart) - 1);
+        final int lastIndex = Math.min(series.size() - 1, findFirstIndexAfter(series, visibleEnd));
+        final double columnsPerMillisecond = (double) columns / (visibleEnd - visibleStart);
+        double maxValue = 0;
+        for (int i = firstIndex; i <= lastIndex; i++) {
+            final int column = (int) Math.max(0, Math.min(columns - 1, (series.getTimestamp(i) - visibleStart) * columnsPerMillisecond));
+            final double value = series.getValue(i);
+            if (!columnFilled[column]) {
+                columnFilled[column] = true;
+                columnMin[column] = value;
+                columnMax[column] = value;
+            } else {
+                columnMin[column] = Math.min(columnMin[column], value);
+                columnMax[column] = Math.max(columnMax[column], value);
+            }
+            maxValue = Math.max(maxValue, value);
+        }
+        return maxValue <= 0 ? 1 : maxValue * 1.1;
+    }
+
+    private void drawColumns(final int columns, final double maxValue, final double plotHeight) {
+        final double bottom = PADDING_TOP + plotHeight;
+        final double valueScale = plotHeight / maxValue;
+        gc.setStroke(Tile.BLUE);
+        gc.setLineWidth(1.5);
+        gc.beginPath();
+        boolean started = false;
+        for (int column = 0; column < columns; column++) {
+            if (!columnFilled[column]) {
+                continue;
+            }
+            final double x = PADDING_LEFT + column + 0.5;
+            final double minY = bottom - columnMin[column] * valueScale;
+            final double maxY = bottom - columnMax[column] * valueScale;
+            if (!started) {
+                gc.moveTo(x, minY);
+                started = true;
+            } else {
+                gc.lineTo(x, minY);
+            }
+            if (maxY != minY) {
+                gc.lineTo(x, maxY);
+            }
+        }
+        gc.stroke();
+    }
+
+    private void drawValueAxis(final double maxValue, final double plotHeight) {
+        gc.setStroke(Tile.GRAY);
+        gc.setLineWidth(0.5);
+        gc.setFill(Tile.FOREGROUND);
+        gc.setFont(Font.font(12));
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.CENTER);
+        for (int i = 0; i <= VALUE_GRID_LINES; i++) {
+            final double value = maxValue * i / VALUE_GRID_LINES;
+            final double y = PADDING_TOP + plotHeight - plotHeight * i / VALUE_GRID_LINES;
+            gc.strokeLine(PADDING_LEFT, y, PADDING_LEFT + getPlotWidth(), y);
+            gc.fillText(maxValue < 10 ? String.format("%.2f", value) : String.format("%.0f", value), PADDING_LEFT - 8, y);
+        }
+    }
+
+    private void drawTimeAxis(final int columns, final double plotHeight) {
+        final long span = visibleEnd - visibleStart;
+        gc.setFill(Tile.FOREGROUND);
+        gc.setFont(Font.font(12));
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        final int labelCount = Math.max(1, (int) (columns / TIME_LABEL_SPACING));
+        for (int i = 0; i <= labelCount; i++) {
+            final double fraction = (double) i / labelCount;
+            final long time = visibleStart + (long) (fraction * span);
+            gc.fillText(TimeLabelFormatter.createAxisLabel(time, span), PADDING_LEFT + fraction * columns, PADDING_TOP + plotHeight + 10);
+        }
+    }
+
+    /**
+     * Binary search for the first point after the given time.
+     * @return Index of the point or the size of the series if there is none
+     */
+    private static int findFirstIndexAfter(final ConsumptionSeries series, final long time) {
+        int low = 0;
+        int high = series.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (series.getTimestamp(middle) <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,48 @@
+package org.openbase.bco.bcozy.controller.powerterminal.chartattributes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+public class BucketPlanTest {
+
+    @Test
+    public void plansWindowsMatchingChartWidth() {
+        // 800 pixels provide room for 100 windows.
+        BucketPlan day = BucketPlan.forTimeSpan(TimeUnit.DAYS.toSeconds(1), 800);
+        Assert.assertEquals(TimeUnit.MINUTES.toSeconds(15), day.getBucketDurationSeconds());
+        Assert.assertEquals(Interval.HOURLY, day.getLabelInterval());
+        Assert.assertFalse(day.isSpanningMultipleDays());
+
+        BucketPlan year = BucketPlan.forTimeSpan(TimeUnit.DAYS.toSeconds(365), 800);
+        Assert.assertEquals(TimeUnit.DAYS.toSeconds(7), year.getBucketDurationSeconds());
+        Assert.assertEquals(Interval.WEEKLY, year.getLabelInterval());
+        Assert.assertTrue(year.isSpanningMultipleDays());
+    }
+
+    @Test
+    public void plansCategoriesByDefaultInterval() {
+        BucketPlan week = BucketPlan.forDefaultInterval(new DateRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 8)));
+        Assert.assertEquals(TimeUnit.DAYS.toSeconds(1), week.getBucketDurationSeconds());
+        Assert.assertEquals(Interval.DAILY, week.getLabelInterval());
+        Assert.assertTrue(week.isSpanningMultipleDays());
+    }
+
+    @Test
+    public void createsInfluxIntervalStrings() {
+        Assert.assertEquals("15m", BucketPlan.toInfluxIntervalString(900));
+        Assert.assertEquals("90m", BucketPlan.toInfluxIntervalString(5400));
+        Assert.assertEquals("6h", BucketPlan.toInfluxIntervalString(21600));
+        Assert.assertEquals("7d", BucketPlan.toInfluxIntervalString(604800));
+        Assert.assertEquals("45s", BucketPlan.toInfluxIntervalString(45));
+    }
+
+    @Test
+    public void alignsToWindowStart() {
+        BucketPlan plan = BucketPlan.forInterval(Interval.HOURLY);
+        Assert.assertEquals(3600 * 5, plan.alignToBucketStart(3600 * 5 + 1234));
+        Assert.assertEquals(-3600, plan.alignToBucketStart(-1));
+    }
+}
@@ -0,0 +1,71 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class HeatmapDiffusionTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void matchesReferenceStencil() {
+        int rows = 150;
+        int columns = 40;
+        HeatmapSpot spot = new HeatmapSpot(70, 20, 1.0, 0);
+        HeatmapDiffusion diffusion = new HeatmapDiffusion(rows, columns, pool);
+        diffusion.setValue(spot.x, spot.y, 1);
+        diffusion.diffuse(List.of(spot), 3);
+
+        double[][] grid = new double[rows][columns];
+        grid[spot.x][spot.y] = 1;
+        for (int run = 0; run < 3; run++) {
+            double[][] speed = new double[rows][columns];
+            for (int row = 1; row < rows - 1; row++) {
+                for (int column = 1; column < columns - 1; column++) {
+                    speed[row][column] = grid[row - 1][column] + grid[row + 1][column] + grid[row][column - 1] + grid[row][column + 1] - 4 * grid[row][column];
+                }
+            }
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    grid[row][column] += 0.1 * speed[row][column];
+                }
+            }
+            grid[spot.x][spot.y] = spot.value;
+        }
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                Assert.assertEquals(grid[row][column], diffusion.getValue(row, column), 1e-6);
+            }
+        }
+        Assert.assertTrue(diffusion.getValue(spot.x + 1, spot.y) > 0);
+    }
+
+    @Test
+    public void regionMatchesFullGridAroundSpot() {
+        HeatmapSpot spot = new HeatmapSpot(30, 12, 0.5, 0);
+        HeatmapDiffusion full = new HeatmapDiffusion(60, 25);
+        HeatmapDiffusion region = new HeatmapDiffusion(60, 25);
+        full.setValue(spot.x, spot.y, 0.5f);
+        region.setValue(spot.x, spot.y, 0.5f);
+
+        full.diffuse(List.of(spot), 3);
+        region.diffuse(List.of(spot), 3, new Rectangle(spot.x - 3, spot.y - 3, 7, 7));
+
+        for (int row = 0; row < 60; row++) {
+            for (int column = 0; column < 25; column++) {
+                Assert.assertEquals(full.getValue(row, column), region.getValue(row, column), 0f);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import javafx.geometry.Point2D;
+import org.openbase.bco.bcozy.util.ShapeGeometry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class HeatmapKernelTest {
+
+    @Test
+    public void staysInsideTileOfSpot() {
+        final List<ShapeGeometry> tiles = Arrays.asList(
+                ShapeGeometry.of(Arrays.asList(new Point2D(0, 0), new Point2D(30, 0), new Point2D(30, 40), new Point2D(0, 40))),
+                ShapeGeometry.of(Arrays.asList(new Point2D(0, 40), new Point2D(30, 40), new Point2D(30, 80), new Point2D(0, 80))));
+        final HeatmapValues values = new HeatmapValues(tiles, new ArrayList<>(), new HeatmapDiffusion(80, 30), 0, 0);
+        final HeatmapSpot spot = new HeatmapSpot(35, 15, 1, 0);
+
+        final float[] profile = HeatmapKernel.computeProfile(3);
+        Assert.assertEquals(1, profile[0], 0f);
+        Assert.assertEquals(0, profile[3], 0f);
+        Assert.assertTrue(profile[1] > profile[2]);
+
+        final HeatmapKernel kernel = HeatmapKernel.compute(values, spot, profile, 4);
+        final float[] field = new float[80 * 30];
+        kernel.addTo(field, 30, 0.5f, new Rectangle(0, 0, 80, 30));
+
+        int cells = 0;
+        for (int row = 0; row < 80; row++) {
+            for (int column = 0; column < 30; column++) {
+                final float value = field[row * 30 + column];
+                if (value > 0) {
+                    cells++;
+                    Assert.assertEquals(values.getTileId(spot.x, spot.y), values.getTileId(row, column));
+                }
+            }
+        }
+        Assert.assertEquals(kernel.size(), cells);
+        Assert.assertEquals(0.5f, field[spot.x * 30 + spot.y], 0f);
+        Assert.assertEquals(0, field[45 * 30 + 15], 0f);
+    }
+}
@@ -0,0 +1,60 @@
+package org.openbase.bco.bcozy.controller.powerterminal.heatmapattributes;
+
+import javafx.geometry.Point2D;
+import org.openbase.bco.bcozy.util.ShapeGeometry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class HeatmapValuesTest {
+
+    private static ShapeGeometry rectangle(double x, double y, double width, double height) {
+        return ShapeGeometry.of(Arrays.asList(new Point2D(x, y), new Point2D(x + width, y), new Point2D(x + width, y + height), new Point2D(x, y + height)));
+    }
+
+    @Test
+    public void matchesPolygonContainment() {
+        final List<ShapeGeometry> tiles = Arrays.asList(rectangle(0, 0, 10, 20), rectangle(10, 0, 10, 20), rectangle(3, 25, 6, 4));
+        final HeatmapValues values = new HeatmapValues(tiles, new ArrayList<>(), new HeatmapDiffusion(32, 24), 1, 2);
+
+        for (int x = -2; x < 34; x++) {
+            for (int y = -2; y < 26; y++) {
+                for (int[] center : new int[][]{{5, 5}, {5, 15}, {26, 5}, {31, 23}}) {
+                    boolean expected = false;
+                    for (java.awt.Polygon polygon : values.getLocations()) {
+                        if (polygon.contains(center[0], center[1]) && polygon.contains(x, y) && x >= 0 && y >= 0 && x < 32 && y < 24) {
+                            expected = true;
+                            break;
+                        }
+                    }
+                    Assert.assertEquals("x=" + x + " y=" + y, expected, values.isInsideLocation(x, y, center[0], center[1]));
+                }
+            }
+        }
+        Assert.assertFalse(values.isInsideLocation(31, 23));
+    }
+
+    @Test
+    public void samplesCoarseCellsAtTheirOrigin() {
+        final List<ShapeGeometry> tiles = Arrays.asList(rectangle(0, 0, 50, 100), rectangle(50, 0, 50, 100));
+        final HeatmapValues values = new HeatmapValues(tiles, new ArrayList<>(), new HeatmapDiffusion(20, 20), 0, 0, 5);
+
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 20; column++) {
+                int expected = HeatmapValues.NO_TILE;
+                for (int tile = 0; tile < values.getLocations().size(); tile++) {
+                    if (values.getLocations().get(tile).contains(row * 5, column * 5)) {
+                        expected = tile + 1;
+                        break;
+                    }
+                }
+                Assert.assertEquals(expected, values.getTileId(row, column));
+            }
+        }
+        Assert.assertEquals(1, values.getTileId(3, 3));
+        Assert.assertEquals(2, values.getTileId(3, 12));
+    }
+}
@@ -0,0 +1,133 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.DateRange;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.Interval;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ChartQuerySchedulerTest {
+
+    private static final long DEBOUNCE_MILLISECONDS = 50;
+    private static final long TIMEOUT_MILLISECONDS = 5000;
+    private static final BucketPlan BUCKET_PLAN = BucketPlan.forInterval(Interval.HOURLY);
+    private static final Timestamp START_TIME = new Timestamp(0);
+    private static final Timestamp END_TIME = new Timestamp(TimeUnit.DAYS.toMillis(1));
+
+    private final FakeConsumptionQuery consumptionQuery = new FakeConsumptionQuery();
+    private final ChartQueryScheduler scheduler = new ChartQueryScheduler(dateRange -> BUCKET_PLAN, DEBOUNCE_MILLISECONDS, consumptionQuery);
+    private final LinkedBlockingQueue<ConsumptionSeries> results = new LinkedBlockingQueue<>();
+
+    @Test
+    public void collapsesBurstIntoOneQuery() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            scheduler.schedule(START_TIME, END_TIME, "unit" + i, BUCKET_PLAN, results::add);
+        }
+        final PendingQuery query = consumptionQuery.awaitQuery(0);
+        Thread.sleep(2 * DEBOUNCE_MILLISECONDS);
+
+        Assert.assertEquals(1, consumptionQuery.getQueryCount());
+        Assert.assertEquals("unit9", query.unitId);
+
+        final ConsumptionSeries series = ConsumptionSeries.empty(BUCKET_PLAN);
+        query.complete(series);
+        Assert.assertSame(series, results.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void attachesIdenticalRequestToRunningQuery() throws Exception {
+        final List<ConsumptionSeries> replacedResults = Collections.synchronizedList(new ArrayList<>());
+        scheduler.schedule(START_TIME, END_TIME, "unit", BUCKET_PLAN, replacedResults::add);
+        final PendingQuery query = consumptionQuery.awaitQuery(0);
+
+        scheduler.schedule(START_TIME, END_TIME, "unit", BUCKET_PLAN, results::add);
+        Thread.sleep(2 * DEBOUNCE_MILLISECONDS);
+
+        Assert.assertEquals(1, consumptionQuery.getQueryCount());
+        Assert.assertFalse(query.cancelRequested);
+
+        final ConsumptionSeries series = ConsumptionSeries.empty(BUCKET_PLAN);
+        query.complete(series);
+        Assert.assertSame(series, results.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(replacedResults.isEmpty());
+    }
+
+    @Test
+    public void cancelsSupersededQuery() throws Exception {
+        scheduler.schedule(START_TIME, END_TIME, "unit", BUCKET_PLAN, results::add);
+        final PendingQuery staleQuery = consumptionQuery.awaitQuery(0);
+
+        scheduler.schedule(START_TIME, END_TIME, "other", BUCKET_PLAN, results::add);
+        final PendingQuery query = consumptionQuery.awaitQuery(1);
+        Assert.assertTrue(staleQuery.cancelRequested);
+
+        // the stale query ignores the cancellation, its result must be dropped anyway.
+        final ConsumptionSeries series = ConsumptionSeries.empty(BUCKET_PLAN);
+        staleQuery.complete(ConsumptionSeries.empty(BUCKET_PLAN));
+        query.complete(series);
+        Assert.assertSame(series, results.poll(TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS));
+        Assert.assertNull(results.poll(2 * DEBOUNCE_MILLISECONDS, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Query whose cancellation is only recorded, like a database query that already returned.
+     */
+    private static class PendingQuery extends CompletableFuture<ConsumptionSeries> {
+        private final String unitId;
+        private volatile boolean cancelRequested;
+
+        private PendingQuery(final String unitId) {
+            this.unitId = unitId;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            cancelRequested = true;
+            return false;
+        }
+    }
+
+    private static class FakeConsumptionQuery implements ChartQueryScheduler.ConsumptionQuery {
+        private final List<PendingQuery> queries = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<ConsumptionSeries> getAverageConsumption(final DateRange dateRange, final String unitId, final BucketPlan bucketPlan) {
+            return addQuery(unitId);
+        }
+
+        @Override
+        public CompletableFuture<ConsumptionSeries> getAverageConsumption(final Timestamp startTime, final Timestamp endTime, final String unitId, final BucketPlan bucketPlan) {
+            return addQuery(unitId);
+        }
+
+        private synchronized PendingQuery addQuery(final String unitId) {
+            final PendingQuery query = new PendingQuery(unitId);
+            queries.add(query);
+            notifyAll();
+            return query;
+        }
+
+        private synchronized int getQueryCount() {
+            return queries.size();
+        }
+
+        private synchronized PendingQuery awaitQuery(final int index) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MILLISECONDS;
+            while (queries.size() <= index) {
+                final long remaining = deadline - System.currentTimeMillis();
+                Assert.assertTrue("Query " + index + " was not issued", remaining > 0);
+                wait(remaining);
+            }
+            return queries.get(index);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsumptionBucketCacheTest {
+
+    private static final long HOUR = 3600;
+    private static final long DAY = 86400;
+
+    @Test
+    public void evictsLeastRecentlyUsedBucket() {
+        ConsumptionBucketCache cache = new ConsumptionBucketCache(2);
+        cache.put("unit", HOUR, 0, 1.0);
+        cache.put("unit", HOUR, 3600, 2.0);
+
+        // touch the first bucket so the second one becomes the eldest.
+        Assert.assertEquals(1.0, cache.get("unit", HOUR, 0), 0.0);
+        cache.put("unit", HOUR, 7200, 3.0);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get("unit", HOUR, 3600));
+        Assert.assertEquals(3.0, cache.get("unit", HOUR, 7200), 0.0);
+    }
+
+    @Test
+    public void distinguishesUnitsAndDurations() {
+        ConsumptionBucketCache cache = new ConsumptionBucketCache();
+        cache.put("unit", DAY, 0, 1.0);
+
+        Assert.assertNull(cache.get("other", DAY, 0));
+        Assert.assertNull(cache.get("unit", 7 * DAY, 0));
+    }
+
+    @Test
+    public void closesBuckets() {
+        long bucketStart = 3600 * 5;
+
+        Assert.assertFalse(ConsumptionBucketCache.isClosed(HOUR, bucketStart, 3600 * 5 + 1234));
+        // late measurements may still arrive shortly after the end of the window
+        Assert.assertFalse(ConsumptionBucketCache.isClosed(HOUR, bucketStart, 3600 * 6));
+        Assert.assertTrue(ConsumptionBucketCache.isClosed(HOUR, bucketStart, 3600 * 6 + ConsumptionBucketCache.SETTLE_MARGIN_SECONDS));
+    }
+}
@@ -0,0 +1,44 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsumptionRingBufferTest {
+
+    @Test
+    public void overwritesOldestSamples() {
+        ConsumptionRingBuffer buffer = new ConsumptionRingBuffer(3);
+        buffer.append(1000, 1.0);
+        buffer.append(2000, 2.0);
+        buffer.append(3000, 3.0);
+        buffer.append(4000, 4.0);
+
+        Assert.assertEquals(3, buffer.size());
+        Assert.assertEquals(2000, buffer.getOldestTimestamp());
+        Assert.assertEquals(4.0, buffer.getLatestValue(), 0.0);
+    }
+
+    @Test
+    public void dropsRepeatedAndOutdatedSamples() {
+        ConsumptionRingBuffer buffer = new ConsumptionRingBuffer(3);
+        buffer.append(1000, 1.0);
+        buffer.append(2000, 1.0);
+        buffer.append(500, 5.0);
+
+        Assert.assertEquals(1, buffer.size());
+        Assert.assertEquals(1.0, buffer.getLatestValue(), 0.0);
+    }
+
+    @Test
+    public void averagesStepFunction() {
+        ConsumptionRingBuffer buffer = new ConsumptionRingBuffer();
+        buffer.append(0, 10.0);
+        buffer.append(1000, 20.0);
+        buffer.append(3000, 40.0);
+
+        // 10 W for 500 ms, 20 W for 2000 ms and 40 W for 1500 ms.
+        Assert.assertEquals(26.25, buffer.getAverage(500, 4500), 1e-9);
+        Assert.assertEquals(40.0, buffer.getAverage(5000, 6000), 0.0);
+        Assert.assertNull(buffer.getAverage(-1, 1000));
+    }
+}
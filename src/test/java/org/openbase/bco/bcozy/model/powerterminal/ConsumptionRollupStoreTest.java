@@ -0,0 +1,120 @@
+package org.openbase.bco.bcozy.model.powerterminal;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ConsumptionRollupStoreTest {
+
+    private static final long HOUR = 3600;
+    private static final long DAY = 86400;
+    private static final long BUCKET_START = 1577836800L;
+    private static final long NOW = BUCKET_START + 2 * DAY;
+
+    private final List<ConsumptionRollupStore> stores = new ArrayList<>();
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rollup").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        stores.forEach(ConsumptionRollupStore::close);
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private ConsumptionRollupStore createStore(final long maxAgeSeconds) {
+        final ConsumptionRollupStore store = new ConsumptionRollupStore(directory, maxAgeSeconds);
+        stores.add(store);
+        return store;
+    }
+
+    @Test
+    public void persistsValuesAcrossInstances() {
+        ConsumptionRollupStore store = createStore(ConsumptionRollupStore.DEFAULT_MAX_AGE_SECONDS);
+        store.put("unit", HOUR, BUCKET_START, 42.5, NOW);
+        store.flush();
+
+        ConsumptionRollupStore reopenedStore = createStore(ConsumptionRollupStore.DEFAULT_MAX_AGE_SECONDS);
+        Assert.assertEquals(42.5, reopenedStore.get("unit", HOUR, BUCKET_START, NOW), 0.0);
+        Assert.assertNull(reopenedStore.get("unit", HOUR, BUCKET_START + 3600, NOW));
+        Assert.assertNull(reopenedStore.get("unit", DAY, BUCKET_START, NOW));
+        Assert.assertNull(reopenedStore.get("other", HOUR, BUCKET_START, NOW));
+    }
+
+    @Test
+    public void expiresRecords() {
+        ConsumptionRollupStore store = createStore(DAY);
+        store.put("unit", HOUR, BUCKET_START, 1.0, NOW);
+
+        Assert.assertEquals(1.0, store.get("unit", HOUR, BUCKET_START, NOW + DAY), 0.0);
+        Assert.assertNull(store.get("unit", HOUR, BUCKET_START, NOW + DAY + 1));
+    }
+
+    @Test
+    public void ignoresRecordsStoredBeforeSettled() {
+        ConsumptionRollupStore store = createStore(ConsumptionRollupStore.DEFAULT_MAX_AGE_SECONDS);
+        store.put("unit", HOUR, BUCKET_START, 1.0, BUCKET_START + HOUR);
+
+        Assert.assertNull(store.get("unit", HOUR, BUCKET_START, NOW));
+    }
+
+    @Test
+    public void ignoresShortWindows() {
+        ConsumptionRollupStore store = createStore(ConsumptionRollupStore.DEFAULT_MAX_AGE_SECONDS);
+        store.put("unit", 300, BUCKET_START, 1.0, NOW);
+
+        Assert.assertNull(store.get("unit", 300, BUCKET_START, NOW));
+    }
+
+    @Test
+    public void ignoresDurationsOfOtherIntervals() {
+        ConsumptionRollupStore store = createStore(ConsumptionRollupStore.DEFAULT_MAX_AGE_SECONDS);
+        store.put("unit", 2 * HOUR, BUCKET_START, 1.0, NOW);
+
+        Assert.assertNull(store.get("unit", 2 * HOUR, BUCKET_START, NOW));
+        Assert.assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void anchorsFilesAtFirstStoredWindow() {
+        ConsumptionRollupStore store = createStore(ConsumptionRollupStore.DEFAULT_MAX_AGE_SECONDS);
+        store.put("unit", HOUR, BUCKET_START, 1.0, NOW);
+        store.flush();
+
+        final File[] files = directory.listFiles();
+        Assert.assertEquals(1, files.length);
+        Assert.assertTrue(files[0].length() < 4096);
+    }
+
+    @Test
+    public void keepsRecordsWhenGrowing() {
+        ConsumptionRollupStore store = createStore(ConsumptionRollupStore.DEFAULT_MAX_AGE_SECONDS);
+        store.put("unit", HOUR, BUCKET_START, 1.0, NOW);
+        // earlier and later windows grow the file to the front and to the end.
+        store.put("unit", HOUR, BUCKET_START - 1000 * HOUR, 2.0, NOW);
+        store.put("unit", HOUR, BUCKET_START + 24 * HOUR, ConsumptionBucketCache.NO_DATA, NOW);
+        store.flush();
+
+        ConsumptionRollupStore reopenedStore = createStore(ConsumptionRollupStore.DEFAULT_MAX_AGE_SECONDS);
+        Assert.assertEquals(1.0, reopenedStore.get("unit", HOUR, BUCKET_START, NOW), 0.0);
+        Assert.assertEquals(2.0, reopenedStore.get("unit", HOUR, BUCKET_START - 1000 * HOUR, NOW), 0.0);
+        Assert.assertTrue(Double.isNaN(reopenedStore.get("unit", HOUR, BUCKET_START + 24 * HOUR, NOW)));
+        Assert.assertNull(reopenedStore.get("unit", HOUR, BUCKET_START - HOUR, NOW));
+        Assert.assertNull(reopenedStore.get("unit", HOUR, BUCKET_START - 2000 * HOUR, NOW));
+    }
+}
@@ -0,0 +1,52 @@
+package org.openbase.bco.bcozy.util;
+
+import eu.hansolo.tilesfx.chart.ChartData;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.Interval;
+import org.openbase.bco.bcozy.model.LanguageSelection;
+import org.openbase.bco.bcozy.model.powerterminal.ConsumptionSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ChartDataSynchronizerTest {
+
+    private static ConsumptionSeries createSeries(int firstHour, double... values) {
+        long[] timestamps = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            timestamps[i] = (firstHour + i) * 3600000L;
+        }
+        return new ConsumptionSeries(BucketPlan.forInterval(Interval.HOURLY), timestamps, values, values.length);
+    }
+
+    @Test
+    public void shiftsDisplayedEntries() {
+        List<ChartData> displayed = new ArrayList<>();
+        ChartDataSynchronizer.synchronizeChartData(displayed, createSeries(0, 1, 2, 3));
+        ChartData kept = displayed.get(1);
+
+        ConsumptionSeries shifted = createSeries(1, 2, 5, 4);
+        ChartDataSynchronizer.synchronizeChartData(displayed, shifted);
+
+        Assert.assertEquals(3, displayed.size());
+        Assert.assertSame(kept, displayed.get(0));
+        for (int i = 0; i < shifted.size(); i++) {
+            Assert.assertEquals(shifted.getLabel(i), displayed.get(i).getName());
+            Assert.assertEquals(shifted.getValue(i), displayed.get(i).getValue(), 0.0);
+        }
+    }
+
+    @Test
+    public void replacesPlaceholder() {
+        List<ChartData> displayed = new ArrayList<>();
+        ChartDataSynchronizer.synchronizeChartData(displayed, ConsumptionSeries.empty(BucketPlan.forInterval(Interval.HOURLY)));
+        Assert.assertEquals(1, displayed.size());
+        Assert.assertEquals(LanguageSelection.getLocalized(ConsumptionSeries.NO_DATA_IDENTIFIER), displayed.get(0).getName());
+
+        ChartDataSynchronizer.synchronizeChartData(displayed, createSeries(0, 7, 8));
+        Assert.assertEquals(2, displayed.size());
+        Assert.assertEquals(8, displayed.get(1).getValue(), 0.0);
+    }
+}
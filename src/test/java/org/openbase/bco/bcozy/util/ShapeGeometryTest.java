@@ -0,0 +1,52 @@
+package org.openbase.bco.bcozy.util;
+
+import javafx.geometry.Point2D;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.vecmath.Matrix4d;
+import java.util.Arrays;
+
+public class ShapeGeometryTest {
+
+    @Test
+    public void computesBoundsCentroidAndArea() {
+        // L shape made of a 4x2 and a 2x2 square, listed clockwise
+        final ShapeGeometry geometry = ShapeGeometry.of(Arrays.asList(
+                new Point2D(0, 0), new Point2D(0, 4), new Point2D(2, 4), new Point2D(2, 2), new Point2D(4, 2), new Point2D(4, 0)));
+
+        Assert.assertEquals(6, geometry.getVertexCount());
+        Assert.assertEquals(0, geometry.getMinX(), 1e-9);
+        Assert.assertEquals(4, geometry.getMaxX(), 1e-9);
+        Assert.assertEquals(0, geometry.getMinY(), 1e-9);
+        Assert.assertEquals(4, geometry.getMaxY(), 1e-9);
+        Assert.assertEquals(12, geometry.getArea(), 1e-9);
+        Assert.assertEquals(5.0 / 3, geometry.getCentroidX(), 1e-9);
+        Assert.assertEquals(5.0 / 3, geometry.getCentroidY(), 1e-9);
+        Assert.assertEquals(new Point2D(2, 2), geometry.getVertex(3));
+    }
+
+    @Test
+    public void transformsAllVertices() {
+        // rotation by 90 degrees around z followed by a translation of (1, 2, 3)
+        final Matrix4d matrix = new Matrix4d();
+        matrix.m01 = -1;
+        matrix.m10 = 1;
+        matrix.m22 = 1;
+        matrix.m33 = 1;
+        matrix.m03 = 1;
+        matrix.m13 = 2;
+        matrix.m23 = 3;
+
+        final ShapeGeometry geometry = ShapeGeometry.transform(new double[]{0, 0, 0, 2, 0, 0, 2, 1, 5}, matrix, 10);
+
+        Assert.assertEquals(3, geometry.getVertexCount());
+        Assert.assertEquals(10, geometry.getX(0), 1e-9);
+        Assert.assertEquals(20, geometry.getY(0), 1e-9);
+        Assert.assertEquals(10, geometry.getX(1), 1e-9);
+        Assert.assertEquals(40, geometry.getY(1), 1e-9);
+        Assert.assertEquals(0, geometry.getX(2), 1e-9);
+        Assert.assertEquals(40, geometry.getY(2), 1e-9);
+        Assert.assertEquals(100, geometry.getArea(), 1e-9);
+    }
+}
@@ -0,0 +1,54 @@
+package org.openbase.bco.bcozy.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class SpatialIndexTest {
+
+    @Test
+    public void matchesLinearSearch() {
+        final Random random = new Random(7);
+        final SpatialIndex<Integer> index = new SpatialIndex<>(0, 0, 1000, 1000);
+        final List<double[]> bounds = new ArrayList<>();
+        for (int item = 0; item < 500; item++) {
+            // some items exceed the indexed area
+            final double x = random.nextDouble() * 1100 - 50;
+            final double y = random.nextDouble() * 1100 - 50;
+            final double[] box = {x, y, x + random.nextDouble() * 80, y + random.nextDouble() * 80};
+            bounds.add(box);
+            index.put(item, box[0], box[1], box[2], box[3]);
+        }
+
+        // move every third item and remove every fifth one
+        for (int item = 0; item < bounds.size(); item += 3) {
+            final double[] box = bounds.get(item);
+            box[0] += 200;
+            box[2] += 200;
+            index.put(item, box[0], box[1], box[2], box[3]);
+        }
+        for (int item = 0; item < bounds.size(); item += 5) {
+            bounds.set(item, null);
+            index.remove(item);
+        }
+
+        for (int query = 0; query < 200; query++) {
+            final double x = random.nextDouble() * 1200 - 100;
+            final double y = random.nextDouble() * 1200 - 100;
+            final Set<Integer> expected = new HashSet<>();
+            for (int item = 0; item < bounds.size(); item++) {
+                final double[] box = bounds.get(item);
+                if (box != null && box[0] <= x && box[2] >= x && box[1] <= y && box[3] >= y) {
+                    expected.add(item);
+                }
+            }
+            Assert.assertEquals(expected, new HashSet<>(index.query(x, y)));
+        }
+        Assert.assertEquals(400, index.size());
+    }
+}
@@ -0,0 +1,48 @@
+package org.openbase.bco.bcozy.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.BucketPlan;
+import org.openbase.bco.bcozy.controller.powerterminal.chartattributes.Interval;
+import org.openbase.bco.bcozy.model.LanguageSelection;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+public class TimeLabelFormatterTest {
+
+    private static long toEpochMilliseconds(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void reusesLabelsOfWindowStarts() {
+        final BucketPlan bucketPlan = BucketPlan.forTimeSpan(TimeUnit.DAYS.toSeconds(3), BucketPlan.DEFAULT_CHART_WIDTH);
+        final long start = toEpochMilliseconds(LocalDateTime.of(2020, 3, 14, 15, 0));
+
+        final String label = TimeLabelFormatter.createTimeLabel(start, bucketPlan);
+        Assert.assertEquals("14.03. 15:00", label);
+        Assert.assertSame(label, TimeLabelFormatter.createTimeLabel(start, bucketPlan));
+        Assert.assertSame(label, TimeLabelFormatter.createTimeLabel(new Timestamp(start), bucketPlan));
+        Assert.assertEquals("14.03.", TimeLabelFormatter.createTimeLabel(start, BucketPlan.forInterval(Interval.DAILY)));
+    }
+
+    @Test
+    public void invalidatesLabelsOnLanguageChange() {
+        final Locale previousLocale = Locale.getDefault();
+        final BucketPlan bucketPlan = BucketPlan.forInterval(Interval.MONTHLY);
+        final long start = toEpochMilliseconds(LocalDateTime.of(2020, 5, 1, 0, 0));
+        try {
+            LanguageSelection.getInstance().setSelectedLocale(Locale.GERMANY);
+            Assert.assertEquals("Mai", TimeLabelFormatter.createTimeLabel(start, bucketPlan));
+
+            LanguageSelection.getInstance().setSelectedLocale(Locale.US);
+            Assert.assertEquals("May", TimeLabelFormatter.createTimeLabel(start, bucketPlan));
+        } finally {
+            LanguageSelection.getInstance().setSelectedLocale(previousLocale);
+        }
+    }
+}